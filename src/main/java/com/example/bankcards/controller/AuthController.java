@@ -2,7 +2,9 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.security.JwtAuthResponse;
 import com.example.bankcards.dto.security.LoginRequest;
+import com.example.bankcards.dto.security.RefreshTokenRequest;
 import com.example.bankcards.dto.security.RegisterRequest;
+import com.example.bankcards.security.LoginThrottle;
 import com.example.bankcards.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,14 +12,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -25,7 +26,10 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "Authentication", description = "User authentication and registration APIs")
 public class AuthController {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final AuthService authService;
+    private final LoginThrottle loginThrottle;
 
     @Operation(summary = "Authenticate user and get JWT token")
     @ApiResponses(value = {
@@ -35,11 +39,16 @@ public class AuthController {
             @ApiResponse(responseCode = "400", description = "Invalid credentials",
                     content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid request payload",
+                    content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many login attempts for this username or client",
                     content = @Content)
     })
     @PostMapping("/login")
-    public ResponseEntity<JwtAuthResponse> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<JwtAuthResponse> login(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        // throttled before the password is checked, so rejected attempts cost no hashing
+        loginThrottle.acquire(loginRequest.getUsername(), request.getRemoteAddr());
         JwtAuthResponse jwtAuthResponse = authService.login(loginRequest);
+        loginThrottle.reset(loginRequest.getUsername());
         return ResponseEntity.ok(jwtAuthResponse);
     }
 
@@ -58,4 +67,39 @@ public class AuthController {
         JwtAuthResponse jwtAuthResponse = authService.register(registerRequest);
         return new ResponseEntity<>(jwtAuthResponse, HttpStatus.CREATED);
     }
+
+    @Operation(summary = "Exchange a refresh token for a new access token and a new refresh token",
+            description = "Refresh tokens rotate: the presented token is consumed and can't be used again.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tokens refreshed successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = JwtAuthResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Refresh token is invalid, expired or already used",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid request payload",
+                    content = @Content)
+    })
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtAuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        JwtAuthResponse jwtAuthResponse = authService.refresh(refreshTokenRequest);
+        return ResponseEntity.ok(jwtAuthResponse);
+    }
+
+    @Operation(summary = "Log out: revoke the bearer access token and, if given, the refresh token",
+            description = "The access token is rejected from now on until it expires. Repeating the call is harmless.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Logged out successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid request payload",
+                    content = @Content)
+    })
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                       @Valid @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
+        String accessToken = authorization != null && authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length())
+                : null;
+        authService.logout(accessToken, refreshTokenRequest != null ? refreshTokenRequest.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.CardNumberLookupRequest;
 import com.example.bankcards.dto.card.CardSearchRequest;
 import com.example.bankcards.dto.card.CreateCardRequest;
 import com.example.bankcards.dto.card.UpdateCardStatusRequest;
@@ -42,6 +43,8 @@ public class CardController {
             @ApiResponse(responseCode = "403", description = "Forbidden - Requires ADMIN role",
                     content = @Content),
             @ApiResponse(responseCode = "404", description = "User not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "A card with this number already exists",
                     content = @Content)
     })
     @PostMapping
@@ -66,7 +69,7 @@ public class CardController {
             @RequestParam(value = "size", required = false) Integer pageSize,
             @Parameter(description = "Sort by creation date in ascending order (true for ASC, false for DESC)", example = "false")
             @RequestParam(value = "asc", defaultValue = "false") boolean ascendingCreationDate,
-            @Parameter(description = "Search criteria for cards")
+            @Parameter(description = "Search criteria for cards; look a card up by its number through POST /search")
             @ModelAttribute CardSearchRequest searchRequest) {
         List<CardDto> cards = cardService.getAllCards(pageNumber, pageSize, ascendingCreationDate, searchRequest);
         return ResponseEntity.ok(cards);
@@ -114,6 +117,25 @@ public class CardController {
         return ResponseEntity.ok(card);
     }
 
+    @Operation(summary = "Find a card by its full number (Admin only)",
+            description = "The number is sent in the body so it never ends up in URLs or access logs")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved card details",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CardDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request payload",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Card not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Requires ADMIN role",
+                    content = @Content)
+    })
+    @PostMapping("/search")
+    public ResponseEntity<CardDto> findCardByNumber(@Valid @RequestBody CardNumberLookupRequest request) {
+        CardDto card = cardService.findCardByNumber(request);
+        return ResponseEntity.ok(card);
+    }
+
     @Operation(summary = "Change the status of a card (Admin only)")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Card status changed successfully",
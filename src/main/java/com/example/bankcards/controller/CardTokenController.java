@@ -0,0 +1,64 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.DetokenizeRequest;
+import com.example.bankcards.dto.card.DetokenizedCardDto;
+import com.example.bankcards.service.CardTokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/card-tokens")
+@RequiredArgsConstructor
+@Tag(name = "Card Tokens", description = "Card lookup by surrogate token and detokenization (Admin only)")
+@SecurityRequirement(name = "bearerAuth")
+public class CardTokenController {
+
+    private final CardTokenService cardTokenService;
+
+    @Operation(summary = "Get card details by its token (Admin only)",
+            description = "Resolves the token without decrypting the card number")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved card details",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CardDto.class))),
+            @ApiResponse(responseCode = "404", description = "Card not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Requires ADMIN role",
+                    content = @Content)
+    })
+    @GetMapping("/{cardToken}")
+    public ResponseEntity<CardDto> getCardByToken(
+            @Parameter(description = "Token of the card to retrieve", required = true)
+            @PathVariable String cardToken) {
+        return ResponseEntity.ok(cardTokenService.getCardDtoByToken(cardToken));
+    }
+
+    @Operation(summary = "Reveal the card number behind a token (Admin only)",
+            description = "The response is the only place the full number is returned; every call is logged")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Card number revealed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DetokenizedCardDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request payload",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Card not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Requires ADMIN role",
+                    content = @Content)
+    })
+    @PostMapping("/detokenize")
+    public ResponseEntity<DetokenizedCardDto> detokenize(@Valid @RequestBody DetokenizeRequest request) {
+        return ResponseEntity.ok(cardTokenService.detokenize(request));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.security.DataKeyDto;
+import com.example.bankcards.dto.security.ReEncryptionStatusDto;
+import com.example.bankcards.service.EncryptionKeyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/encryption-keys")
+@RequiredArgsConstructor
+@Tag(name = "Encryption Keys", description = "Card number encryption key management (Admin only)")
+@SecurityRequirement(name = "bearerAuth")
+public class EncryptionKeyController {
+
+    private final EncryptionKeyService encryptionKeyService;
+
+    @Operation(summary = "Rotate the card number data key (Admin only)",
+            description = "New card numbers are encrypted with the new key at once; existing ones are re-encrypted in the background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Data key rotated",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DataKeyDto.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Requires ADMIN role",
+                    content = @Content)
+    })
+    @PostMapping("/rotate")
+    public ResponseEntity<DataKeyDto> rotateDataKey() {
+        return new ResponseEntity<>(encryptionKeyService.rotateDataKey(), HttpStatus.CREATED);
+    }
+
+    @Operation(summary = "Re-encrypt all card numbers with the active data key (Admin only)",
+            description = "Runs in the background and resumes from its last checkpoint; poll the status endpoint for progress")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Re-encryption started or already running",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReEncryptionStatusDto.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Requires ADMIN role",
+                    content = @Content)
+    })
+    @PostMapping("/re-encryption")
+    public ResponseEntity<ReEncryptionStatusDto> startReEncryption() {
+        return new ResponseEntity<>(encryptionKeyService.startReEncryption(), HttpStatus.ACCEPTED);
+    }
+
+    @Operation(summary = "Progress of the card number re-encryption (Admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Current progress for the active data key",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReEncryptionStatusDto.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Requires ADMIN role",
+                    content = @Content)
+    })
+    @GetMapping("/re-encryption")
+    public ResponseEntity<ReEncryptionStatusDto> getReEncryptionStatus() {
+        return ResponseEntity.ok(encryptionKeyService.getReEncryptionStatus());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.card.CreateScheduledTransferRequest;
+import com.example.bankcards.dto.card.ScheduledTransferDto;
+import com.example.bankcards.service.ScheduledTransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/transfers/user/{userId}/scheduled")
+@RequiredArgsConstructor
+@Tag(name = "Scheduled transfers", description = "One-off and recurring transfers made by the server at a set time")
+@SecurityRequirement(name = "bearerAuth")
+public class ScheduledTransferController {
+
+    private final ScheduledTransferService scheduledTransferService;
+
+    @Operation(summary = "Schedule a one-off or recurring transfer between cards owned by a specific user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Transfer scheduled"),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., same card, first run in the past)",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "User or Card not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Not the user",
+                    content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<ScheduledTransferDto> createScheduledTransfer(
+            @Parameter(description = "ID of the user making the transfers", required = true)
+            @PathVariable UUID userId,
+            @Valid @RequestBody CreateScheduledTransferRequest request) {
+        ScheduledTransferDto scheduledTransfer = scheduledTransferService.createScheduledTransfer(userId, request);
+        return new ResponseEntity<>(scheduledTransfer, HttpStatus.CREATED);
+    }
+
+    @Operation(summary = "Get the scheduled transfers of a specific user, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Scheduled transfers, with the outcome of their last run"),
+            @ApiResponse(responseCode = "404", description = "User not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Not the user or an admin",
+                    content = @Content)
+    })
+    @GetMapping
+    public ResponseEntity<List<ScheduledTransferDto>> getScheduledTransfers(
+            @Parameter(description = "ID of the user", required = true)
+            @PathVariable UUID userId) {
+        return ResponseEntity.ok(scheduledTransferService.getScheduledTransfers(userId));
+    }
+
+    @Operation(summary = "Cancel the future runs of a scheduled transfer")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Cancelled, or already finished",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Scheduled transfer not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Not the user or an admin",
+                    content = @Content)
+    })
+    @DeleteMapping("/{scheduledTransferId}")
+    public ResponseEntity<Void> cancelScheduledTransfer(
+            @Parameter(description = "ID of the user", required = true)
+            @PathVariable UUID userId,
+            @Parameter(description = "ID of the scheduled transfer", required = true)
+            @PathVariable UUID scheduledTransferId) {
+        scheduledTransferService.cancelScheduledTransfer(userId, scheduledTransferId);
+        return ResponseEntity.noContent().build();
+    }
+}
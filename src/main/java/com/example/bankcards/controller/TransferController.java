@@ -1,5 +1,7 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.card.BatchTransferRequest;
+import com.example.bankcards.dto.card.TransferHistoryDto;
 import com.example.bankcards.dto.card.TransferRequest;
 import com.example.bankcards.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,6 +12,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -34,14 +37,65 @@ public class TransferController {
             @ApiResponse(responseCode = "404", description = "User or Card not found",
                     content = @Content),
             @ApiResponse(responseCode = "403", description = "Forbidden - User does not own one or both cards",
+                    content = @Content),
+            @ApiResponse(responseCode = "422", description = "Idempotency key already used for a different transfer",
                     content = @Content)
     })
     @PostMapping("/user/{userId}")
     public ResponseEntity<Void> transferBetweenUserOwnedCards(
             @Parameter(description = "ID of the user performing the transfer", required = true)
             @PathVariable UUID userId,
+            @Parameter(description = "Client-chosen key; a retry with the same key and body is not transferred again once "
+                    + "the transfer succeeded. Only successes are remembered: a rejected transfer keeps no record of "
+                    + "the key, so a retry runs it again and can succeed, e.g. after the balance was topped up")
+            @RequestHeader(value = "Idempotency-Key", required = false)
+            @Size(min = 1, max = 64, message = "Idempotency key must be 1 to 64 characters long.") String idempotencyKey,
             @Valid @RequestBody TransferRequest request) {
-        transferService.transferBetweenUserOwnedCards(userId, request);
+        transferService.transferBetweenUserOwnedCards(userId, request, idempotencyKey);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Make many transfers between cards owned by a specific user, all or none of them")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Every transfer was made",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid batch (e.g., a card's net balance would go negative, inactive card, same card)",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "User or Card not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - User does not own one of the cards",
+                    content = @Content)
+    })
+    @PostMapping("/user/{userId}/batch")
+    public ResponseEntity<Void> transferBatch(
+            @Parameter(description = "ID of the user performing the transfers", required = true)
+            @PathVariable UUID userId,
+            @Valid @RequestBody BatchTransferRequest request) {
+        transferService.transferBatch(userId, request.getTransfers());
         return ResponseEntity.noContent().build();
     }
+
+    @Operation(summary = "Get the transfer history of a specific user, newest first",
+            description = "Pages by cursor: pass the returned nextCursor to get the next, older page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "A page of transfers"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "User not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Not the user or an admin",
+                    content = @Content)
+    })
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<TransferHistoryDto> getTransferHistory(
+            @Parameter(description = "ID of the user", required = true)
+            @PathVariable UUID userId,
+            @Parameter(description = "Only transfers from or to this card")
+            @RequestParam(value = "cardId", required = false) UUID cardId,
+            @Parameter(description = "Number of items per page", example = "10")
+            @RequestParam(value = "size", required = false) Integer pageSize,
+            @Parameter(description = "nextCursor of the previous page; omit for the newest transfers")
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(transferService.getTransferHistory(userId, cardId, pageSize, cursor));
+    }
 }
\ No newline at end of file
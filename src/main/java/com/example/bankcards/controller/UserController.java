@@ -87,4 +87,16 @@ public class UserController {
         userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
+
+    @Operation(summary = "Revoke a user's tokens", description = "Invalidate every access and refresh token issued to the user so far, forcing a new login.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Tokens revoked successfully."),
+            @ApiResponse(responseCode = "404", description = "User not found."),
+            @ApiResponse(responseCode = "403", description = "Forbidden - only ADMIN can revoke tokens.")
+    })
+    @PostMapping("/{id}/revoke-tokens")
+    public ResponseEntity<Void> revokeTokens(@PathVariable UUID id) {
+        userService.revokeTokens(id);
+        return ResponseEntity.noContent().build();
+    }
 }
\ No newline at end of file
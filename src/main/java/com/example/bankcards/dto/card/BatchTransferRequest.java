@@ -0,0 +1,16 @@
+package com.example.bankcards.dto.card;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class BatchTransferRequest {
+    @NotEmpty(message = "A batch must contain at least one transfer.")
+    @Size(max = 1000, message = "A batch can't contain more than 1000 transfers.")
+    List<@Valid @NotNull(message = "A transfer in the batch can't be null.") TransferRequest> transfers;
+}
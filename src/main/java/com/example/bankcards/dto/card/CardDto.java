@@ -11,6 +11,7 @@ import java.util.UUID;
 public class CardDto {
     UUID id;
     String maskedCardNumber;
+    String cardToken;
     UUID ownerId;
     LocalDate expiryDate;
     CardStatus status;
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto.card;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Value;
+
+@Value
+public class CardNumberLookupRequest {
+    @NotBlank(message = "Card number can't be blank.")
+    @Pattern(regexp = "^\\d{16}$", message = "Card number must be 16 digits.")
+    String cardNumber;
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.entity.TransferFrequency;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotNull;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+public class CreateScheduledTransferRequest {
+    @NotNull(message = "Source card ID can't be null.")
+    UUID fromCardId;
+    @NotNull(message = "Destination card ID can't be null.")
+    UUID toCardId;
+    @NotNull(message = "Transfer amount can't be null.")
+    @DecimalMin(value = "0.01", message = "Transfer amount must be positive.")
+    BigDecimal amount;
+    @NotNull(message = "First run time can't be null.")
+    @Future(message = "First run time must be in the future.")
+    LocalDateTime firstRunAt;
+    @NotNull(message = "Frequency can't be null.")
+    TransferFrequency frequency;
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto.card;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Value;
+
+@Value
+public class DetokenizeRequest {
+    @NotBlank(message = "Card token can't be blank.")
+    @Pattern(regexp = "^\\d{16}$", message = "Card token must be 16 digits.")
+    String cardToken;
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto.card;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+public class DetokenizedCardDto {
+    UUID cardId;
+    String cardToken;
+    String cardNumber;
+}
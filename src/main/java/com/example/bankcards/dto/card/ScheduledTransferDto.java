@@ -0,0 +1,23 @@
+package com.example.bankcards.dto.card;
+
+import com.example.bankcards.entity.ScheduledTransferStatus;
+import com.example.bankcards.entity.TransferFrequency;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+public class ScheduledTransferDto {
+    UUID id;
+    UUID fromCardId;
+    UUID toCardId;
+    BigDecimal amount;
+    TransferFrequency frequency;
+    ScheduledTransferStatus status;
+    LocalDateTime nextRunAt;
+    LocalDateTime lastRunAt;
+    String lastError;
+    LocalDateTime createdAt;
+}
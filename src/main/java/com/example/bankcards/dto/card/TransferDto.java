@@ -0,0 +1,16 @@
+package com.example.bankcards.dto.card;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+public class TransferDto {
+    UUID id;
+    UUID fromCardId;
+    UUID toCardId;
+    BigDecimal amount;
+    LocalDateTime createdAt;
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto.card;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class TransferHistoryDto {
+    List<TransferDto> transfers;
+    // pass back as "cursor" for the next, older page; null on the last page
+    String nextCursor;
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto.security;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+public class DataKeyDto {
+    UUID id;
+    String masterKeyId;
+    LocalDateTime createdAt;
+}
@@ -5,4 +5,5 @@ import lombok.Value;
 @Value
 public class JwtAuthResponse {
     String token;
+    String refreshToken;
 }
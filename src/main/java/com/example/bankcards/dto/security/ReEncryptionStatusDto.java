@@ -0,0 +1,17 @@
+package com.example.bankcards.dto.security;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Value
+public class ReEncryptionStatusDto {
+    UUID keyId;
+    boolean running;
+    boolean completed;
+    long processed;
+    long failed;
+    UUID lastCardId;
+    LocalDateTime updatedAt;
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.dto.security;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Value;
+
+@Value
+public class RefreshTokenRequest {
+    @NotBlank(message = "Refresh token can't be blank.")
+    String refreshToken;
+}
@@ -3,6 +3,7 @@ package com.example.bankcards.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -16,6 +17,8 @@ import java.util.UUID;
 @Entity
 @ToString
 @Table(name = "cards")
+// updates write only the changed columns, so a balance change never rewrites a number re-encrypted meanwhile
+@DynamicUpdate
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor
 public class Card {
@@ -26,9 +29,31 @@ public class Card {
     @JdbcTypeCode(SqlTypes.UUID)
     private UUID id;
 
-    @Column(name = "encrypted_card_number", nullable = false)
+    // Base64 text ciphertext of rows written before binary storage; null once moved to cardNumberCiphertext
+    @Column(name = "encrypted_card_number")
     private String encryptedCardNumber;
 
+    @JdbcTypeCode(SqlTypes.VARBINARY)
+    @Column(name = "card_number_ciphertext", length = 64)
+    private byte[] cardNumberCiphertext;
+
+    // data key of the ciphertext; null on rows encrypted before envelope encryption
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "card_number_key_id")
+    private UUID cardNumberKeyId;
+
+    // kept in clear so listings can mask the number without decrypting it; null until backfilled on old rows
+    @Column(name = "card_number_last_four", length = 4)
+    private String cardNumberLastFour;
+
+    // keyed HMAC of the number, so exact lookups and the uniqueness check hit an index instead of decrypting rows
+    @Column(name = "card_number_blind_index", length = 64, unique = true)
+    private String cardNumberBlindIndex;
+
+    // format-preserving surrogate for consumers that need a stable card reference but never the number itself
+    @Column(name = "card_token", length = 19, unique = true)
+    private String cardToken;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User owner;
@@ -43,12 +68,21 @@ public class Card {
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal balance;
 
+    // checked on every update; transfers in optimistic mode retry when it has moved on
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
-    public Card(String encryptedCardNumber, User owner, LocalDate expiryDate, CardStatus status, BigDecimal balance) {
-        this.encryptedCardNumber = encryptedCardNumber;
+    public Card(byte[] cardNumberCiphertext, UUID cardNumberKeyId, String cardNumberLastFour, String cardNumberBlindIndex, String cardToken, User owner, LocalDate expiryDate, CardStatus status, BigDecimal balance) {
+        this.cardNumberCiphertext = cardNumberCiphertext;
+        this.cardNumberKeyId = cardNumberKeyId;
+        this.cardNumberLastFour = cardNumberLastFour;
+        this.cardNumberBlindIndex = cardNumberBlindIndex;
+        this.cardToken = cardToken;
         this.owner = owner;
         this.expiryDate = expiryDate;
         this.status = status;
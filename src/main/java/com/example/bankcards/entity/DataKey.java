@@ -0,0 +1,45 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A card number encryption key, stored only wrapped by the master key. The newest one encrypts new data.
+ */
+@Getter
+@Setter
+@Entity
+@ToString(exclude = "wrappedKey")
+@NoArgsConstructor
+@Table(name = "data_keys")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class DataKey {
+    // assigned up front, as the wrapped key is bound to its own id
+    @Id
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false)
+    @EqualsAndHashCode.Include
+    private UUID id;
+
+    @Column(name = "wrapped_key", nullable = false)
+    private String wrappedKey;
+
+    @Column(name = "master_key_id", length = 64, nullable = false)
+    private String masterKeyId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public DataKey(UUID id, String wrappedKey, String masterKeyId) {
+        this.id = id;
+        this.wrappedKey = wrappedKey;
+        this.masterKeyId = masterKeyId;
+    }
+}
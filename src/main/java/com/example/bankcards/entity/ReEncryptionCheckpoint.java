@@ -0,0 +1,49 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Progress of moving every card number onto one data key, saved with each chunk so a run can resume.
+ */
+@Getter
+@Setter
+@Entity
+@ToString
+@NoArgsConstructor
+@Table(name = "re_encryption_checkpoints")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class ReEncryptionCheckpoint {
+    @Id
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "key_id", nullable = false)
+    @EqualsAndHashCode.Include
+    private UUID keyId;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "last_card_id", nullable = false)
+    private UUID lastCardId;
+
+    @Column(name = "processed", nullable = false)
+    private long processed;
+
+    @Column(name = "failed", nullable = false)
+    private long failed;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public ReEncryptionCheckpoint(UUID keyId, UUID lastCardId) {
+        this.keyId = keyId;
+        this.lastCardId = lastCardId;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
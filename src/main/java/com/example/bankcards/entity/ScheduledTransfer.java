@@ -0,0 +1,86 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A transfer to be made at {@code nextRunAt}, once or repeatedly. Recurring runs are counted from
+ * {@code firstRunAt}. While an instance runs it, the row is claimed until {@code claimedUntil}, so other instances
+ * leave it alone.
+ */
+@Getter
+@Setter
+@Entity
+@ToString
+@NoArgsConstructor
+@Table(name = "scheduled_transfers")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class ScheduledTransfer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false)
+    @EqualsAndHashCode.Include
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private UUID userId;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "from_card_id", nullable = false, updatable = false)
+    private UUID fromCardId;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "to_card_id", nullable = false, updatable = false)
+    private UUID toCardId;
+
+    @Column(nullable = false, updatable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 16)
+    private TransferFrequency frequency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ScheduledTransferStatus status;
+
+    @Column(name = "first_run_at", nullable = false, updatable = false)
+    private LocalDateTime firstRunAt;
+
+    @Column(name = "next_run_at", nullable = false)
+    private LocalDateTime nextRunAt;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public ScheduledTransfer(UUID userId, UUID fromCardId, UUID toCardId, BigDecimal amount,
+                             TransferFrequency frequency, LocalDateTime firstRunAt) {
+        this.userId = userId;
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.status = ScheduledTransferStatus.ACTIVE;
+        this.firstRunAt = firstRunAt;
+        this.nextRunAt = firstRunAt;
+    }
+}
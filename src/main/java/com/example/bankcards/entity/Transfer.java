@@ -0,0 +1,58 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ledger row of one completed transfer, written in the transaction that moved the money and never changed after.
+ * Cards and users are referenced by id only, so the history outlives a deleted card.
+ */
+@Getter
+@Entity
+@Immutable
+@ToString
+@NoArgsConstructor
+@Table(name = "transfers")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class Transfer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    @EqualsAndHashCode.Include
+    @JdbcTypeCode(SqlTypes.UUID)
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private UUID userId;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "from_card_id", nullable = false, updatable = false)
+    private UUID fromCardId;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "to_card_id", nullable = false, updatable = false)
+    private UUID toCardId;
+
+    @Column(nullable = false, updatable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public Transfer(UUID userId, UUID fromCardId, UUID toCardId, BigDecimal amount) {
+        this.userId = userId;
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.amount = amount;
+    }
+}
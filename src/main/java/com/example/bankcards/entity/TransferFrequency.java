@@ -0,0 +1,35 @@
+package com.example.bankcards.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum TransferFrequency {
+    ONCE(null),
+    DAILY(ChronoUnit.DAYS),
+    WEEKLY(ChronoUnit.WEEKS),
+    MONTHLY(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    TransferFrequency(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Runs are counted from the first one rather than from the previous run, so a monthly schedule started on
+     * the 31st runs on the last day of shorter months and is back on the 31st after them.
+     *
+     * @return the first run after the given time, or null for a one-off transfer
+     */
+    public LocalDateTime nextRun(LocalDateTime firstRun, LocalDateTime after) {
+        if (unit == null) {
+            return null;
+        }
+        long runs = Math.max(0, unit.between(firstRun, after));
+        LocalDateTime next = firstRun.plus(runs, unit);
+        while (!next.isAfter(after)) {
+            next = firstRun.plus(++runs, unit);
+        }
+        return next;
+    }
+}
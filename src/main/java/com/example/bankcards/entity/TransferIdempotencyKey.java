@@ -0,0 +1,51 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Idempotency key of a completed transfer, inserted in the transaction that made the transfer, so it exists
+ * exactly when the money moved.
+ */
+@Getter
+@Setter
+@Entity
+@ToString
+@NoArgsConstructor
+@Table(name = "transfer_idempotency_keys")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class TransferIdempotencyKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false)
+    @EqualsAndHashCode.Include
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "idempotency_key", length = 64, nullable = false)
+    private String idempotencyKey;
+
+    // hash of the request the key was first used with, so the key can't be reused for a different transfer
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public TransferIdempotencyKey(UUID userId, String idempotencyKey, String requestHash) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cutoff before which every token of a user is rejected. Rows are only ever inserted, so instances revoking the same
+ * user at once never conflict; the latest row of a user wins.
+ */
+@Getter
+@Setter
+@Entity
+@ToString
+@NoArgsConstructor
+@Table(name = "user_token_revocations")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class UserTokenRevocation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "id", nullable = false)
+    @EqualsAndHashCode.Include
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "revoked_before", nullable = false)
+    private LocalDateTime revokedBefore;
+
+    public UserTokenRevocation(UUID userId, LocalDateTime revokedBefore) {
+        this.userId = userId;
+        this.revokedBefore = revokedBefore;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.exception.card;
+
+import com.example.bankcards.exception.ResourceAlreadyExistsException;
+
+public class CardAlreadyExistsException extends ResourceAlreadyExistsException {
+    public CardAlreadyExistsException() {
+        // the number itself is never echoed back
+        super("A card with this number already exists.");
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.exception.card;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConcurrentCardUpdateException extends RuntimeException {
+    public ConcurrentCardUpdateException() {
+        super("The card was updated concurrently, please retry.");
+    }
+}
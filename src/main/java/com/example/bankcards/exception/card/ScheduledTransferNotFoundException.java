@@ -0,0 +1,11 @@
+package com.example.bankcards.exception.card;
+
+import com.example.bankcards.exception.ResourceNotFoundException;
+
+import java.util.UUID;
+
+public class ScheduledTransferNotFoundException extends ResourceNotFoundException {
+    public ScheduledTransferNotFoundException(UUID id) {
+        super(String.format("Scheduled transfer not found with ID: %s.", id));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.initializer;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardMaskingUtil;
+import com.example.bankcards.util.CardTokenizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fills {@code card_number_last_four}, {@code card_number_blind_index} and {@code card_token} for cards created before
+ * those columns existed. The number is only stored encrypted, so this can't be done in SQL; it runs once the
+ * application is up, in batches keyed by id, and is a no-op when every row is complete. Until a row is filled the
+ * mapper decrypts it as before, and it can't be found by number or token.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardDerivedColumnsBackfill {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final CardRepository cardRepository;
+    private final CardEncryptionUtil cardEncryptionUtil;
+    private final CardTokenizer cardTokenizer;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        UUID afterId = new UUID(0L, 0L);
+        int filled = 0;
+        while (true) {
+            UUID from = afterId;
+            List<Card> batch = transactionTemplate.execute(status -> fillBatch(from));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            filled += batch.size();
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+        if (filled > 0) {
+            log.info("Backfilled the derived card number columns of {} cards.", filled);
+        }
+    }
+
+    private List<Card> fillBatch(UUID afterId) {
+        List<Card> batch = cardRepository.findBatchWithoutDerivedColumns(afterId, PageRequest.of(0, BATCH_SIZE));
+        for (Card card : batch) {
+            try {
+                String cardNumber = cardEncryptionUtil.decrypt(card);
+                String blindIndex = cardEncryptionUtil.blindIndex(cardNumber);
+                if (card.getCardNumberBlindIndex() == null && cardRepository.existsByCardNumberBlindIndex(blindIndex)) {
+                    // a legacy duplicate: the unique index would abort the whole batch, so leave this one unindexed
+                    log.warn("Card {} duplicates the number of another card and is left without a blind index.", card.getId());
+                    blindIndex = null;
+                }
+                String cardToken = card.getCardToken() == null ? cardTokenizer.issueToken(cardNumber) : null;
+                // a targeted update, so a concurrent balance or status change on the same row is never overwritten
+                cardRepository.setDerivedColumnsIfMissing(card.getId(), CardMaskingUtil.lastFour(cardNumber), blindIndex,
+                        cardToken);
+            } catch (RuntimeException e) {
+                log.warn("Could not backfill the derived number columns of card {}: {}", card.getId(), e.getMessage());
+            }
+        }
+        return batch;
+    }
+}
@@ -6,6 +6,8 @@ import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardTokenizer;
+import com.example.bankcards.util.EncryptedCardNumber;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
@@ -25,6 +27,7 @@ public class H2DataInitializer {
     private final CardRepository cardRepository;
     private final RoleRepository roleRepository;
     private final CardEncryptionUtil cardEncryptionUtil;
+    private final CardTokenizer cardTokenizer;
     private final PasswordEncoder passwordEncoder;
 
     @PostConstruct
@@ -44,42 +47,62 @@ public class H2DataInitializer {
         userRepository.saveAll(List.of(user1, user2, user3, admin));
         userRepository.flush();
 
-        String encrypted1 = cardEncryptionUtil.encrypt("2380328656218459");
-        String encrypted2 = cardEncryptionUtil.encrypt("7205674277714399");
-        String encrypted3 = cardEncryptionUtil.encrypt("8706647592287922");
-        String encrypted4 = cardEncryptionUtil.encrypt("0613192986491444");
-        String encrypted5 = cardEncryptionUtil.encrypt("7163082819181661");
+        EncryptedCardNumber encrypted1 = cardEncryptionUtil.encrypt("2380328656218459");
+        EncryptedCardNumber encrypted2 = cardEncryptionUtil.encrypt("7205674277714399");
+        EncryptedCardNumber encrypted3 = cardEncryptionUtil.encrypt("8706647592287922");
+        EncryptedCardNumber encrypted4 = cardEncryptionUtil.encrypt("0613192986491444");
+        EncryptedCardNumber encrypted5 = cardEncryptionUtil.encrypt("7163082819181661");
 
         Card card1 = new Card(
-                encrypted1,
+                encrypted1.getCiphertext(),
+                encrypted1.getKeyId(),
+                "8459",
+                cardEncryptionUtil.blindIndex("2380328656218459"),
+                cardTokenizer.issueToken("2380328656218459"),
                 user1,
                 LocalDate.of(2028, 6, 10),
                 CardStatus.ACTIVE,
                 new BigDecimal("22.10")
         );
         Card card2 = new Card(
-                encrypted2,
+                encrypted2.getCiphertext(),
+                encrypted2.getKeyId(),
+                "4399",
+                cardEncryptionUtil.blindIndex("7205674277714399"),
+                cardTokenizer.issueToken("7205674277714399"),
                 user2,
                 LocalDate.of(2028, 6, 10),
                 CardStatus.ACTIVE,
                 new BigDecimal("22.10")
         );
         Card card3 = new Card(
-                encrypted3,
+                encrypted3.getCiphertext(),
+                encrypted3.getKeyId(),
+                "7922",
+                cardEncryptionUtil.blindIndex("8706647592287922"),
+                cardTokenizer.issueToken("8706647592287922"),
                 user3,
                 LocalDate.of(2024, 6, 10),
                 CardStatus.EXPIRED,
                 new BigDecimal("22.10")
         );
         Card card4 = new Card(
-                encrypted4,
+                encrypted4.getCiphertext(),
+                encrypted4.getKeyId(),
+                "1444",
+                cardEncryptionUtil.blindIndex("0613192986491444"),
+                cardTokenizer.issueToken("0613192986491444"),
                 user3,
                 LocalDate.of(2028, 6, 10),
                 CardStatus.BLOCKED,
                 new BigDecimal("22.10")
         );
         Card card5 = new Card(
-                encrypted5,
+                encrypted5.getCiphertext(),
+                encrypted5.getKeyId(),
+                "1661",
+                cardEncryptionUtil.blindIndex("7163082819181661"),
+                cardTokenizer.issueToken("7163082819181661"),
                 user3,
                 LocalDate.of(2028, 6, 10),
                 CardStatus.ACTIVE,
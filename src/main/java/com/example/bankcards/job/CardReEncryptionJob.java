@@ -0,0 +1,260 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.security.ReEncryptionStatusDto;
+import com.example.bankcards.entity.ReEncryptionCheckpoint;
+import com.example.bankcards.repository.ReEncryptionCheckpointRepository;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.DataKeyManager;
+import com.example.bankcards.util.EncryptedCardNumber;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves every card number onto the active data key after a rotation, and older rows onto binary envelope encryption.
+ * Each run first re-wraps data keys still wrapped by a previous master key. Once a pass has completed, nothing needs
+ * the previous secret, salt or master key any more, so they can be removed from the configuration.
+ * <p>
+ * Rows are read in id-ordered chunks over plain JDBC, decrypted and re-encrypted in parallel on a dedicated
+ * {@link ForkJoinPool}, and written back with one JDBC batch per chunk. The chunk's writes and the
+ * {@link ReEncryptionCheckpoint} advance in the same transaction, so a restarted run resumes exactly after the
+ * last written chunk. Every row is written with a compare-and-set on its old ciphertext, so concurrent writers and
+ * other instances running the same job never lose an update.
+ * <p>
+ * A bounded run is scheduled periodically; admins can start a full run in the background. A pass only completes once
+ * no row is left off the active key. Rows that failed, or that another instance wrote with the old key behind the
+ * cursor before it picked up the rotation, send the next run back to the start, and even a completed pass is started
+ * again when such rows turn up later. The failed count covers the current pass, or the last one until the next starts.
+ */
+@Slf4j
+@Component
+public class CardReEncryptionJob {
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private static final String SELECT_CHUNK = "SELECT id, card_number_key_id, card_number_ciphertext, encrypted_card_number "
+            + "FROM cards WHERE (card_number_ciphertext IS NULL OR card_number_key_id <> ?) AND id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_REMAINING = "SELECT id FROM cards "
+            + "WHERE card_number_ciphertext IS NULL OR card_number_key_id <> ? LIMIT 1";
+    private static final String REPLACE_CIPHERTEXT = "UPDATE cards SET card_number_ciphertext = ?, card_number_key_id = ? "
+            + "WHERE id = ? AND card_number_ciphertext = ?";
+    private static final String MOVE_TEXT_TO_BINARY = "UPDATE cards SET card_number_ciphertext = ?, card_number_key_id = ?, "
+            + "encrypted_card_number = NULL WHERE id = ? AND encrypted_card_number = ? AND card_number_ciphertext IS NULL";
+
+    private static final RowMapper<EncryptedRow> ROW_MAPPER = (rs, rowNum) -> new EncryptedRow(
+            rs.getObject("id", UUID.class),
+            rs.getObject("card_number_key_id", UUID.class),
+            rs.getBytes("card_number_ciphertext"),
+            rs.getString("encrypted_card_number"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReEncryptionCheckpointRepository checkpointRepository;
+    private final CardEncryptionUtil cardEncryptionUtil;
+    private final DataKeyManager dataKeyManager;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+    private final ForkJoinPool cryptoPool;
+    // one background run per instance; the compare-and-set writes make overlapping instances safe
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "card-re-encryption");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CardReEncryptionJob(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ReEncryptionCheckpointRepository checkpointRepository,
+                               CardEncryptionUtil cardEncryptionUtil,
+                               DataKeyManager dataKeyManager,
+                               @Value("${app.encryption.re-encryption.batch-size:1000}") int chunkSize,
+                               @Value("${app.encryption.re-encryption.max-batches-per-run:20}") int maxChunksPerRun,
+                               @Value("${app.encryption.re-encryption.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.checkpointRepository = checkpointRepository;
+        this.cardEncryptionUtil = cardEncryptionUtil;
+        this.dataKeyManager = dataKeyManager;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+        // platform threads sized to the cores: the work is CPU-bound and the cipher buffers are per thread
+        this.cryptoPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Scheduled(fixedDelayString = "${app.encryption.re-encryption.interval-ms:60000}")
+    public void runScheduled() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dataKeyManager.rewrapDataKeys();
+            ReEncryptionCheckpoint checkpoint = loadCheckpoint();
+            if (checkpoint.isCompleted()) {
+                if (!hasRemainingRows(checkpoint.getKeyId())) {
+                    return;
+                }
+                rewind(checkpoint);
+            }
+            run(checkpoint, maxChunksPerRun);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Starts a full pass in the background, resuming from the checkpoint, or from the start if the last pass
+     * for the active key has completed. Does nothing while a run is already in progress on this instance.
+     */
+    public ReEncryptionStatusDto start() {
+        if (running.compareAndSet(false, true)) {
+            runner.execute(() -> {
+                try {
+                    dataKeyManager.rewrapDataKeys();
+                    ReEncryptionCheckpoint checkpoint = loadCheckpoint();
+                    if (checkpoint.isCompleted()) {
+                        rewind(checkpoint);
+                    }
+                    run(checkpoint, Integer.MAX_VALUE);
+                } catch (RuntimeException e) {
+                    log.error("Card number re-encryption stopped, it resumes from the last checkpoint: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+        return status();
+    }
+
+    public ReEncryptionStatusDto status() {
+        UUID keyId = dataKeyManager.activeKey().id();
+        ReEncryptionCheckpoint checkpoint = checkpointRepository.findById(keyId)
+                .orElseGet(() -> new ReEncryptionCheckpoint(keyId, FIRST_ID));
+        // rows written with an older key since the pass completed are picked up by the next scheduled run
+        boolean completed = checkpoint.isCompleted() && !hasRemainingRows(keyId)
+                && dataKeyManager.countDataKeysToRewrap() == 0;
+        return new ReEncryptionStatusDto(keyId, running.get(), completed, checkpoint.getProcessed(),
+                checkpoint.getFailed(), checkpoint.getLastCardId(), checkpoint.getUpdatedAt());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        cryptoPool.shutdownNow();
+    }
+
+    private ReEncryptionCheckpoint loadCheckpoint() {
+        dataKeyManager.refreshActiveKey();
+        UUID keyId = dataKeyManager.activeKey().id();
+        return checkpointRepository.findById(keyId).orElseGet(() -> new ReEncryptionCheckpoint(keyId, FIRST_ID));
+    }
+
+    private void run(ReEncryptionCheckpoint checkpoint, int maxChunks) {
+        if (FIRST_ID.equals(checkpoint.getLastCardId())) {
+            // failures are reported per pass, rows that keep failing are visited by every pass
+            checkpoint.setFailed(0);
+        }
+        long processedBefore = checkpoint.getProcessed();
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<EncryptedRow> rows = jdbcTemplate.query(SELECT_CHUNK, ROW_MAPPER,
+                    checkpoint.getKeyId(), checkpoint.getLastCardId(), chunkSize);
+            if (rows.isEmpty()) {
+                finishPass(checkpoint);
+                break;
+            }
+            // a parallel stream runs on the pool that invokes it, which keeps this work off the common pool
+            List<ReEncryptedRow> results = cryptoPool.submit(() -> rows.parallelStream().map(this::reEncrypt).toList()).join();
+            checkpoint.setLastCardId(rows.get(rows.size() - 1).id());
+            transactionTemplate.executeWithoutResult(status -> write(results, checkpoint));
+        }
+        if (checkpoint.getProcessed() > processedBefore) {
+            log.info("Re-encrypted {} card numbers with data key {}.", checkpoint.getProcessed() - processedBefore,
+                    checkpoint.getKeyId());
+        }
+    }
+
+    private void finishPass(ReEncryptionCheckpoint checkpoint) {
+        if (hasRemainingRows(checkpoint.getKeyId())) {
+            // left for the next run rather than rescanned now, so rows that keep failing can't spin this one
+            log.info("Some card numbers are still not encrypted with data key {} ({} failed in this pass), "
+                    + "the next run starts over.", checkpoint.getKeyId(), checkpoint.getFailed());
+            rewind(checkpoint);
+        } else {
+            checkpoint.setCompleted(true);
+            log.info("Every card number is encrypted with data key {}.", checkpoint.getKeyId());
+        }
+        save(checkpoint);
+    }
+
+    private boolean hasRemainingRows(UUID keyId) {
+        return !jdbcTemplate.queryForList(SELECT_REMAINING, UUID.class, keyId).isEmpty();
+    }
+
+    private static void rewind(ReEncryptionCheckpoint checkpoint) {
+        checkpoint.setLastCardId(FIRST_ID);
+        checkpoint.setCompleted(false);
+    }
+
+    private ReEncryptedRow reEncrypt(EncryptedRow row) {
+        try {
+            String cardNumber = row.ciphertext() != null
+                    ? cardEncryptionUtil.decrypt(row.keyId(), row.ciphertext())
+                    : cardEncryptionUtil.decryptText(row.keyId(), row.text());
+            return new ReEncryptedRow(row, cardEncryptionUtil.encrypt(cardNumber));
+        } catch (RuntimeException e) {
+            log.warn("Could not re-encrypt the number of card {}: {}", row.id(), e.getMessage());
+            return new ReEncryptedRow(row, null);
+        }
+    }
+
+    private void write(List<ReEncryptedRow> results, ReEncryptionCheckpoint checkpoint) {
+        List<Object[]> replacements = new ArrayList<>();
+        List<Object[]> moves = new ArrayList<>();
+        for (ReEncryptedRow result : results) {
+            if (result.target() == null) {
+                checkpoint.setFailed(checkpoint.getFailed() + 1);
+                continue;
+            }
+            EncryptedRow source = result.source();
+            EncryptedCardNumber target = result.target();
+            if (source.ciphertext() != null) {
+                replacements.add(new Object[]{target.getCiphertext(), target.getKeyId(), source.id(), source.ciphertext()});
+            } else {
+                moves.add(new Object[]{target.getCiphertext(), target.getKeyId(), source.id(), source.text()});
+            }
+        }
+        if (!replacements.isEmpty()) {
+            jdbcTemplate.batchUpdate(REPLACE_CIPHERTEXT, replacements);
+        }
+        if (!moves.isEmpty()) {
+            jdbcTemplate.batchUpdate(MOVE_TEXT_TO_BINARY, moves);
+        }
+        checkpoint.setProcessed(checkpoint.getProcessed() + replacements.size() + moves.size());
+        save(checkpoint);
+    }
+
+    private void save(ReEncryptionCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    private record EncryptedRow(UUID id, UUID keyId, byte[] ciphertext, String text) {
+    }
+
+    private record ReEncryptedRow(EncryptedRow source, EncryptedCardNumber target) {
+    }
+}
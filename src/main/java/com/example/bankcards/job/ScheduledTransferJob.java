@@ -0,0 +1,234 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.entity.RoleConsts;
+import com.example.bankcards.entity.ScheduledTransferStatus;
+import com.example.bankcards.entity.TransferFrequency;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.exception.card.CardNotOwnedByUserException;
+import com.example.bankcards.exception.card.IdempotencyKeyReusedException;
+import com.example.bankcards.exception.card.InvalidCardOperationException;
+import com.example.bankcards.security.UuidUserDetails;
+import com.example.bankcards.service.TransferService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes scheduled and recurring transfers once they are due, on every instance at once without running a transfer
+ * twice.
+ * <p>
+ * A poll claims a batch of due rows with {@code FOR UPDATE SKIP LOCKED}, so concurrent polls on other instances
+ * skip the rows being claimed instead of waiting for them, and marks them claimed for {@code claim-duration} in the
+ * same short transaction. The claimed transfers then run in parallel on a bounded pool through the configured
+ * {@link TransferService}, each as the schedule's owner, and each run is finished with a compare-and-set on the run
+ * it claimed. A run's transfer carries an idempotency key derived from the schedule and the run time, so an
+ * instance that dies between the transfer and the finish, or whose claim runs out, can't make the transfer twice:
+ * the next claim of the same run is answered as a replay.
+ * <p>
+ * A run rejected by the transfer, e.g. for an insufficient balance, is skipped: a one-off schedule fails, a recurring
+ * one moves on to its next run. Any other failure leaves the claim to run out, so the same run is tried again after
+ * {@code claim-duration}. Runs missed while no instance polled are made once, not one by one.
+ * Outcomes are counted as {@code transfers.scheduled.runs}, tagged {@code made}, {@code rejected} or {@code retried}.
+ */
+@Slf4j
+@Component
+public class ScheduledTransferJob {
+
+    private static final String CLAIM_DUE = "SELECT id, user_id, from_card_id, to_card_id, amount, frequency, first_run_at, "
+            + "next_run_at FROM scheduled_transfers WHERE status = 'ACTIVE' AND next_run_at <= ? "
+            + "AND (claimed_until IS NULL OR claimed_until < ?) ORDER BY next_run_at LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String SET_CLAIM = "UPDATE scheduled_transfers SET claimed_until = ? WHERE id = ?";
+    // matches only the run this instance claimed, so a run finished by another instance isn't finished again
+    private static final String FINISH_RUN = "UPDATE scheduled_transfers SET next_run_at = ?, status = ?, "
+            + "claimed_until = NULL, last_run_at = ?, last_error = ? WHERE id = ? AND next_run_at = ? AND status = 'ACTIVE'";
+    private static final String RECORD_RETRY = "UPDATE scheduled_transfers SET last_error = ? "
+            + "WHERE id = ? AND next_run_at = ? AND status = 'ACTIVE'";
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final RowMapper<DueTransfer> ROW_MAPPER = (rs, rowNum) -> new DueTransfer(
+            rs.getObject("id", UUID.class),
+            rs.getObject("user_id", UUID.class),
+            new TransferRequest(rs.getObject("from_card_id", UUID.class), rs.getObject("to_card_id", UUID.class),
+                    rs.getBigDecimal("amount")),
+            TransferFrequency.valueOf(rs.getString("frequency")),
+            rs.getObject("first_run_at", LocalDateTime.class),
+            rs.getObject("next_run_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferService transferService;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration claimDuration;
+    private final ExecutorService workers;
+    private final Counter made;
+    private final Counter rejected;
+    private final Counter retried;
+
+    public ScheduledTransferJob(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                TransferService transferService,
+                                @Value("${app.transfers.scheduled.batch-size:100}") int batchSize,
+                                @Value("${app.transfers.scheduled.max-batches-per-run:10}") int maxBatchesPerRun,
+                                @Value("${app.transfers.scheduled.claim-duration:PT5M}") Duration claimDuration,
+                                @Value("${app.transfers.scheduled.parallelism:4}") int parallelism,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.transferService = transferService;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.claimDuration = claimDuration;
+        AtomicInteger threads = new AtomicInteger();
+        // each worker holds a pooled connection while its transfer runs, so the pool bounds the parallelism
+        this.workers = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-transfers-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.made = runs(meterRegistry, "made");
+        this.rejected = runs(meterRegistry, "rejected");
+        this.retried = runs(meterRegistry, "retried");
+    }
+
+    @Scheduled(fixedDelayString = "${app.transfers.scheduled.poll-interval-ms:1000}")
+    public void runDue() {
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<DueTransfer> due = claimDue();
+            if (due.isEmpty()) {
+                return;
+            }
+            runAll(due);
+            if (due.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private List<DueTransfer> claimDue() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> {
+            List<DueTransfer> due = jdbcTemplate.query(CLAIM_DUE, ROW_MAPPER, now, now, batchSize);
+            if (!due.isEmpty()) {
+                LocalDateTime claimedUntil = now.plus(claimDuration);
+                jdbcTemplate.batchUpdate(SET_CLAIM, due.stream()
+                        .map(transfer -> new Object[]{claimedUntil, transfer.id()})
+                        .toList());
+            }
+            return due;
+        });
+    }
+
+    private void runAll(List<DueTransfer> due) {
+        List<Future<?>> runs = new ArrayList<>(due.size());
+        for (DueTransfer transfer : due) {
+            runs.add(workers.submit(() -> run(transfer)));
+        }
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // the claim runs out and the run is tried again
+                log.warn("Could not finish a scheduled transfer run: {}", e.getCause().getMessage());
+            }
+        }
+    }
+
+    private void run(DueTransfer due) {
+        RuntimeException failure = null;
+        SecurityContextHolder.getContext().setAuthentication(ownerAuthentication(due.userId()));
+        try {
+            transferService.transferBetweenUserOwnedCards(due.userId(), due.request(), due.idempotencyKey());
+        } catch (InvalidCardOperationException | CardNotOwnedByUserException | ResourceNotFoundException
+                 | IdempotencyKeyReusedException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            retried.increment();
+            log.warn("Scheduled transfer {} failed and is retried once its claim runs out: {}", due.id(), e.getMessage());
+            jdbcTemplate.update(RECORD_RETRY, truncate(e.getMessage()), due.id(), due.runAt());
+            return;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        finish(due, failure);
+    }
+
+    private void finish(DueTransfer due, RuntimeException failure) {
+        LocalDateTime now = LocalDateTime.now();
+        // runs missed while no instance polled are skipped, not made one by one
+        LocalDateTime after = due.runAt().isAfter(now) ? due.runAt() : now;
+        LocalDateTime nextRunAt = due.frequency().nextRun(due.firstRunAt(), after);
+        ScheduledTransferStatus status;
+        if (nextRunAt != null) {
+            status = ScheduledTransferStatus.ACTIVE;
+        } else {
+            status = failure == null ? ScheduledTransferStatus.COMPLETED : ScheduledTransferStatus.FAILED;
+            // a finished one-off schedule keeps the time it ran for
+            nextRunAt = due.runAt();
+        }
+        (failure == null ? made : rejected).increment();
+        jdbcTemplate.update(FINISH_RUN, nextRunAt, status.name(), now,
+                failure == null ? null : truncate(failure.getMessage()), due.id(), due.runAt());
+    }
+
+    private static UsernamePasswordAuthenticationToken ownerAuthentication(UUID userId) {
+        // the transfer runs as the owner, so it passes the same ownership checks as a request of theirs
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(RoleConsts.USER));
+        UuidUserDetails owner = new UuidUserDetails(userId, "scheduled-transfer", "", authorities);
+        return UsernamePasswordAuthenticationToken.authenticated(owner, null, authorities);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static Counter runs(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("transfers.scheduled.runs")
+                .description("Runs of scheduled transfers, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record DueTransfer(UUID id, UUID userId, TransferRequest request, TransferFrequency frequency,
+                               LocalDateTime firstRunAt, LocalDateTime runAt) {
+
+        // fits the 64 characters of a key: the schedule and the run it makes
+        String idempotencyKey() {
+            return "scheduled:" + id + ":" + runAt.toEpochSecond(ZoneOffset.UTC);
+        }
+    }
+}
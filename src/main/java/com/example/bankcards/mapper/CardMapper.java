@@ -14,9 +14,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.UUID;
 
-@Mapper(componentModel = "spring", uses = {
-        CardEncryptionUtil.class
-})
+// CardEncryptionUtil is deliberately not in "uses": MapStruct would apply its String methods to every String property
+@Mapper(componentModel = "spring")
 public abstract class CardMapper {
 
     @PersistenceContext
@@ -25,13 +24,19 @@ public abstract class CardMapper {
     @Autowired
     protected CardEncryptionUtil cardEncryptionUtil;
 
-    @Mapping(target = "maskedCardNumber", source = "encryptedCardNumber", qualifiedByName = "maskCardNumber")
+    @Mapping(target = "maskedCardNumber", source = "card", qualifiedByName = "maskCardNumber")
     @Mapping(target = "ownerId", source = "owner", qualifiedByName = "getOwnerId")
     public abstract CardDto toDto(Card card);
 
+    /**
+     * Masks from the stored last four digits; only rows not yet backfilled pay for a decryption.
+     */
     @Named("maskCardNumber")
-    protected String maskCardNumber(String encryptedCardNumber) {
-        String decryptedCardNumber = cardEncryptionUtil.decrypt(encryptedCardNumber);
+    protected String maskCardNumber(Card card) {
+        if (card.getCardNumberLastFour() != null) {
+            return CardMaskingUtil.maskLastFour(card.getCardNumberLastFour());
+        }
+        String decryptedCardNumber = cardEncryptionUtil.decrypt(card);
         return CardMaskingUtil.maskCardNumber(decryptedCardNumber);
     }
 
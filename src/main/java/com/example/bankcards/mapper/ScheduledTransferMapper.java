@@ -0,0 +1,10 @@
+package com.example.bankcards.mapper;
+
+import com.example.bankcards.dto.card.ScheduledTransferDto;
+import com.example.bankcards.entity.ScheduledTransfer;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface ScheduledTransferMapper {
+    ScheduledTransferDto toDto(ScheduledTransfer scheduledTransfer);
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.mapper;
+
+import com.example.bankcards.dto.card.TransferDto;
+import com.example.bankcards.entity.Transfer;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface TransferMapper {
+    TransferDto toDto(Transfer transfer);
+}
@@ -1,14 +1,19 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificationExecutor<Card> {
@@ -16,4 +21,60 @@ public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificat
 
     @Query("SELECT SUM(c.balance) FROM Card c WHERE c.owner.id = :userId")
     BigDecimal sumBalanceByOwnerId(@Param("userId") UUID userId);
+
+    /**
+     * Reads the card with {@code SELECT ... FOR UPDATE}, holding the row lock until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") UUID id);
+
+    /**
+     * Reads the cards with {@code SELECT ... ORDER BY id FOR UPDATE}, so the row locks are taken in id order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids ORDER BY c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Debits the card only if it belongs to the owner, is active and covers the amount.
+     *
+     * @return 1 if the card was debited, 0 if any condition failed
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.balance = c.balance - :amount, c.version = c.version + 1 "
+            + "WHERE c.id = :id AND c.owner.id = :ownerId AND c.status = com.example.bankcards.entity.CardStatus.ACTIVE "
+            + "AND c.balance >= :amount")
+    int debitIfActiveAndCovered(@Param("id") UUID id, @Param("ownerId") UUID ownerId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Credits the card only if it belongs to the owner and is active.
+     *
+     * @return 1 if the card was credited, 0 if any condition failed
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.balance = c.balance + :amount, c.version = c.version + 1 "
+            + "WHERE c.id = :id AND c.owner.id = :ownerId AND c.status = com.example.bankcards.entity.CardStatus.ACTIVE")
+    int creditIfActive(@Param("id") UUID id, @Param("ownerId") UUID ownerId, @Param("amount") BigDecimal amount);
+
+    Optional<Card> findByCardNumberBlindIndex(String cardNumberBlindIndex);
+
+    boolean existsByCardNumberBlindIndex(String cardNumberBlindIndex);
+
+    boolean existsByCardToken(String cardToken);
+
+    @Query("SELECT c.id FROM Card c WHERE c.cardToken = :cardToken")
+    Optional<UUID> findIdByCardToken(@Param("cardToken") String cardToken);
+
+    @Query("SELECT c FROM Card c WHERE (c.cardNumberLastFour IS NULL OR c.cardNumberBlindIndex IS NULL "
+            + "OR c.cardToken IS NULL) "
+            + "AND c.id > :afterId ORDER BY c.id")
+    List<Card> findBatchWithoutDerivedColumns(@Param("afterId") UUID afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Card c SET c.cardNumberLastFour = COALESCE(c.cardNumberLastFour, :lastFour), "
+            + "c.cardNumberBlindIndex = COALESCE(c.cardNumberBlindIndex, :blindIndex), "
+            + "c.cardToken = COALESCE(c.cardToken, :cardToken) WHERE c.id = :id")
+    int setDerivedColumnsIfMissing(@Param("id") UUID id, @Param("lastFour") String lastFour,
+                                   @Param("blindIndex") String blindIndex, @Param("cardToken") String cardToken);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.DataKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface DataKeyRepository extends JpaRepository<DataKey, UUID> {
+    Optional<DataKey> findFirstByOrderByCreatedAtDesc();
+
+    List<DataKey> findAllByMasterKeyIdNot(String masterKeyId);
+
+    long countByMasterKeyIdNot(String masterKeyId);
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.ReEncryptionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface ReEncryptionCheckpointRepository extends JpaRepository<ReEncryptionCheckpoint, UUID> {
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.ScheduledTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ScheduledTransferRepository extends JpaRepository<ScheduledTransfer, UUID> {
+    List<ScheduledTransfer> findAllByUserIdOrderByCreatedAtDesc(UUID userId);
+
+    Optional<ScheduledTransfer> findByIdAndUserId(UUID id, UUID userId);
+
+    /**
+     * A bulk update, so a run finishing concurrently can't be overwritten with stale columns.
+     */
+    @Modifying
+    @Query("UPDATE ScheduledTransfer s SET s.status = com.example.bankcards.entity.ScheduledTransferStatus.CANCELLED "
+            + "WHERE s.id = :id AND s.userId = :userId AND s.status = com.example.bankcards.entity.ScheduledTransferStatus.ACTIVE")
+    int cancelIfActive(@Param("id") UUID id, @Param("userId") UUID userId);
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TransferIdempotencyKeyRepository extends JpaRepository<TransferIdempotencyKey, UUID> {
+    Optional<TransferIdempotencyKey> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    List<TransferIdempotencyKey> findAllByUserIdInAndIdempotencyKeyIn(Collection<UUID> userIds,
+                                                                       Collection<String> idempotencyKeys);
+
+    @Modifying
+    @Query("DELETE FROM TransferIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteAllCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,40 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transfer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * History queries page by keyset on {@code (created_at, id)}, newest first, so every page is an index range scan
+ * that starts right after the last row of the previous one. Pass {@code PageRequest.of(0, size)} as the limit.
+ */
+public interface TransferRepository extends JpaRepository<Transfer, UUID> {
+
+    @Query("SELECT t FROM Transfer t WHERE t.userId = :userId ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transfer> findLatestByUser(@Param("userId") UUID userId, Pageable limit);
+
+    @Query("SELECT t FROM Transfer t WHERE t.userId = :userId AND (t.createdAt, t.id) < (:createdAt, :id) "
+            + "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transfer> findByUserBefore(@Param("userId") UUID userId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") UUID id,
+                                    Pageable limit);
+
+    @Query("SELECT t FROM Transfer t WHERE t.userId = :userId AND (t.fromCardId = :cardId OR t.toCardId = :cardId) "
+            + "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transfer> findLatestByUserAndCard(@Param("userId") UUID userId, @Param("cardId") UUID cardId, Pageable limit);
+
+    @Query("SELECT t FROM Transfer t WHERE t.userId = :userId AND (t.fromCardId = :cardId OR t.toCardId = :cardId) "
+            + "AND (t.createdAt, t.id) < (:createdAt, :id) ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transfer> findByUserAndCardBefore(@Param("userId") UUID userId,
+                                           @Param("cardId") UUID cardId,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") UUID id,
+                                           Pageable limit);
+}
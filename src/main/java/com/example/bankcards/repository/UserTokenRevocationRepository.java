@@ -0,0 +1,22 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.UserTokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface UserTokenRevocationRepository extends JpaRepository<UserTokenRevocation, UUID> {
+    Optional<UserTokenRevocation> findFirstByUserIdOrderByRevokedBeforeDesc(UUID userId);
+
+    List<UserTokenRevocation> findAllByRevokedBeforeAfter(LocalDateTime after);
+
+    @Modifying
+    @Query("DELETE FROM UserTokenRevocation r WHERE r.revokedBefore < :before")
+    int deleteAllRevokedBefore(@Param("before") LocalDateTime before);
+}
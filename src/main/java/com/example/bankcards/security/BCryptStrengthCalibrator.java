@@ -0,0 +1,43 @@
+package com.example.bankcards.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the highest BCrypt strength whose single hash fits into a latency target on the current host.
+ */
+@Slf4j
+public final class BCryptStrengthCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+    private static final int SAMPLES = 2;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    /**
+     * Times {@code minStrength} and extrapolates, since every strength step doubles the cost.
+     * Never returns less than {@code minStrength}, even on hosts that miss the target.
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        encoder.encode(SAMPLE_PASSWORD);
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        int strength = minStrength;
+        long predictedNanos = bestNanos;
+        while (strength < maxStrength && predictedNanos * 2 <= targetMillis * 1_000_000) {
+            predictedNanos *= 2;
+            strength++;
+        }
+        log.info("BCrypt strength calibrated to {} (~{} ms per hash, target {} ms).",
+                strength, predictedNanos / 1_000_000, targetMillis);
+        return strength;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Single-instance store: entries expire with their token and the oldest are evicted past {@code max-size}.
+ * Tokens do not survive a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "app.jwt.refresh.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private final Cache<String, StoredToken> tokens;
+
+    public InMemoryRefreshTokenStore(@Value("${app.jwt.refresh.max-size:100000}") long maxSize) {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((String hash, StoredToken token) ->
+                        Duration.between(Instant.now(), token.expiresAt())))
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+    }
+
+    @Override
+    public void save(String tokenHash, UUID userId, Instant expiresAt) {
+        tokens.put(tokenHash, new StoredToken(userId, expiresAt));
+    }
+
+    @Override
+    public Optional<UUID> consume(String tokenHash) {
+        StoredToken token = tokens.asMap().remove(tokenHash);
+        if (token == null || !token.expiresAt().isAfter(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(token.userId());
+    }
+
+    @Override
+    public void revokeAllForUser(UUID userId) {
+        tokens.asMap().values().removeIf(token -> token.userId().equals(userId));
+    }
+
+    private record StoredToken(UUID userId, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Shared store for multi-instance deployments, backed by the {@code refresh_tokens} table
+ * and its unique index on {@code token_hash}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.jwt.refresh.store", havingValue = "jpa")
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Override
+    @Transactional
+    public void save(String tokenHash, UUID userId, Instant expiresAt) {
+        refreshTokenRepository.save(new RefreshToken(tokenHash, userId, toLocalDateTime(expiresAt)));
+    }
+
+    @Override
+    @Transactional
+    public Optional<UUID> consume(String tokenHash) {
+        Optional<RefreshToken> token = refreshTokenRepository.findByTokenHash(tokenHash);
+        // the delete count decides the winner when the same token is presented concurrently
+        if (token.isEmpty() || refreshTokenRepository.deleteByTokenHash(tokenHash) == 0) {
+            return Optional.empty();
+        }
+        if (token.get().getExpiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(token.get().getUserId());
+    }
+
+    @Override
+    @Transactional
+    public void revokeAllForUser(UUID userId) {
+        refreshTokenRepository.deleteAllByUserId(userId);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.jwt.refresh.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteAllExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Removed {} expired refresh tokens.", deleted);
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
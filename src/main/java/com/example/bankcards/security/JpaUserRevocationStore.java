@@ -0,0 +1,78 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.UserTokenRevocation;
+import com.example.bankcards.repository.UserTokenRevocationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Shared store for multi-instance deployments, backed by the {@code user_token_revocations} table. A row is kept
+ * until every token it could reject has expired on its own.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.jwt.revocation.store", havingValue = "jpa")
+public class JpaUserRevocationStore implements UserRevocationStore {
+
+    private final UserTokenRevocationRepository repository;
+    private final long jwtTokenValidity;
+
+    public JpaUserRevocationStore(UserTokenRevocationRepository repository,
+                                  @Value("${app.jwt.validity-seconds}") long jwtTokenValidity) {
+        this.repository = repository;
+        this.jwtTokenValidity = jwtTokenValidity;
+    }
+
+    @Override
+    @Transactional
+    public void save(UUID userId, Instant revokedBefore) {
+        repository.save(new UserTokenRevocation(userId, toLocalDateTime(revokedBefore)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Instant> findLatest(UUID userId) {
+        return repository.findFirstByUserIdOrderByRevokedBeforeDesc(userId)
+                .map(revocation -> toInstant(revocation.getRevokedBefore()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, Instant> findAllAfter(Instant after) {
+        Map<UUID, Instant> latest = new HashMap<>();
+        for (UserTokenRevocation revocation : repository.findAllByRevokedBeforeAfter(toLocalDateTime(after))) {
+            latest.merge(revocation.getUserId(), toInstant(revocation.getRevokedBefore()),
+                    (a, b) -> a.isAfter(b) ? a : b);
+        }
+        return latest;
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = repository.deleteAllRevokedBefore(toLocalDateTime(Instant.now().minusSeconds(jwtTokenValidity)));
+        if (deleted > 0) {
+            log.debug("Removed {} expired user token revocations.", deleted);
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private Instant toInstant(LocalDateTime localDateTime) {
+        return localDateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.*;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Signing and verification keys for access tokens, addressed by the JWS {@code kid} header.
+ * <p>
+ * Without {@code app.jwt.keys.location} the ring holds a single key: HS512 derived from {@code app.jwt.secret},
+ * or an ephemeral ES256/EdDSA pair. With it, keys come from a JWK Set file that is re-read whenever it changes,
+ * so keys can be rotated without a restart: publish the new key as a public JWK first, swap in its private JWK
+ * once every instance has picked it up, and drop the old key after the access token validity has passed.
+ * The active signing key is {@code app.jwt.keys.active-kid}, or else the last private key in the set.
+ */
+@Slf4j
+@Component
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    private static final int HS512_KEY_BYTES = 64;
+    private static final Map<String, String> DEFAULT_ALGORITHMS = Map.of("oct", "HS512", "EC", "ES256", "OKP", "EdDSA");
+    private static final Set<String> SUPPORTED_ALGORITHMS = Set.copyOf(DEFAULT_ALGORITHMS.values());
+
+    private final String secret;
+    private final String algorithm;
+    private final String keysLocation;
+    private final String activeKid;
+    private final List<Runnable> keyRemovalListeners = new CopyOnWriteArrayList<>();
+
+    // swapped as a whole on reload, so a lookup never sees a half-updated ring
+    private volatile KeySet keySet;
+    private long loadedModifiedMillis = -1;
+
+    public JwtKeyRing(@Value("${app.jwt.secret:}") String secret,
+                      @Value("${app.jwt.algorithm:HS512}") String algorithm,
+                      @Value("${app.jwt.keys.location:}") String keysLocation,
+                      @Value("${app.jwt.keys.active-kid:}") String activeKid) {
+        this.secret = secret;
+        this.algorithm = algorithm;
+        this.keysLocation = keysLocation;
+        this.activeKid = activeKid;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (keysLocation.isBlank()) {
+            this.keySet = KeySet.of(List.of(fromConfiguration()), activeKid);
+            log.info("JWT key ring uses a single {} key '{}'.", algorithm, keySet.active().getKid());
+        } else {
+            reload();
+        }
+    }
+
+    /**
+     * Re-reads the JWK Set file when its modification time has changed. A file that fails to parse
+     * keeps the current keys in place, except on the initial load.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.keys.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        if (keysLocation.isBlank()) {
+            return;
+        }
+        Path path = Path.of(keysLocation);
+        try {
+            long modifiedMillis = Files.getLastModifiedTime(path).toMillis();
+            if (modifiedMillis == loadedModifiedMillis) {
+                return;
+            }
+            KeySet previous = keySet;
+            KeySet loaded = load(path);
+            this.keySet = loaded;
+            this.loadedModifiedMillis = modifiedMillis;
+            log.info("Loaded JWT keys {} from {}, signing with '{}'.", loaded.byKid().keySet(), path,
+                    loaded.active() != null ? loaded.active().getKid() : "none");
+            if (previous != null && !loaded.byKid().keySet().containsAll(previous.byKid().keySet())) {
+                keyRemovalListeners.forEach(Runnable::run);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (keySet == null) {
+                throw new IllegalStateException("Cannot load JWT keys from " + keysLocation, e);
+            }
+            log.error("Keeping current JWT keys, reloading {} failed: {}", keysLocation, e.getMessage());
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if this instance only holds verification keys
+     */
+    public JwtSigningKey signingKey() {
+        JwtSigningKey active = keySet.active();
+        if (active == null) {
+            throw new IllegalStateException("No JWT signing key is configured, this instance can only verify tokens");
+        }
+        return active;
+    }
+
+    public Collection<JwtSigningKey> keys() {
+        return keySet.byKid().values();
+    }
+
+    /**
+     * Registers a callback run after a reload drops a key, so anything that trusted tokens signed
+     * with that key can forget them.
+     */
+    public void onKeyRemoved(Runnable listener) {
+        keyRemovalListeners.add(listener);
+    }
+
+    /**
+     * Resolves the verification key by {@code kid}; tokens without one are checked against the active key.
+     * The header algorithm must match the key's own, so a public key is never accepted as an HMAC secret.
+     */
+    @Override
+    protected Key locate(JwsHeader header) {
+        KeySet current = keySet;
+        JwtSigningKey key = header.getKeyId() != null ? current.byKid().get(header.getKeyId()) : current.active();
+        if (key == null || !key.getAlgorithm().getId().equals(header.getAlgorithm())) {
+            return null;
+        }
+        return key.getVerificationKey();
+    }
+
+    private JwtSigningKey fromConfiguration() {
+        switch (algorithm) {
+            case "HS512" -> {
+                if (secret.isBlank()) {
+                    throw new IllegalStateException("app.jwt.secret is required for HS512 signing");
+                }
+                byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+                if (keyBytes.length < HS512_KEY_BYTES) {
+                    log.warn("Warning: JWT secret is less than 64 bytes, which is not ideal for HS512. Padding with zeros.");
+                    keyBytes = Arrays.copyOf(keyBytes, HS512_KEY_BYTES);
+                }
+                // derived from the secret so every instance sharing it agrees on the kid
+                String kid = "hs512-" + TokenHashing.sha256(secret).substring(0, 8);
+                return new JwtSigningKey(kid, resolveAlgorithm("HS512"), Keys.hmacShaKeyFor(keyBytes), Keys.hmacShaKeyFor(keyBytes));
+            }
+            case "ES256", "EdDSA" -> {
+                log.warn("No app.jwt.keys.location configured: generated an ephemeral {} key pair. "
+                        + "Tokens will not survive a restart or verify on other instances.", algorithm);
+                KeyPair keyPair = "ES256".equals(algorithm)
+                        ? Jwts.SIG.ES256.keyPair().build()
+                        : Jwks.CRV.Ed25519.keyPair().build();
+                String kid = algorithm.toLowerCase(Locale.ROOT) + "-" + UUID.randomUUID().toString().substring(0, 8);
+                return new JwtSigningKey(kid, resolveAlgorithm(algorithm), keyPair.getPrivate(), keyPair.getPublic());
+            }
+            default -> throw new IllegalStateException("Unsupported app.jwt.algorithm: " + algorithm
+                    + ", expected one of " + SUPPORTED_ALGORITHMS);
+        }
+    }
+
+    private KeySet load(Path path) throws IOException {
+        JwkSet jwkSet;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            jwkSet = Jwks.setParser().build().parse(reader);
+        }
+        List<JwtSigningKey> keys = new ArrayList<>();
+        for (Jwk<?> jwk : jwkSet) {
+            keys.add(toSigningKey(jwk));
+        }
+        return KeySet.of(keys, activeKid);
+    }
+
+    private static JwtSigningKey toSigningKey(Jwk<?> jwk) {
+        String kid = jwk.getId() != null ? jwk.getId() : jwk.thumbprint().toString();
+        String algorithmId = jwk.getAlgorithm() != null ? jwk.getAlgorithm() : DEFAULT_ALGORITHMS.get(jwk.getType());
+        SecureDigestAlgorithm<Key, Key> algorithm = resolveAlgorithm(algorithmId);
+        if (jwk instanceof PrivateJwk<?, ?, ?> privateJwk) {
+            return new JwtSigningKey(kid, algorithm, privateJwk.toKey(), privateJwk.toPublicJwk().toKey());
+        }
+        if (jwk instanceof SecretJwk secretJwk) {
+            return new JwtSigningKey(kid, algorithm, secretJwk.toKey(), secretJwk.toKey());
+        }
+        return new JwtSigningKey(kid, algorithm, null, jwk.toKey());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SecureDigestAlgorithm<Key, Key> resolveAlgorithm(String algorithmId) {
+        if (algorithmId == null || !SUPPORTED_ALGORITHMS.contains(algorithmId)) {
+            throw new IllegalStateException("Unsupported JWT signing algorithm: " + algorithmId
+                    + ", expected one of " + SUPPORTED_ALGORITHMS);
+        }
+        return (SecureDigestAlgorithm<Key, Key>) Jwts.SIG.get().forKey(algorithmId);
+    }
+
+    private record KeySet(JwtSigningKey active, Map<String, JwtSigningKey> byKid) {
+
+        static KeySet of(List<JwtSigningKey> keys, String activeKid) {
+            Map<String, JwtSigningKey> byKid = new LinkedHashMap<>();
+            JwtSigningKey active = null;
+            for (JwtSigningKey key : keys) {
+                if (byKid.putIfAbsent(key.getKid(), key) != null) {
+                    throw new IllegalStateException("Duplicate JWT key id: " + key.getKid());
+                }
+                if (key.canSign()) {
+                    active = key;
+                }
+            }
+            if (!activeKid.isBlank()) {
+                active = byKid.get(activeKid);
+                if (active == null || !active.canSign()) {
+                    throw new IllegalStateException("Active JWT key '" + activeKid + "' is missing or has no private key");
+                }
+            }
+            if (active != null) {
+                verifySignsAndVerifies(active);
+            }
+            return new KeySet(active, Collections.unmodifiableMap(byKid));
+        }
+
+        // catches key/algorithm mismatches (say, a P-384 key declared as ES256) at load time instead of on first login
+        private static void verifySignsAndVerifies(JwtSigningKey key) {
+            String probe = Jwts.builder().subject("probe").signWith(key.getSigningKey(), key.getAlgorithm()).compact();
+            Jwts.parser().keyLocator(header -> key.getVerificationKey()).build().parseSignedClaims(probe);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.security;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable view of a token whose signature and expiry have already been verified.
+ * {@code userId} and {@code roles} are null for tokens issued without identity claims,
+ * {@code tokenId} for tokens issued without a {@code jti}.
+ */
+@Value
+public class JwtPrincipal {
+    String tokenId;
+    String username;
+    UUID userId;
+    List<String> roles;
+    Instant issuedAt;
+    Instant expiresAt;
+
+    public boolean hasIdentityClaims() {
+        return userId != null && roles != null;
+    }
+}
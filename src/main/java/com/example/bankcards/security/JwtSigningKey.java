@@ -0,0 +1,22 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import lombok.Value;
+
+import java.security.Key;
+
+/**
+ * One entry of the {@link JwtKeyRing}: the verification key for a {@code kid}, plus the signing key
+ * when this instance holds the private (or shared HMAC) half.
+ */
+@Value
+public class JwtSigningKey {
+    String kid;
+    SecureDigestAlgorithm<Key, Key> algorithm;
+    Key signingKey;
+    Key verificationKey;
+
+    public boolean canSign() {
+        return signingKey != null;
+    }
+}
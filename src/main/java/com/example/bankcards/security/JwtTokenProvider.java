@@ -2,37 +2,63 @@ package com.example.bankcards.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Instant;
 import java.util.*;
 import java.util.function.Function;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JwtTokenProvider {
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final int REFRESH_TOKEN_BYTES = 32;
+
+    private final JwtKeyRing keyRing;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final SecureRandom secureRandom = new SecureRandom();
+
     @Value("${app.jwt.validity-seconds}")
     public long jwtTokenValidity;
-    @Value("${app.jwt.secret}")
-    private String secret;
+    @Value("${app.jwt.refresh.validity-seconds:1209600}")
+    private long refreshTokenValidity;
+    @Value("${app.jwt.cache.max-size:10000}")
+    private long tokenCacheMaxSize;
+    @Value("${app.jwt.cache.max-memory-bytes:8388608}")
+    private long tokenCacheMaxMemoryBytes;
 
-    private SecretKey secretKey;
+    // JwtParser is immutable and thread-safe, so one instance serves every request;
+    // the key ring resolves the verification key per token from its kid
+    private JwtParser jwtParser;
+    // null when disabled through a non-positive max-size
+    private volatile VerifiedTokenCache verifiedTokenCache;
 
     @PostConstruct
     public void init() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        if (keyBytes.length < 64) {
-            log.warn("Warning: JWT secret is less than 64 bytes, which is not ideal for HS512. Padding with zeros.");
-            keyBytes = Arrays.copyOf(keyBytes, 64);
+        this.jwtParser = Jwts.parser()
+                .keyLocator(keyRing)
+                .build();
+        if (tokenCacheMaxSize > 0 && tokenCacheMaxMemoryBytes > 0) {
+            this.verifiedTokenCache = new VerifiedTokenCache(tokenCacheMaxSize, tokenCacheMaxMemoryBytes);
         }
-        this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+        // tokens signed with a retired key must stop validating immediately, not when they expire
+        keyRing.onKeyRemoved(() -> {
+            VerifiedTokenCache cache = verifiedTokenCache;
+            if (cache != null) {
+                cache.invalidateAll();
+            }
+        });
     }
 
     public String getUsernameFromToken(String token) {
@@ -49,42 +75,113 @@ public class JwtTokenProvider {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
-    private Boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    public String generateToken(String username) {
+        return generateToken(new HashMap<>(), username, null);
     }
 
-    public String generateToken(String username) {
-        return generateToken(new HashMap<>(), username);
+    /**
+     * Issues a token that also carries the user id and role names,
+     * so the principal can be rebuilt without a database lookup.
+     */
+    public String generateToken(UuidUserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userDetails.getUuid().toString());
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(authority -> authority.startsWith(ROLE_PREFIX) ? authority.substring(ROLE_PREFIX.length()) : authority)
+                .toList());
+        return generateToken(claims, userDetails.getUsername(), userDetails.getUuid());
     }
 
-    private String generateToken(Map<String, Object> claims, String subject) {
-        Date now = new Date();
+    private String generateToken(Map<String, Object> claims, String subject, UUID userId) {
+        Date now = Date.from(tokenRevocationRegistry.issuedAtFor(userId, Instant.now()));
         Date expirationDate = new Date(now.getTime() + jwtTokenValidity * 1000);
+        JwtSigningKey signingKey = keyRing.signingKey();
 
         return Jwts.builder()
+                .header().keyId(signingKey.getKid()).and()
                 .claims(claims)
+                // unique per token, so a single token can be revoked on logout
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expirationDate)
-                .signWith(secretKey, Jwts.SIG.HS512)
+                .signWith(signingKey.getSigningKey(), signingKey.getAlgorithm())
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
+    /**
+     * Refresh tokens are opaque random strings rather than JWTs: they are only ever
+     * checked against the server-side store, by hash.
+     */
+    public String generateRefreshToken() {
+        byte[] bytes = new byte[REFRESH_TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public String hashRefreshToken(String refreshToken) {
+        return TokenHashing.sha256(refreshToken);
+    }
+
+    public Instant getRefreshTokenExpiry() {
+        return Instant.now().plusSeconds(refreshTokenValidity);
+    }
+
+    /**
+     * Verifies signature and expiry in a single parse. Tokens seen before are answered from
+     * {@link VerifiedTokenCache} until their expiry, skipping signature verification and decoding.
+     *
+     * @return the verified principal, or empty if the token is malformed, tampered with or expired
+     */
+    public Optional<JwtPrincipal> validateToken(String token) {
+        if (verifiedTokenCache == null || token == null || token.isEmpty()) {
+            return parseAndVerify(token);
+        }
+        String digest = VerifiedTokenCache.digest(token);
+        JwtPrincipal cached = verifiedTokenCache.get(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<JwtPrincipal> principal = parseAndVerify(token);
+        principal.ifPresent(p -> verifiedTokenCache.put(digest, p));
+        return principal;
+    }
+
+    private Optional<JwtPrincipal> parseAndVerify(String token) {
         try {
-            final String username = getUsernameFromToken(token);
-            return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-        } catch (JwtException e) {
-            log.error("JWT validation error: ", e);
-            return false;
+            Claims claims = getAllClaimsFromToken(token);
+            if (claims.getSubject() == null || claims.getExpiration() == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new JwtPrincipal(
+                    claims.getId(),
+                    claims.getSubject(),
+                    getUserId(claims),
+                    getRoles(claims),
+                    claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                    claims.getExpiration().toInstant()));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("JWT validation error: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private UUID getUserId(Claims claims) {
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        return userId != null ? UUID.fromString(userId) : null;
+    }
+
+    private List<String> getRoles(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof Collection<?> roleNames)) {
+            return null;
         }
+        return roleNames.stream().map(String::valueOf).toList();
     }
-}
\ No newline at end of file
+}
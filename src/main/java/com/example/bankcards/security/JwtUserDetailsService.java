@@ -1,40 +1,65 @@
 package com.example.bankcards.security;
 
-import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collection;
-import java.util.stream.Collectors;
-
 @Service
 @RequiredArgsConstructor
-public class JwtUserDetailsService implements UserDetailsService {
+public class JwtUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
+    /**
+     * Not transactional on purpose: a cache hit must not check out a connection.
+     * On a miss the repository call runs in its own transaction and loads the EAGER roles with it.
+     */
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userPrincipalCache.get(username, this::loadUserFromDatabase);
+    }
+
+    private UuidUserDetails loadUserFromDatabase(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-        return new UuidUserDetails(user.getId(),
-                user.getUsername(),
-                user.getPassword(),
-                mapRolesToAuthorities(user.getRoles()));
+        return UuidUserDetails.fromUser(user);
+    }
+
+    /**
+     * Called by DaoAuthenticationProvider after a successful login whose stored hash
+     * is below the current encoder cost. Runs in its own transaction because login is read-only.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByUsername(user.getUsername(), newPassword);
+        userPrincipalCache.evict(user.getUsername());
+        if (user instanceof UuidUserDetails uuidUser) {
+            return new UuidUserDetails(uuidUser.getUuid(), uuidUser.getUsername(), newPassword, uuidUser.getAuthorities());
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
     }
 
-    private Collection<? extends GrantedAuthority> mapRolesToAuthorities(java.util.Set<Role> roles) {
-        return roles.stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName().name()))
-                .collect(Collectors.toList());
+    /**
+     * Rebuilds the principal from already verified token claims without touching the database.
+     */
+    public UuidUserDetails buildUserFromClaims(JwtPrincipal principal) {
+        return new UuidUserDetails(principal.getUserId(),
+                principal.getUsername(),
+                "",
+                principal.getRoles().stream()
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                        .toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.security.TooManyLoginAttemptsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket limits on login attempts per username and per client address, checked before any password hashing.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again (GCRA), updated
+ * with a compare-and-set, so concurrent attempts never block each other. Buckets live in size-bounded maps and
+ * are dropped once idle long enough to have refilled completely, which loses no state.
+ * Rejections are counted in the {@code auth.login.throttled} metric.
+ */
+@Component
+public class LoginThrottle {
+
+    private final boolean enabled;
+    private final Limit usernameLimit;
+    private final Limit addressLimit;
+    private final Cache<String, AtomicLong> usernameBuckets;
+    private final Cache<String, AtomicLong> addressBuckets;
+    private final Counter usernameRejections;
+    private final Counter addressRejections;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public LoginThrottle(@Value("${app.security.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${app.security.login-throttle.username.burst:5}") int usernameBurst,
+                         @Value("${app.security.login-throttle.username.per-minute:5}") int usernamePerMinute,
+                         @Value("${app.security.login-throttle.address.burst:20}") int addressBurst,
+                         @Value("${app.security.login-throttle.address.per-minute:60}") int addressPerMinute,
+                         @Value("${app.security.login-throttle.max-keys:100000}") long maxKeys,
+                         MeterRegistry meterRegistry) {
+        this(enabled, new Limit(usernameBurst, usernamePerMinute), new Limit(addressBurst, addressPerMinute),
+                maxKeys, meterRegistry, System::nanoTime);
+    }
+
+    LoginThrottle(boolean enabled, Limit usernameLimit, Limit addressLimit, long maxKeys,
+                  MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.usernameLimit = usernameLimit;
+        this.addressLimit = addressLimit;
+        this.usernameBuckets = buckets(usernameLimit, maxKeys);
+        this.addressBuckets = buckets(addressLimit, maxKeys);
+        this.usernameRejections = rejections(meterRegistry, "username");
+        this.addressRejections = rejections(meterRegistry, "address");
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes one attempt from both the address and the username bucket.
+     *
+     * @throws TooManyLoginAttemptsException if either bucket is empty
+     */
+    public void acquire(String username, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        if (clientAddress != null) {
+            long waitNanos = addressLimit.tryAcquire(addressBuckets.get(clientAddress, key -> newBucket()), now);
+            if (waitNanos > 0) {
+                addressRejections.increment();
+                throw new TooManyLoginAttemptsException(toRetryAfterSeconds(waitNanos));
+            }
+        }
+        long waitNanos = usernameLimit.tryAcquire(usernameBuckets.get(usernameKey(username), key -> newBucket()), now);
+        if (waitNanos > 0) {
+            usernameRejections.increment();
+            throw new TooManyLoginAttemptsException(toRetryAfterSeconds(waitNanos));
+        }
+    }
+
+    /**
+     * Refills the username bucket after a successful login, so earlier typos don't count against the next session.
+     * The address bucket is left alone: many users can share one address.
+     */
+    public void reset(String username) {
+        if (enabled) {
+            usernameBuckets.invalidate(usernameKey(username));
+        }
+    }
+
+    private static String usernameKey(String username) {
+        // case variants of one name must share a bucket
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static AtomicLong newBucket() {
+        return new AtomicLong(Long.MIN_VALUE);
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private static Cache<String, AtomicLong> buckets(Limit limit, long maxKeys) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(limit.capacityNanos()))
+                .build();
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("auth.login.throttled")
+                .description("Login attempts rejected before authentication")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@code burst} attempts at once, refilling at {@code perMinute}.
+     */
+    record Limit(long intervalNanos, long capacityNanos) {
+
+        Limit(int burst, int perMinute) {
+            this(TimeUnit.MINUTES.toNanos(1) / perMinute, TimeUnit.MINUTES.toNanos(1) / perMinute * burst);
+        }
+
+        /**
+         * @return 0 if the attempt was admitted, otherwise the nanoseconds until the next one would be
+         */
+        long tryAcquire(AtomicLong fullAt, long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long excess = next - now - capacityNanos;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
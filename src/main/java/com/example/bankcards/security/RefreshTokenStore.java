@@ -0,0 +1,22 @@
+package com.example.bankcards.security;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Server-side storage of refresh tokens. Only the SHA-256 hash of a token is ever stored.
+ * The implementation is picked with {@code app.jwt.refresh.store} ({@code memory} or {@code jpa}).
+ */
+public interface RefreshTokenStore {
+    void save(String tokenHash, UUID userId, Instant expiresAt);
+
+    /**
+     * Atomically removes the token, so each refresh token can be exchanged only once.
+     *
+     * @return the owner of the token, or empty if it is unknown, expired or already consumed
+     */
+    Optional<UUID> consume(String tokenHash);
+
+    void revokeAllForUser(UUID userId);
+}
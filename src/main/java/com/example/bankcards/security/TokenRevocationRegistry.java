@@ -0,0 +1,155 @@
+package com.example.bankcards.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Tracks tokens that must no longer be accepted: all tokens of a user issued up to a cutoff
+ * (e.g. after the account was deleted, renamed or force-logged-out), and single tokens revoked by {@code jti} on logout.
+ * Entries are dropped once every token they could match has expired on its own.
+ * <p>
+ * Checks only ever read memory. With a shared {@link UserRevocationStore} a per-user cutoff is also saved there, and
+ * every instance pulls the cutoffs saved by the others on a short schedule, so a revocation reaches all instances
+ * within {@code app.jwt.revocation.sync-interval-ms}. Tokens revoked one by one on logout stay with the instance
+ * that revoked them.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    // a bucket holds the ids of tokens expiring within the same minute and is dropped as a whole once that minute has passed
+    private static final long BUCKET_SECONDS = 60;
+
+    @Value("${app.jwt.validity-seconds}")
+    private long jwtTokenValidity;
+
+    private final Map<UUID, Instant> revokedBefore = new ConcurrentHashMap<>();
+    // keyed by the token's own expiry, so a check touches exactly one bucket and purging never scans individual ids
+    private final ConcurrentNavigableMap<Long, Set<UUID>> revokedTokenIds = new ConcurrentSkipListMap<>();
+    private final UserRevocationStore sharedStore;
+
+    public TokenRevocationRegistry() {
+        this(Optional.empty());
+    }
+
+    @Autowired
+    public TokenRevocationRegistry(Optional<UserRevocationStore> sharedStore) {
+        this.sharedStore = sharedStore.orElse(null);
+    }
+
+    public void revokeAllForUser(UUID userId) {
+        purgeExpired();
+        // iat has second precision: the cutoff is the start of the next second, so every token issued up to now
+        // falls below it, while tokens issued from now on are stamped with it at the earliest (see issuedAtFor)
+        Instant cutoff = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        revokedBefore.merge(userId, cutoff, TokenRevocationRegistry::later);
+        if (sharedStore != null) {
+            sharedStore.save(userId, cutoff);
+        }
+    }
+
+    /**
+     * The issue time to stamp on a token issued now for this user: never earlier than the user's revocation cutoff,
+     * so a login in the same second as a revocation is not rejected along with the tokens it revoked.
+     */
+    public Instant issuedAtFor(UUID userId, Instant now) {
+        if (userId == null) {
+            return now;
+        }
+        Instant cutoff = revokedBefore.get(userId);
+        if (sharedStore != null) {
+            // read through, as another instance may have revoked the user since the last sync
+            Optional<Instant> shared = sharedStore.findLatest(userId);
+            if (shared.isPresent()) {
+                cutoff = revokedBefore.merge(userId, shared.get(), TokenRevocationRegistry::later);
+            }
+        }
+        return cutoff != null && cutoff.isAfter(now) ? cutoff : now;
+    }
+
+    /**
+     * Rejects this one token until its expiry. Tokens issued without a {@code jti} can only be revoked per user.
+     */
+    public void revokeToken(JwtPrincipal principal) {
+        UUID tokenId = parseTokenId(principal.getTokenId());
+        if (tokenId == null || !principal.getExpiresAt().isAfter(Instant.now())) {
+            return;
+        }
+        revokedTokenIds.computeIfAbsent(bucketOf(principal.getExpiresAt()), bucket -> ConcurrentHashMap.newKeySet())
+                .add(tokenId);
+    }
+
+    public boolean isRevoked(JwtPrincipal principal) {
+        return isTokenRevoked(principal) || isUserRevoked(principal);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        revokedTokenIds.headMap(bucketOf(Instant.now())).clear();
+        Instant oldestLiveIssue = Instant.now().minusSeconds(jwtTokenValidity);
+        revokedBefore.values().removeIf(cutoff -> cutoff.isBefore(oldestLiveIssue));
+    }
+
+    /**
+     * Pulls the per-user cutoffs saved by other instances.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sync-interval-ms:5000}")
+    public void syncShared() {
+        if (sharedStore == null) {
+            return;
+        }
+        sharedStore.findAllAfter(Instant.now().minusSeconds(jwtTokenValidity))
+                .forEach((userId, cutoff) -> revokedBefore.merge(userId, cutoff, TokenRevocationRegistry::later));
+    }
+
+    private boolean isTokenRevoked(JwtPrincipal principal) {
+        if (principal.getTokenId() == null || revokedTokenIds.isEmpty()) {
+            return false;
+        }
+        Set<UUID> bucket = revokedTokenIds.get(bucketOf(principal.getExpiresAt()));
+        if (bucket == null) {
+            return false;
+        }
+        UUID tokenId = parseTokenId(principal.getTokenId());
+        return tokenId != null && bucket.contains(tokenId);
+    }
+
+    private boolean isUserRevoked(JwtPrincipal principal) {
+        if (principal.getUserId() == null || revokedBefore.isEmpty()) {
+            return false;
+        }
+        Instant cutoff = revokedBefore.get(principal.getUserId());
+        return cutoff != null && (principal.getIssuedAt() == null || principal.getIssuedAt().isBefore(cutoff));
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static long bucketOf(Instant instant) {
+        return instant.getEpochSecond() / BUCKET_SECONDS;
+    }
+
+    // ids are stored as UUIDs rather than strings: two longs instead of a 36-char string per revoked token
+    private static UUID parseTokenId(String tokenId) {
+        if (tokenId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(tokenId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
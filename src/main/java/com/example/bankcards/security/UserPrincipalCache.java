@@ -0,0 +1,125 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, TTL-evicting cache of user principals keyed by username, with a secondary index from user id to
+ * the cached usernames, so evicting a user by id does not scan the cache.
+ * Hit, miss and eviction counters are published as {@code cache.*} metrics under the name "userPrincipals".
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final Cache<String, CachedPrincipal> cache;
+    // usually a single name; a second one can only be cached briefly around a username change
+    private final ConcurrentMap<UUID, Set<String>> usernamesById = new ConcurrentHashMap<>();
+
+    public UserPrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                              @Value("${app.security.principal-cache.ttl-seconds:30}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                // runs within the eviction of that entry, so it can't race a reload of the same username
+                .evictionListener((String username, CachedPrincipal principal, RemovalCause cause) -> {
+                    if (username != null && principal != null) {
+                        unindex(principal.uuid(), username);
+                    }
+                })
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userPrincipals");
+    }
+
+    /**
+     * Returns a fresh {@link UuidUserDetails} on every call: the authentication manager erases
+     * credentials on the instances it hands out, so cached instances must never escape.
+     */
+    public UuidUserDetails get(String username, Function<String, UuidUserDetails> loader) {
+        return cache.get(username, key -> {
+            CachedPrincipal principal = CachedPrincipal.of(loader.apply(key));
+            index(principal.uuid(), key);
+            return principal;
+        }).toUserDetails();
+    }
+
+    public void evict(String username) {
+        CachedPrincipal removed = cache.asMap().remove(username);
+        if (removed != null) {
+            unindex(removed.uuid(), username);
+        }
+    }
+
+    public void evict(UUID userId) {
+        Set<String> usernames = usernamesById.remove(userId);
+        if (usernames != null) {
+            cache.invalidateAll(usernames);
+        }
+    }
+
+    /**
+     * Evicts once the surrounding transaction commits, so a concurrent request cannot
+     * re-cache the pre-update row in between. Evicts immediately outside a transaction.
+     */
+    public void evictAfterCommit(UUID userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId);
+            }
+        });
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private void index(UUID userId, String username) {
+        usernamesById.compute(userId, (id, usernames) -> {
+            Set<String> names = usernames != null ? usernames : ConcurrentHashMap.newKeySet();
+            names.add(username);
+            return names;
+        });
+    }
+
+    private void unindex(UUID userId, String username) {
+        usernamesById.computeIfPresent(userId, (id, usernames) -> {
+            usernames.remove(username);
+            return usernames.isEmpty() ? null : usernames;
+        });
+    }
+
+    private record CachedPrincipal(UUID uuid, String username, String password,
+                                   List<? extends GrantedAuthority> authorities) {
+        static CachedPrincipal of(UuidUserDetails userDetails) {
+            return new CachedPrincipal(userDetails.getUuid(), userDetails.getUsername(),
+                    userDetails.getPassword(), List.copyOf(userDetails.getAuthorities()));
+        }
+
+        UuidUserDetails toUserDetails() {
+            return new UuidUserDetails(uuid, username, password, authorities);
+        }
+    }
+}
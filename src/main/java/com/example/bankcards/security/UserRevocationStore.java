@@ -0,0 +1,21 @@
+package com.example.bankcards.security;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Shares the per-user cutoffs of {@link TokenRevocationRegistry} between instances. Only present when
+ * {@code app.jwt.revocation.store} is {@code jpa}; with {@code memory} each instance only knows its own revocations.
+ */
+public interface UserRevocationStore {
+    void save(UUID userId, Instant revokedBefore);
+
+    Optional<Instant> findLatest(UUID userId);
+
+    /**
+     * @return the latest cutoff of every user revoked after the given instant
+     */
+    Map<UUID, Instant> findAllAfter(Instant after);
+}
@@ -2,6 +2,7 @@ package com.example.bankcards.security;
 
 import lombok.Getter;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 
 import java.util.Collection;
@@ -15,4 +16,13 @@ public class UuidUserDetails extends User {
         super(username, password, authorities);
         this.uuid = uuid;
     }
+
+    public static UuidUserDetails fromUser(com.example.bankcards.entity.User user) {
+        return new UuidUserDetails(user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getRoles().stream()
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName().name()))
+                        .toList());
+    }
 }
@@ -0,0 +1,69 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * LRU-style cache of already verified tokens, keyed by the SHA-256 digest of the raw token.
+ * Every entry expires exactly at the token's {@code exp}; the cache is bounded both by entry
+ * count and by an estimated memory footprint.
+ */
+class VerifiedTokenCache {
+
+    // digest key (43 base64url chars) plus node, principal and instant overhead
+    private static final int BASE_ENTRY_BYTES = 320;
+
+    private final Cache<String, JwtPrincipal> cache;
+
+    VerifiedTokenCache(long maxSize, long maxMemoryBytes) {
+        // Caffeine bounds either by size or by weight, so every entry weighs at least maxMemoryBytes / maxSize:
+        // that keeps the entry count under maxSize and the estimated footprint under maxMemoryBytes at once
+        long minEntryWeight = Math.max(1, maxMemoryBytes / maxSize);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, JwtPrincipal principal) -> (int) Math.max(minEntryWeight, estimateBytes(principal)))
+                .expireAfter(Expiry.creating((String key, JwtPrincipal principal) ->
+                        Duration.between(Instant.now(), principal.getExpiresAt())))
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+    }
+
+    JwtPrincipal get(String digest) {
+        JwtPrincipal principal = cache.getIfPresent(digest);
+        if (principal == null || !principal.getExpiresAt().isAfter(Instant.now())) {
+            return null;
+        }
+        return principal;
+    }
+
+    void put(String digest, JwtPrincipal principal) {
+        if (principal.getExpiresAt().isAfter(Instant.now())) {
+            cache.put(digest, principal);
+        }
+    }
+
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    static String digest(String token) {
+        return TokenHashing.sha256(token);
+    }
+
+    private static long estimateBytes(JwtPrincipal principal) {
+        long bytes = BASE_ENTRY_BYTES + 2L * principal.getUsername().length();
+        if (principal.getRoles() != null) {
+            bytes += principal.getRoles().stream().mapToLong(role -> 48 + 2L * role.length()).sum();
+        }
+        return bytes;
+    }
+}
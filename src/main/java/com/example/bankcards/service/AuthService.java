@@ -2,9 +2,12 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.dto.security.JwtAuthResponse;
 import com.example.bankcards.dto.security.LoginRequest;
+import com.example.bankcards.dto.security.RefreshTokenRequest;
 import com.example.bankcards.dto.security.RegisterRequest;
 
 public interface AuthService {
     JwtAuthResponse login(LoginRequest loginRequest);
     JwtAuthResponse register(RegisterRequest registerRequest);
+    JwtAuthResponse refresh(RefreshTokenRequest refreshTokenRequest);
+    void logout(String accessToken, String refreshToken);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.CardNumberLookupRequest;
 import com.example.bankcards.dto.card.CardSearchRequest;
 import com.example.bankcards.dto.card.CreateCardRequest;
 import com.example.bankcards.dto.card.UpdateCardStatusRequest;
@@ -13,6 +14,7 @@ public interface CardService {
     List<CardDto> getAllCards(Integer pageNumber, Integer pageSize, boolean ascendingCreationDate, CardSearchRequest searchRequest);
     List<CardDto> getAllCardsForUser(UUID userId, Integer pageNumber, Integer pageSize, boolean ascendingCreationDate);
     CardDto getCardDtoById(UUID cardId);
+    CardDto findCardByNumber(CardNumberLookupRequest request);
     void changeCardStatus(UUID cardId, UpdateCardStatusRequest request);
     void userBlockCard(UUID cardId);
     void deleteCard(UUID cardId);
@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.DetokenizeRequest;
+import com.example.bankcards.dto.card.DetokenizedCardDto;
+
+public interface CardTokenService {
+    CardDto getCardDtoByToken(String cardToken);
+    DetokenizedCardDto detokenize(DetokenizeRequest request);
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.security.DataKeyDto;
+import com.example.bankcards.dto.security.ReEncryptionStatusDto;
+
+public interface EncryptionKeyService {
+    DataKeyDto rotateDataKey();
+    ReEncryptionStatusDto startReEncryption();
+    ReEncryptionStatusDto getReEncryptionStatus();
+}
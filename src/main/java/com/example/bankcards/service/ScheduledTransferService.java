@@ -0,0 +1,18 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.card.CreateScheduledTransferRequest;
+import com.example.bankcards.dto.card.ScheduledTransferDto;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface ScheduledTransferService {
+    ScheduledTransferDto createScheduledTransfer(UUID userId, CreateScheduledTransferRequest request);
+
+    List<ScheduledTransferDto> getScheduledTransfers(UUID userId);
+
+    /**
+     * Stops future runs; a run already in progress still completes. Cancelling a finished schedule does nothing.
+     */
+    void cancelScheduledTransfer(UUID userId, UUID scheduledTransferId);
+}
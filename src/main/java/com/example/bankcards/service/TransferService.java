@@ -1,9 +1,22 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.card.TransferHistoryDto;
 import com.example.bankcards.dto.card.TransferRequest;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface TransferService {
-    void transferBetweenUserOwnedCards(UUID userId, TransferRequest request);
+    /**
+     * @param idempotencyKey optional; a repeated key with the same request is answered without transferring again
+     *                       once a transfer with it succeeded, while a rejected transfer doesn't use the key up
+     */
+    void transferBetweenUserOwnedCards(UUID userId, TransferRequest request, String idempotencyKey);
+
+    /**
+     * Makes every transfer or none of them.
+     */
+    void transferBatch(UUID userId, List<TransferRequest> transfers);
+
+    TransferHistoryDto getTransferHistory(UUID userId, UUID cardId, Integer pageSize, String cursor);
 }
@@ -12,6 +12,7 @@ public interface UserService {
     UserDto findById(UUID id);
     List<UserDto> findAllUsers(Integer pageNumber, Integer pageSize, boolean ascending);
     void deleteUser(UUID userId);
+    void revokeTokens(UUID userId);
     void updateUser(UUID id, EditUserRequest request);
     BalanceDto getBalanceForUser(UUID id);
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.example.bankcards.service.groupcommit;
+
+import com.example.bankcards.exception.InternalException;
+import com.example.bankcards.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Gathers submissions from many callers into groups that are committed together, so the cost of a commit is
+ * shared by the whole group. A single committer thread takes the first waiting submission, keeps collecting for up
+ * to {@code maxDelay} or until the group holds {@code maxGroupSize} submissions, and hands the group to the commit
+ * function. Submissions arriving while a group commits wait for the next one, so groups grow with the load.
+ * <p>
+ * The commit function reports every submission's own outcome, and each caller blocks until its group has committed
+ * and gets its outcome back: it returns normally or throws its own failure. If the commit function itself throws,
+ * every submission of the group fails with that exception.
+ * <p>
+ * Past {@code maxPending} waiting submissions, the caller gets a {@link ServiceOverloadedException}. The number
+ * waiting is published as the {@code transfers.group_commit.pending} gauge, and the size of each committed group as
+ * the {@code transfers.group_commit.group_size} distribution summary.
+ */
+@Slf4j
+public class GroupCommitQueue<T> {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final BlockingQueue<Submission<T>> queue;
+    private final int maxGroupSize;
+    private final long maxDelayNanos;
+    private final Function<List<T>, List<? extends RuntimeException>> commit;
+    private final DistributionSummary groupSizes;
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    public GroupCommitQueue(int maxGroupSize, Duration maxDelay, int maxPending,
+                            Function<List<T>, List<? extends RuntimeException>> commit,
+                            MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(maxPending);
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.commit = commit;
+        this.groupSizes = DistributionSummary.builder("transfers.group_commit.group_size")
+                .description("Transfers committed together in one transaction")
+                .register(meterRegistry);
+        Gauge.builder("transfers.group_commit.pending", queue, BlockingQueue::size)
+                .description("Transfers waiting for their group to be committed")
+                .register(meterRegistry);
+        this.committer = new Thread(this::commitGroups, "transfer-group-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Adds the item to the next group and waits until that group has been committed.
+     *
+     * @throws RuntimeException the item's own failure, as reported by the commit function
+     */
+    public void submit(T item) {
+        if (!running) {
+            throw new ServiceOverloadedException("The service is shutting down, try again later.");
+        }
+        Submission<T> submission = new Submission<>(item, new CompletableFuture<>());
+        if (!queue.offer(submission)) {
+            throw new ServiceOverloadedException("Too many transfers in progress, try again later.");
+        }
+        if (!running && queue.remove(submission)) {
+            // shut down after the check above, possibly with nothing left to take this submission
+            throw new ServiceOverloadedException("The service is shutting down, try again later.");
+        }
+        try {
+            submission.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // the item stays in its group, the caller just doesn't learn the outcome
+            throw new InternalException("Interrupted while waiting for a transfer.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InternalException("Transfer failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * Stops taking submissions, commits the group in progress and fails whatever is still waiting.
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void commitGroups() {
+        try {
+            while (running) {
+                List<Submission<T>> group = nextGroup();
+                if (!group.isEmpty()) {
+                    commit(group);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            List<Submission<T>> abandoned = new ArrayList<>();
+            queue.drainTo(abandoned);
+            abandoned.forEach(submission -> submission.result().completeExceptionally(
+                    new ServiceOverloadedException("The service is shutting down, try again later.")));
+        }
+    }
+
+    private List<Submission<T>> nextGroup() throws InterruptedException {
+        Submission<T> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return List.of();
+        }
+        List<Submission<T>> group = new ArrayList<>(Math.min(maxGroupSize, 64));
+        group.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (group.size() < maxGroupSize) {
+            // whatever is already waiting joins without a timed wait
+            queue.drainTo(group, maxGroupSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxGroupSize || remaining <= 0) {
+                break;
+            }
+            Submission<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            group.add(next);
+        }
+        return group;
+    }
+
+    private void commit(List<Submission<T>> group) {
+        groupSizes.record(group.size());
+        List<? extends RuntimeException> failures;
+        try {
+            failures = commit.apply(group.stream().map(Submission::item).toList());
+        } catch (RuntimeException e) {
+            log.warn("A group of {} transfers failed to commit: {}", group.size(), e.getMessage());
+            group.forEach(submission -> submission.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            RuntimeException failure = failures.get(i);
+            if (failure == null) {
+                group.get(i).result().complete(null);
+            } else {
+                group.get(i).result().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private record Submission<T>(T item, CompletableFuture<Void> result) {
+    }
+}
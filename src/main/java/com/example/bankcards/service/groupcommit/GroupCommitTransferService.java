@@ -0,0 +1,126 @@
+package com.example.bankcards.service.groupcommit;
+
+import com.example.bankcards.dto.card.TransferHistoryDto;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.jpa.JpaTransferService;
+import com.example.bankcards.service.jpa.JpaTransferService.GroupedTransfer;
+import com.example.bankcards.service.jpa.TransferIdempotencyStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transfer engine that commits single transfers in groups, for deployments where the commit, and the log flush
+ * behind it, is what limits transfer throughput. Transfers are gathered on a {@link GroupCommitQueue} for a few
+ * milliseconds and made together by {@link JpaTransferService#transferGroup}, in one transaction; every caller still
+ * gets its own transfer's outcome. A transfer costs up to {@code max-delay} of extra latency, in exchange for one
+ * commit per group instead of one per transfer.
+ * <p>
+ * A group that fails as a whole, e.g. because one of its idempotency keys was committed meanwhile by another
+ * instance, is retried one transfer at a time, so only the transfer at fault fails. Batches and history reads go
+ * straight to the delegate: a batch already shares one commit.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.transfers.engine", havingValue = "group-commit")
+public class GroupCommitTransferService implements TransferService {
+
+    private final JpaTransferService delegate;
+    private final TransferIdempotencyStore transferIdempotencyStore;
+    private final GroupCommitQueue<GroupedTransfer> queue;
+
+    public GroupCommitTransferService(JpaTransferService delegate,
+                                      TransferIdempotencyStore transferIdempotencyStore,
+                                      @Value("${app.transfers.group-commit.max-group-size:100}") int maxGroupSize,
+                                      @Value("${app.transfers.group-commit.max-delay:2ms}") Duration maxDelay,
+                                      @Value("${app.transfers.group-commit.max-pending:10000}") int maxPending,
+                                      MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.transferIdempotencyStore = transferIdempotencyStore;
+        this.queue = new GroupCommitQueue<>(maxGroupSize, maxDelay, maxPending, this::commit, meterRegistry);
+    }
+
+    @Override
+    @PreAuthorize("(#userId.equals(authentication.principal.uuid))")
+    public void transferBetweenUserOwnedCards(UUID userId, TransferRequest request, String idempotencyKey) {
+        if (idempotencyKey != null && transferIdempotencyStore.isCompleted(userId, idempotencyKey,
+                TransferIdempotencyStore.requestHash(request))) {
+            return;
+        }
+        queue.submit(new GroupedTransfer(userId, request, idempotencyKey));
+    }
+
+    @Override
+    public void transferBatch(UUID userId, List<TransferRequest> transfers) {
+        delegate.transferBatch(userId, transfers);
+    }
+
+    @Override
+    public TransferHistoryDto getTransferHistory(UUID userId, UUID cardId, Integer pageSize, String cursor) {
+        return delegate.getTransferHistory(userId, cardId, pageSize, cursor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queue.shutdown();
+    }
+
+    List<RuntimeException> commit(List<GroupedTransfer> group) {
+        List<RuntimeException> failures;
+        try {
+            failures = delegate.transferGroup(group);
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                failures = Collections.singletonList(settle(group.get(0), e));
+            } else {
+                log.debug("A group of {} transfers failed, retrying them one at a time: {}", group.size(), e.getMessage());
+                failures = group.stream().map(this::commitAlone).toList();
+            }
+        }
+        for (int i = 0; i < group.size(); i++) {
+            GroupedTransfer transfer = group.get(i);
+            if (failures.get(i) == null && transfer.idempotencyKey() != null) {
+                transferIdempotencyStore.remember(transfer.userId(), transfer.idempotencyKey(),
+                        TransferIdempotencyStore.requestHash(transfer.request()));
+            }
+        }
+        return failures;
+    }
+
+    private RuntimeException commitAlone(GroupedTransfer transfer) {
+        try {
+            return delegate.transferGroup(List.of(transfer)).get(0);
+        } catch (RuntimeException e) {
+            return settle(transfer, e);
+        }
+    }
+
+    /**
+     * @return the failure to report for a transfer that failed on its own, or null if its idempotency key turns
+     * out to have completed the same request meanwhile
+     */
+    private RuntimeException settle(GroupedTransfer transfer, RuntimeException failure) {
+        if (!(failure instanceof DataIntegrityViolationException) || transfer.idempotencyKey() == null) {
+            return failure;
+        }
+        try {
+            return transferIdempotencyStore.isCompletedInStore(transfer.userId(), transfer.idempotencyKey(),
+                    TransferIdempotencyStore.requestHash(transfer.request())) ? null : failure;
+        } catch (RuntimeException reused) {
+            return reused;
+        }
+    }
+}
@@ -2,15 +2,20 @@ package com.example.bankcards.service.jpa;
 
 import com.example.bankcards.dto.security.JwtAuthResponse;
 import com.example.bankcards.dto.security.LoginRequest;
+import com.example.bankcards.dto.security.RefreshTokenRequest;
 import com.example.bankcards.dto.security.RegisterRequest;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.RoleName;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.InternalException;
+import com.example.bankcards.exception.security.InvalidRefreshTokenException;
 import com.example.bankcards.exception.user.UserAlreadyExistsException;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.RefreshTokenStore;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UuidUserDetails;
 import com.example.bankcards.service.AuthService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,9 +25,10 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.UUID;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -33,20 +39,27 @@ public class JpaAuthService implements AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final RoleRepository roleRepository;
+    private final RefreshTokenStore refreshTokenStore;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
 
+    /**
+     * Deliberately not transactional: a surrounding transaction would hold a connection
+     * for the whole BCrypt verify. The lookups and the refresh token write run in their own.
+     */
     @Override
-    @Transactional(readOnly = true)
     public JwtAuthResponse login(LoginRequest loginRequest) {
         return login(loginRequest.getUsername(), loginRequest.getPassword());
     }
 
-    @Transactional(readOnly = true, propagation = Propagation.REQUIRED)
     private JwtAuthResponse login(String username, String password) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(username, password)
         );
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        return new JwtAuthResponse(jwtTokenProvider.generateToken(authentication.getName()));
+        if (authentication.getPrincipal() instanceof UuidUserDetails userDetails) {
+            return issueTokens(userDetails);
+        }
+        return new JwtAuthResponse(jwtTokenProvider.generateToken(authentication.getName()), null);
     }
 
     @Override
@@ -63,7 +76,40 @@ public class JpaAuthService implements AuthService {
         Role userRole = roleRepository.findByName(RoleName.USER)
                 .orElseThrow(() -> new InternalException("Role 'USER' not found in database. Please initialize roles."));
         newUser.getRoles().add(userRole);
-        userRepository.save(newUser);
-        return login(registerRequest.getUsername(), registerRequest.getPassword());
+        User savedUser = userRepository.save(newUser);
+        // the password was hashed a moment ago, so re-authenticating would only repeat the BCrypt work
+        return issueTokens(UuidUserDetails.fromUser(savedUser));
+    }
+
+    @Override
+    @Transactional
+    public JwtAuthResponse refresh(RefreshTokenRequest refreshTokenRequest) {
+        UUID userId = refreshTokenStore.consume(jwtTokenProvider.hashRefreshToken(refreshTokenRequest.getRefreshToken()))
+                .orElseThrow(InvalidRefreshTokenException::new);
+        User user = userRepository.findById(userId)
+                .orElseThrow(InvalidRefreshTokenException::new);
+        return issueTokens(UuidUserDetails.fromUser(user));
+    }
+
+    /**
+     * Revokes the presented access token until it expires and drops the refresh token.
+     * Either may be missing or already invalid: logging out twice is not an error.
+     */
+    @Override
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            jwtTokenProvider.validateToken(accessToken).ifPresent(tokenRevocationRegistry::revokeToken);
+        }
+        if (refreshToken != null) {
+            refreshTokenStore.consume(jwtTokenProvider.hashRefreshToken(refreshToken));
+        }
+    }
+
+    private JwtAuthResponse issueTokens(UuidUserDetails userDetails) {
+        String refreshToken = jwtTokenProvider.generateRefreshToken();
+        refreshTokenStore.save(jwtTokenProvider.hashRefreshToken(refreshToken),
+                userDetails.getUuid(),
+                jwtTokenProvider.getRefreshTokenExpiry());
+        return new JwtAuthResponse(jwtTokenProvider.generateToken(userDetails), refreshToken);
     }
 }
@@ -1,6 +1,7 @@
 package com.example.bankcards.service.jpa;
 
 import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.CardNumberLookupRequest;
 import com.example.bankcards.dto.card.CardSearchRequest;
 import com.example.bankcards.dto.card.CreateCardRequest;
 import com.example.bankcards.dto.card.UpdateCardStatusRequest;
@@ -8,6 +9,7 @@ import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.RoleConsts;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.card.CardAlreadyExistsException;
 import com.example.bankcards.exception.card.CardNotFoundException;
 import com.example.bankcards.exception.card.CardNotOwnedByUserException;
 import com.example.bankcards.exception.card.CardStatusAlreadySetException;
@@ -19,7 +21,12 @@ import com.example.bankcards.repository.specification.CardSpecificationMapper;
 import com.example.bankcards.security.UuidUserDetails;
 import com.example.bankcards.service.CardService;
 import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardMaskingUtil;
+import com.example.bankcards.util.CardTokenizer;
+import com.example.bankcards.util.EncryptedCardNumber;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -32,6 +39,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 @Service
@@ -40,6 +48,7 @@ public class JpaCardService implements CardService {
 
     private final CardRepository cardRepository;
     private final CardEncryptionUtil cardEncryptionUtil;
+    private final CardTokenizer cardTokenizer;
     private final UserRepository userRepository;
     private final CardMapper cardMapper;
     private final CardSpecificationMapper cardSpecificationMapper;
@@ -47,6 +56,7 @@ public class JpaCardService implements CardService {
     private static final int MAX_PAGE_SIZE = 15;
     private static final int DEFAULT_PAGE_SIZE = 5;
     private static final int DEFAULT_PAGE = 0;
+    private static final String CARD_NUMBER_BLIND_INDEX_CONSTRAINT = "uq_cards_card_number_blind_index";
 
     @Override
     @Transactional
@@ -56,16 +66,35 @@ public class JpaCardService implements CardService {
             throw new UserNotFoundException(request.getOwnerId());
         }
 
+        String blindIndex = cardEncryptionUtil.blindIndex(request.getCardNumber());
+        if (cardRepository.existsByCardNumberBlindIndex(blindIndex)) {
+            throw new CardAlreadyExistsException();
+        }
+
         User proxyOwner = userRepository.getReferenceById(request.getOwnerId());
 
+        EncryptedCardNumber encryptedCardNumber = cardEncryptionUtil.encrypt(request.getCardNumber());
         Card card = new Card(
-                cardEncryptionUtil.encrypt(request.getCardNumber()),
+                encryptedCardNumber.getCiphertext(),
+                encryptedCardNumber.getKeyId(),
+                CardMaskingUtil.lastFour(request.getCardNumber()),
+                blindIndex,
+                cardTokenizer.issueToken(request.getCardNumber()),
                 proxyOwner,
                 request.getExpiryDate(),
                 CardStatus.ACTIVE,
                 request.getInitialBalance()
         );
-        Card savedCard = cardRepository.save(card);
+        Card savedCard;
+        try {
+            savedCard = cardRepository.saveAndFlush(card);
+        } catch (DataIntegrityViolationException e) {
+            // two concurrent creates can both pass the check above; the loser only finds out from the unique index
+            if (isCardNumberBlindIndexViolation(e)) {
+                throw new CardAlreadyExistsException();
+            }
+            throw e;
+        }
         return cardMapper.toDto(savedCard);
     }
 
@@ -101,6 +130,15 @@ public class JpaCardService implements CardService {
         return cardMapper.toDto(card);
     }
 
+    @Override
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
+    @Transactional(readOnly = true)
+    public CardDto findCardByNumber(CardNumberLookupRequest request) {
+        Card card = cardRepository.findByCardNumberBlindIndex(cardEncryptionUtil.blindIndex(request.getCardNumber()))
+                .orElseThrow(() -> new CardNotFoundException("Card not found with the given number."));
+        return cardMapper.toDto(card);
+    }
+
     @Override
     @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
     @Transactional
@@ -188,4 +226,11 @@ public class JpaCardService implements CardService {
             }
         }
     }
-}
\ No newline at end of file
+
+    private static boolean isCardNumberBlindIndexViolation(DataIntegrityViolationException e) {
+        // databases report the name in their own case, H2 also prefixed with the schema
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(CARD_NUMBER_BLIND_INDEX_CONSTRAINT);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.DetokenizeRequest;
+import com.example.bankcards.dto.card.DetokenizedCardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.RoleConsts;
+import com.example.bankcards.exception.card.CardNotFoundException;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.CardTokenService;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardTokenizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JpaCardTokenService implements CardTokenService {
+
+    private final CardRepository cardRepository;
+    private final CardTokenizer cardTokenizer;
+    private final CardEncryptionUtil cardEncryptionUtil;
+    private final CardMapper cardMapper;
+
+    @Override
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
+    @Transactional(readOnly = true)
+    public CardDto getCardDtoByToken(String cardToken) {
+        return cardMapper.toDto(findCardByToken(cardToken));
+    }
+
+    /**
+     * The only read path that decrypts a stored card number; every call is logged with the requesting admin.
+     */
+    @Override
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
+    @Transactional(readOnly = true)
+    public DetokenizedCardDto detokenize(DetokenizeRequest request) {
+        Card card = findCardByToken(request.getCardToken());
+        log.info("Card {} detokenized by {}.", card.getId(),
+                SecurityContextHolder.getContext().getAuthentication().getName());
+        return new DetokenizedCardDto(card.getId(), card.getCardToken(), cardEncryptionUtil.decrypt(card));
+    }
+
+    private Card findCardByToken(String cardToken) {
+        Optional<Card> card = cardTokenizer.findCardId(cardToken).flatMap(cardRepository::findById);
+        if (card.isEmpty()) {
+            // the card may have been deleted since its lookup was cached
+            cardTokenizer.evict(cardToken);
+        }
+        return card.orElseThrow(() -> new CardNotFoundException("Card not found with the given token."));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.security.DataKeyDto;
+import com.example.bankcards.dto.security.ReEncryptionStatusDto;
+import com.example.bankcards.entity.DataKey;
+import com.example.bankcards.entity.RoleConsts;
+import com.example.bankcards.job.CardReEncryptionJob;
+import com.example.bankcards.service.EncryptionKeyService;
+import com.example.bankcards.util.DataKeyManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class JpaEncryptionKeyService implements EncryptionKeyService {
+
+    private final DataKeyManager dataKeyManager;
+    private final CardReEncryptionJob cardReEncryptionJob;
+
+    /**
+     * New card numbers use the new key right away; existing rows are moved over by the re-encryption job.
+     */
+    @Override
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
+    public DataKeyDto rotateDataKey() {
+        DataKey dataKey = dataKeyManager.rotate();
+        return new DataKeyDto(dataKey.getId(), dataKey.getMasterKeyId(), dataKey.getCreatedAt());
+    }
+
+    @Override
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
+    public ReEncryptionStatusDto startReEncryption() {
+        return cardReEncryptionJob.start();
+    }
+
+    @Override
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
+    public ReEncryptionStatusDto getReEncryptionStatus() {
+        return cardReEncryptionJob.status();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.CreateScheduledTransferRequest;
+import com.example.bankcards.dto.card.ScheduledTransferDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.RoleConsts;
+import com.example.bankcards.entity.ScheduledTransfer;
+import com.example.bankcards.exception.card.CardNotOwnedByUserException;
+import com.example.bankcards.exception.card.InvalidCardOperationException;
+import com.example.bankcards.exception.card.ScheduledTransferNotFoundException;
+import com.example.bankcards.exception.user.UserNotFoundException;
+import com.example.bankcards.mapper.ScheduledTransferMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.ScheduledTransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.ScheduledTransferService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Card ownership is checked when a schedule is created; balances and card statuses only when it runs, by the
+ * transfer itself.
+ */
+@Service
+@RequiredArgsConstructor
+public class JpaScheduledTransferService implements ScheduledTransferService {
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final ScheduledTransferMapper scheduledTransferMapper;
+
+    @Override
+    @Transactional
+    @PreAuthorize("(#userId.equals(authentication.principal.uuid))")
+    public ScheduledTransferDto createScheduledTransfer(UUID userId, CreateScheduledTransferRequest request) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        if (request.getFromCardId().equals(request.getToCardId())) {
+            throw new InvalidCardOperationException("Can't transfer money to the same card.");
+        }
+        checkCardOwnership(userId, request.getFromCardId());
+        checkCardOwnership(userId, request.getToCardId());
+
+        // flushed, so the creation timestamp is set in the response
+        ScheduledTransfer scheduledTransfer = scheduledTransferRepository.saveAndFlush(new ScheduledTransfer(userId,
+                request.getFromCardId(), request.getToCardId(), request.getAmount(), request.getFrequency(),
+                request.getFirstRunAt()));
+        return scheduledTransferMapper.toDto(scheduledTransfer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "') or " +
+            "(#userId.equals(authentication.principal.uuid))")
+    public List<ScheduledTransferDto> getScheduledTransfers(UUID userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return scheduledTransferRepository.findAllByUserIdOrderByCreatedAtDesc(userId).stream()
+                .map(scheduledTransferMapper::toDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "') or " +
+            "(#userId.equals(authentication.principal.uuid))")
+    public void cancelScheduledTransfer(UUID userId, UUID scheduledTransferId) {
+        if (scheduledTransferRepository.cancelIfActive(scheduledTransferId, userId) == 0
+                && scheduledTransferRepository.findByIdAndUserId(scheduledTransferId, userId).isEmpty()) {
+            throw new ScheduledTransferNotFoundException(scheduledTransferId);
+        }
+    }
+
+    private void checkCardOwnership(UUID userId, UUID cardId) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new CardNotOwnedByUserException(cardId, userId));
+        if (!card.getOwner().getId().equals(userId)) {
+            throw new CardNotOwnedByUserException(cardId, userId);
+        }
+    }
+}
@@ -1,33 +1,89 @@
 package com.example.bankcards.service.jpa;
 
+import com.example.bankcards.dto.card.TransferDto;
+import com.example.bankcards.dto.card.TransferHistoryDto;
 import com.example.bankcards.dto.card.TransferRequest;
-import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.*;
 import com.example.bankcards.exception.card.CardNotOwnedByUserException;
+import com.example.bankcards.exception.card.ConcurrentCardUpdateException;
+import com.example.bankcards.exception.card.IdempotencyKeyReusedException;
 import com.example.bankcards.exception.card.InvalidCardOperationException;
 import com.example.bankcards.exception.user.UserNotFoundException;
+import com.example.bankcards.mapper.TransferMapper;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.service.TransferService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
 public class JpaTransferService implements TransferService {
 
+    /**
+     * Order in which transfers lock cards: unsigned, like the database orders UUIDs, so it agrees with
+     * {@code ORDER BY id} and two transfers always lock a shared pair of cards in the same order.
+     */
+    static final Comparator<UUID> CARD_LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int DEFAULT_PAGE_SIZE = 10;
+
     private final UserRepository userRepository;
     private final CardRepository cardRepository;
+    private final TransferRepository transferRepository;
+    private final TransferMapper transferMapper;
+    private final TransferTransactionRunner transferTransactionRunner;
+    private final TransferIdempotencyStore transferIdempotencyStore;
+    private final TransferBatchWriter transferBatchWriter;
 
     @Override
     @PreAuthorize("(#userId.equals(authentication.principal.uuid))")
-    @Transactional
-    public void transferBetweenUserOwnedCards(UUID userId, TransferRequest request) {
+    public void transferBetweenUserOwnedCards(UUID userId, TransferRequest request, String idempotencyKey) {
+        // the runner owns the transaction, so an optimistic conflict can roll back and start over
+        if (idempotencyKey == null) {
+            transferTransactionRunner.run(() -> transfer(userId, request));
+            return;
+        }
+
+        String requestHash = TransferIdempotencyStore.requestHash(request);
+        if (transferIdempotencyStore.isCompleted(userId, idempotencyKey, requestHash)) {
+            return;
+        }
+        try {
+            transferTransactionRunner.run(() -> {
+                // claimed before the cards are touched, so a duplicate in flight waits on the key, not on the cards
+                transferIdempotencyStore.claim(userId, idempotencyKey, requestHash);
+                transfer(userId, request);
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (transferIdempotencyStore.isCompletedInStore(userId, idempotencyKey, requestHash)) {
+                return;
+            }
+            throw e;
+        }
+        transferIdempotencyStore.remember(userId, idempotencyKey, requestHash);
+    }
+
+    private void transfer(UUID userId, TransferRequest request) {
+        if (transferTransactionRunner.mode() == TransferTransactionRunner.Mode.ATOMIC) {
+            transferAtomically(userId, request);
+            return;
+        }
         if (!userRepository.existsById(userId)) {
             throw new UserNotFoundException(userId);
         }
@@ -39,11 +95,260 @@ public class JpaTransferService implements TransferService {
             throw new InvalidCardOperationException("Can't transfer money to the same card.");
         }
 
-        Card fromCard = cardRepository.findById(fromId)
+        // in pessimistic mode both rows stay locked until commit, always taken in id order so opposite transfers
+        // can't deadlock; in optimistic mode the version check at commit detects a concurrent update instead
+        Card fromCard;
+        Card toCard;
+        if (CARD_LOCK_ORDER.compare(fromId, toId) < 0) {
+            fromCard = loadCard(fromId, userId);
+            toCard = loadCard(toId, userId);
+        } else {
+            toCard = loadCard(toId, userId);
+            fromCard = loadCard(fromId, userId);
+        }
+
+        checkTransfer(userId, fromCard, toCard, fromCard.getBalance(), request.getAmount());
+
+        fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
+        toCard.setBalance(toCard.getBalance().add(request.getAmount()));
+
+        cardRepository.save(fromCard);
+        cardRepository.save(toCard);
+        recordTransfer(userId, request);
+    }
+
+    /**
+     * Locks every card of the batch with one query, in the same order single transfers lock cards, whatever the
+     * concurrency mode. Only each card's net change has to be covered: a card may pay out money it receives earlier
+     * or later in the same batch.
+     */
+    @Override
+    @Transactional
+    @PreAuthorize("(#userId.equals(authentication.principal.uuid))")
+    public void transferBatch(UUID userId, List<TransferRequest> transfers) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+
+        Map<UUID, BigDecimal> deltas = new TreeMap<>(CARD_LOCK_ORDER);
+        for (TransferRequest transfer : transfers) {
+            if (transfer.getFromCardId().equals(transfer.getToCardId())) {
+                throw new InvalidCardOperationException("Can't transfer money to the same card.");
+            }
+            deltas.merge(transfer.getFromCardId(), transfer.getAmount().negate(), BigDecimal::add);
+            deltas.merge(transfer.getToCardId(), transfer.getAmount(), BigDecimal::add);
+        }
+
+        Map<UUID, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdForUpdate(deltas.keySet())) {
+            cards.put(card.getId(), card);
+        }
+        User userProxy = userRepository.getReferenceById(userId);
+        Map<UUID, BigDecimal> balances = new LinkedHashMap<>();
+        for (Map.Entry<UUID, BigDecimal> delta : deltas.entrySet()) {
+            Card card = cards.get(delta.getKey());
+            if (card == null || !card.getOwner().equals(userProxy)) {
+                throw new CardNotOwnedByUserException(delta.getKey(), userId);
+            }
+            if (card.getStatus() != CardStatus.ACTIVE) {
+                throw new InvalidCardOperationException("Card " + card.getId() + " is not active.");
+            }
+            BigDecimal balance = card.getBalance().add(delta.getValue());
+            if (balance.signum() < 0) {
+                throw new InvalidCardOperationException("Insufficient balance on card " + card.getId() + ".");
+            }
+            if (delta.getValue().signum() != 0) {
+                balances.put(card.getId(), balance);
+            }
+        }
+        transferBatchWriter.write(balances, transfers.stream()
+                .map(transfer -> new TransferBatchWriter.Entry(userId, transfer))
+                .toList());
+    }
+
+    /**
+     * Makes the transfers of a group, possibly of many users, in one transaction, so they share one commit.
+     * The cards of the whole group are locked with one query, in lock order, whatever the concurrency mode. Each
+     * transfer is then checked against the balances the transfers before it left, so a rejected transfer is just
+     * left out and doesn't roll back the others; the balances, ledger rows and idempotency keys of the transfers
+     * made are written with JDBC batches.
+     * <p>
+     * Not authorized here: callers must authorize each transfer before it joins a group.
+     *
+     * @return the failure of each transfer, in the order given, or null where it was made or, for an idempotency
+     * key that already completed the same request, replayed
+     */
+    @Transactional
+    public List<RuntimeException> transferGroup(List<GroupedTransfer> transfers) {
+        Set<UUID> userIds = new HashSet<>();
+        Set<UUID> cardIds = new TreeSet<>(CARD_LOCK_ORDER);
+        Set<String> idempotencyKeys = new HashSet<>();
+        for (GroupedTransfer transfer : transfers) {
+            userIds.add(transfer.userId());
+            cardIds.add(transfer.request().getFromCardId());
+            cardIds.add(transfer.request().getToCardId());
+            if (transfer.idempotencyKey() != null) {
+                idempotencyKeys.add(transfer.idempotencyKey());
+            }
+        }
+        Set<UUID> existingUserIds = userRepository.findExistingIds(userIds);
+        Map<UUID, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdForUpdate(cardIds)) {
+            cards.put(card.getId(), card);
+        }
+        Map<String, String> completedKeys = idempotencyKeys.isEmpty()
+                ? new HashMap<>()
+                : transferIdempotencyStore.findCompleted(userIds, idempotencyKeys);
+
+        Map<UUID, BigDecimal> balances = new TreeMap<>(CARD_LOCK_ORDER);
+        List<TransferBatchWriter.Entry> made = new ArrayList<>();
+        List<RuntimeException> failures = new ArrayList<>(transfers.size());
+        for (GroupedTransfer transfer : transfers) {
+            try {
+                UUID userId = transfer.userId();
+                TransferRequest request = transfer.request();
+                String requestHash = null;
+                String completedKey = null;
+                if (transfer.idempotencyKey() != null) {
+                    requestHash = TransferIdempotencyStore.requestHash(request);
+                    completedKey = TransferIdempotencyStore.cacheKey(userId, transfer.idempotencyKey());
+                    if (TransferIdempotencyStore.matches(completedKeys.get(completedKey), requestHash)) {
+                        failures.add(null);
+                        continue;
+                    }
+                }
+                if (!existingUserIds.contains(userId)) {
+                    throw new UserNotFoundException(userId);
+                }
+                UUID fromId = request.getFromCardId();
+                UUID toId = request.getToCardId();
+                if (fromId.equals(toId)) {
+                    throw new InvalidCardOperationException("Can't transfer money to the same card.");
+                }
+                Card fromCard = Optional.ofNullable(cards.get(fromId))
+                        .orElseThrow(() -> new CardNotOwnedByUserException(fromId, userId));
+                Card toCard = Optional.ofNullable(cards.get(toId))
+                        .orElseThrow(() -> new CardNotOwnedByUserException(toId, userId));
+                BigDecimal fromBalance = balances.getOrDefault(fromId, fromCard.getBalance());
+                checkTransfer(userId, fromCard, toCard, fromBalance, request.getAmount());
+
+                balances.put(fromId, fromBalance.subtract(request.getAmount()));
+                balances.put(toId, balances.getOrDefault(toId, toCard.getBalance()).add(request.getAmount()));
+                if (completedKey != null) {
+                    // a second use of the key later in the group is answered like a retry
+                    completedKeys.put(completedKey, requestHash);
+                }
+                made.add(new TransferBatchWriter.Entry(userId, request, transfer.idempotencyKey(), requestHash));
+                failures.add(null);
+            } catch (UserNotFoundException | CardNotOwnedByUserException | InvalidCardOperationException
+                     | IdempotencyKeyReusedException e) {
+                failures.add(e);
+            }
+        }
+        if (!made.isEmpty()) {
+            transferBatchWriter.write(balances, made);
+        }
+        return failures;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "') or " +
+            "(#userId.equals(authentication.principal.uuid))")
+    public TransferHistoryDto getTransferHistory(UUID userId, UUID cardId, Integer pageSize, String cursor) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        int size = pageSize == null || pageSize < 1 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        // one row past the page tells whether an older page exists
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Transfer> transfers;
+        if (cursor == null || cursor.isBlank()) {
+            transfers = cardId == null
+                    ? transferRepository.findLatestByUser(userId, limit)
+                    : transferRepository.findLatestByUserAndCard(userId, cardId, limit);
+        } else {
+            CursorPosition last = decodeCursor(cursor);
+            transfers = cardId == null
+                    ? transferRepository.findByUserBefore(userId, last.createdAt(), last.id(), limit)
+                    : transferRepository.findByUserAndCardBefore(userId, cardId, last.createdAt(), last.id(), limit);
+        }
+
+        boolean hasMore = transfers.size() > size;
+        List<TransferDto> page = transfers.stream().limit(size).map(transferMapper::toDto).toList();
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1)) : null;
+        return new TransferHistoryDto(page, nextCursor);
+    }
+
+    private static String encodeCursor(TransferDto last) {
+        String position = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static CursorPosition decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            return new CursorPosition(LocalDateTime.parse(position.substring(0, separator)),
+                    UUID.fromString(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid transfer history cursor.");
+        }
+    }
+
+    /**
+     * Two conditional UPDATEs whose row counts are the validation, so a successful transfer never reads the cards.
+     * The statements run in card id order, so opposite transfers lock the two rows in the same order; if either
+     * matches no row, the exception thrown rolls back the other one.
+     */
+    private void transferAtomically(UUID userId, TransferRequest request) {
+        UUID fromId = request.getFromCardId();
+        UUID toId = request.getToCardId();
+        if (fromId.equals(toId)) {
+            throw new InvalidCardOperationException("Can't transfer money to the same card.");
+        }
+
+        BigDecimal amount = request.getAmount();
+        boolean applied = CARD_LOCK_ORDER.compare(fromId, toId) < 0
+                ? cardRepository.debitIfActiveAndCovered(fromId, userId, amount) == 1
+                        && cardRepository.creditIfActive(toId, userId, amount) == 1
+                : cardRepository.creditIfActive(toId, userId, amount) == 1
+                        && cardRepository.debitIfActiveAndCovered(fromId, userId, amount) == 1;
+        if (!applied) {
+            throw explainRejection(userId, request);
+        }
+        recordTransfer(userId, request);
+    }
+
+    // same transaction as the balance changes, so the ledger never misses or invents a transfer
+    private void recordTransfer(UUID userId, TransferRequest request) {
+        transferRepository.save(new Transfer(userId, request.getFromCardId(), request.getToCardId(), request.getAmount()));
+    }
+
+    /**
+     * Reads the cards to tell the caller which guard of {@link #transferAtomically} failed.
+     */
+    private RuntimeException explainRejection(UUID userId, TransferRequest request) {
+        if (!userRepository.existsById(userId)) {
+            return new UserNotFoundException(userId);
+        }
+        Card fromCard = cardRepository.findById(request.getFromCardId())
                 .orElseThrow(() -> new CardNotOwnedByUserException(request.getFromCardId(), userId));
-        Card toCard = cardRepository.findById(toId)
+        Card toCard = cardRepository.findById(request.getToCardId())
                 .orElseThrow(() -> new CardNotOwnedByUserException(request.getToCardId(), userId));
+        checkTransfer(userId, fromCard, toCard, fromCard.getBalance(), request.getAmount());
+        // every guard holds again, so a concurrent transfer or status change got in between
+        return new ConcurrentCardUpdateException();
+    }
+
+    private Card loadCard(UUID cardId, UUID userId) {
+        Optional<Card> card = transferTransactionRunner.mode() == TransferTransactionRunner.Mode.PESSIMISTIC
+                ? cardRepository.findByIdForUpdate(cardId)
+                : cardRepository.findById(cardId);
+        return card.orElseThrow(() -> new CardNotOwnedByUserException(cardId, userId));
+    }
 
+    private void checkTransfer(UUID userId, Card fromCard, Card toCard, BigDecimal fromBalance, BigDecimal amount) {
         checkCardsForOwnership(userId, fromCard, toCard);
 
         if (fromCard.getStatus() != CardStatus.ACTIVE) {
@@ -52,15 +357,9 @@ public class JpaTransferService implements TransferService {
         if (toCard.getStatus() != CardStatus.ACTIVE) {
             throw new InvalidCardOperationException("Destination card is not active.");
         }
-        if (fromCard.getBalance().compareTo(request.getAmount()) < 0) {
+        if (fromBalance.compareTo(amount) < 0) {
             throw new InvalidCardOperationException("Insufficient balance on source card.");
         }
-
-        fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
-        toCard.setBalance(toCard.getBalance().add(request.getAmount()));
-
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
     }
 
     private void checkCardsForOwnership(UUID userToCheck, Card... cards) {
@@ -71,4 +370,13 @@ public class JpaTransferService implements TransferService {
             }
         }
     }
+
+    private record CursorPosition(LocalDateTime createdAt, UUID id) {
+    }
+
+    /**
+     * A transfer waiting to be made as part of a {@link #transferGroup group}.
+     */
+    public record GroupedTransfer(UUID userId, TransferRequest request, String idempotencyKey) {
+    }
 }
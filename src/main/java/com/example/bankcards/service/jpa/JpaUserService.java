@@ -10,6 +10,9 @@ import com.example.bankcards.exception.user.UserNotFoundException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RefreshTokenStore;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UserPrincipalCache;
 import com.example.bankcards.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
@@ -29,6 +32,9 @@ public class JpaUserService implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final CardRepository cardRepository;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final UserPrincipalCache userPrincipalCache;
+    private final RefreshTokenStore refreshTokenStore;
 
     private static final int MAX_PAGE_SIZE = 50;
     private static final int DEFAULT_PAGE_SIZE = 10;
@@ -67,7 +73,20 @@ public class JpaUserService implements UserService {
         if (!userRepository.existsById(userId)) {
             throw new UserNotFoundException(userId);
         }
+        refreshTokenStore.revokeAllForUser(userId);
         userRepository.deleteById(userId);
+        tokenRevocationRegistry.revokeAllForUser(userId);
+        userPrincipalCache.evictAfterCommit(userId);
+    }
+
+    @Override
+    @PreAuthorize("hasRole('" + RoleConsts.ADMIN + "')")
+    public void revokeTokens(UUID userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        refreshTokenStore.revokeAllForUser(userId);
+        tokenRevocationRegistry.revokeAllForUser(userId);
     }
 
     @Transactional
@@ -77,6 +96,7 @@ public class JpaUserService implements UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
         changeUsername(user, request.getUsername());
+        userPrincipalCache.evictAfterCommit(id);
     }
 
     @Override
@@ -99,6 +119,7 @@ public class JpaUserService implements UserService {
             throw new UserAlreadyExistsException(newUsername);
         }
         user.setUsername(newUsername);
+        tokenRevocationRegistry.revokeAllForUser(user.getId());
     }
 
     private PageRequest buildPageRequest(Integer pageNumber, Integer pageSize, Sort.Order... orders) {
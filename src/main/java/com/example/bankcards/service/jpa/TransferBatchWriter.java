@@ -0,0 +1,66 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes a batch of transfers with JDBC batches, one for the card balances, one for the ledger and one for the
+ * idempotency keys, instead of a statement per card and per transfer. Runs in the caller's transaction, which must
+ * hold the card row locks.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransferBatchWriter {
+
+    // the version still moves, so optimistic transfers reading these cards meanwhile fail their check and retry
+    private static final String SET_BALANCE = "UPDATE cards SET balance = ?, version = version + 1 WHERE id = ?";
+    private static final String INSERT_TRANSFER = "INSERT INTO transfers (id, user_id, from_card_id, to_card_id, "
+            + "amount, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IDEMPOTENCY_KEY = "INSERT INTO transfer_idempotency_keys (id, user_id, "
+            + "idempotency_key, request_hash, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void write(Map<UUID, BigDecimal> balances, List<Entry> transfers) {
+        List<Object[]> balanceUpdates = new ArrayList<>(balances.size());
+        balances.forEach((cardId, balance) -> balanceUpdates.add(new Object[]{balance, cardId}));
+        jdbcTemplate.batchUpdate(SET_BALANCE, balanceUpdates);
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<Object[]> ledgerRows = new ArrayList<>(transfers.size());
+        List<Object[]> idempotencyKeys = new ArrayList<>();
+        for (Entry entry : transfers) {
+            TransferRequest transfer = entry.transfer();
+            ledgerRows.add(new Object[]{UUID.randomUUID(), entry.userId(), transfer.getFromCardId(),
+                    transfer.getToCardId(), transfer.getAmount(), createdAt});
+            if (entry.idempotencyKey() != null) {
+                idempotencyKeys.add(new Object[]{UUID.randomUUID(), entry.userId(), entry.idempotencyKey(),
+                        entry.requestHash(), createdAt});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSFER, ledgerRows);
+        if (!idempotencyKeys.isEmpty()) {
+            // a key committed meanwhile outside the batch fails the whole batch with a DataIntegrityViolationException
+            jdbcTemplate.batchUpdate(INSERT_IDEMPOTENCY_KEY, idempotencyKeys);
+        }
+    }
+
+    /**
+     * A transfer to record, with the idempotency key it claims, if any.
+     */
+    public record Entry(UUID userId, TransferRequest transfer, String idempotencyKey, String requestHash) {
+
+        public Entry(UUID userId, TransferRequest transfer) {
+            this(userId, transfer, null, null);
+        }
+    }
+}
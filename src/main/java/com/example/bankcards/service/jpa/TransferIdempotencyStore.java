@@ -0,0 +1,138 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.exception.card.IdempotencyKeyReusedException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.example.bankcards.security.TokenHashing;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Idempotency keys of completed transfers, so a retried request is answered without running the transfer again.
+ * <p>
+ * The {@code transfer_idempotency_keys} table is the source of truth: a transfer claims its key first thing in its
+ * own transaction, so the key is committed exactly when the money moved, and the unique index makes a duplicate in
+ * flight wait for the first one and then fail instead of moving the money twice. A rejected transfer rolls its
+ * claim back, so a retry runs it again. Completed keys are also held in a size-bounded LRU cache, published as
+ * {@code cache.*} metrics under the name "transferIdempotencyKeys", so most retries don't reach the database.
+ * Keys are kept for the configured retention, after which the same key starts a new transfer.
+ */
+@Slf4j
+@Component
+public class TransferIdempotencyStore {
+
+    private final TransferIdempotencyKeyRepository repository;
+    private final Duration retention;
+    // "userId:key" to the hash of the completed request
+    private final Cache<String, String> completed;
+
+    public TransferIdempotencyStore(TransferIdempotencyKeyRepository repository,
+                                    @Value("${app.transfers.idempotency.retention:PT24H}") Duration retention,
+                                    @Value("${app.transfers.idempotency.cache-max-size:100000}") long cacheMaxSize,
+                                    MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.retention = retention;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "transferIdempotencyKeys");
+    }
+
+    public static String requestHash(TransferRequest request) {
+        return TokenHashing.sha256(request.getFromCardId() + ":" + request.getToCardId() + ":"
+                + request.getAmount().stripTrailingZeros().toPlainString());
+    }
+
+    /**
+     * Checks the cache only; a key it doesn't hold is settled by {@link #claim}.
+     *
+     * @return whether a transfer with this key and request has completed
+     * @throws IdempotencyKeyReusedException if the key completed a different request
+     */
+    public boolean isCompleted(UUID userId, String idempotencyKey, String requestHash) {
+        return matches(completed.getIfPresent(cacheKey(userId, idempotencyKey)), requestHash);
+    }
+
+    /**
+     * Inserts the key in the surrounding transaction and flushes it, so a duplicate fails here, before any money
+     * moves, with a {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    public void claim(UUID userId, String idempotencyKey, String requestHash) {
+        repository.saveAndFlush(new TransferIdempotencyKey(userId, idempotencyKey, requestHash));
+    }
+
+    /**
+     * Looks the key up after a failed {@link #claim}.
+     *
+     * @return whether a transfer with this key and request has completed
+     * @throws IdempotencyKeyReusedException if the key completed a different request
+     */
+    public boolean isCompletedInStore(UUID userId, String idempotencyKey, String requestHash) {
+        Optional<String> storedHash = repository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(TransferIdempotencyKey::getRequestHash);
+        storedHash.ifPresent(hash -> completed.put(cacheKey(userId, idempotencyKey), hash));
+        return matches(storedHash.orElse(null), requestHash);
+    }
+
+    /**
+     * Looks up every completed key of the given users among the given keys with one query, for a group of
+     * transfers; a pair that isn't asked for may be returned too.
+     *
+     * @return the request hash of each completed key, by {@link #cacheKey}
+     */
+    public Map<String, String> findCompleted(Collection<UUID> userIds, Collection<String> idempotencyKeys) {
+        Map<String, String> found = new HashMap<>();
+        for (TransferIdempotencyKey key : repository.findAllByUserIdInAndIdempotencyKeyIn(userIds, idempotencyKeys)) {
+            found.put(cacheKey(key.getUserId(), key.getIdempotencyKey()), key.getRequestHash());
+        }
+        return found;
+    }
+
+    /**
+     * Caches a key once the transfer that claimed it has committed.
+     */
+    public void remember(UUID userId, String idempotencyKey, String requestHash) {
+        completed.put(cacheKey(userId, idempotencyKey), requestHash);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.transfers.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = repository.deleteAllCreatedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.debug("Removed {} expired transfer idempotency keys.", deleted);
+        }
+    }
+
+    static boolean matches(String storedHash, String requestHash) {
+        if (storedHash == null) {
+            return false;
+        }
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyReusedException();
+        }
+        return true;
+    }
+
+    static String cacheKey(UUID userId, String idempotencyKey) {
+        return userId + ":" + idempotencyKey;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.exception.card.ConcurrentCardUpdateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs each transfer in its own transaction under the configured concurrency mode.
+ * <p>
+ * {@code atomic} moves the money with two conditional UPDATEs, so each row is locked for a single statement and a
+ * transfer never conflicts. {@code pessimistic} locks both card rows for the whole transaction. {@code optimistic}
+ * reads them without locks and relies on the card version check at commit: a transfer that lost the race is rolled
+ * back and run again after a jittered exponential backoff, up to a bounded number of attempts. Retries and transfers
+ * that ran out of attempts are counted as {@code transfers.optimistic.retries} and
+ * {@code transfers.optimistic.exhausted}; a high retry rate means the deployment's contention is better served by
+ * another mode.
+ */
+@Component
+public class TransferTransactionRunner {
+
+    public enum Mode {
+        ATOMIC,
+        PESSIMISTIC,
+        OPTIMISTIC
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final Mode mode;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public TransferTransactionRunner(TransactionTemplate transactionTemplate,
+                                     @Value("${app.transfers.concurrency-mode:atomic}") Mode mode,
+                                     @Value("${app.transfers.optimistic.max-attempts:5}") int maxAttempts,
+                                     @Value("${app.transfers.optimistic.initial-backoff-ms:5}") long initialBackoffMillis,
+                                     @Value("${app.transfers.optimistic.max-backoff-ms:100}") long maxBackoffMillis,
+                                     MeterRegistry meterRegistry) {
+        this.transactionTemplate = transactionTemplate;
+        this.mode = mode;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retries = Counter.builder("transfers.optimistic.retries")
+                .description("Transfers rolled back on a card version conflict and run again")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("transfers.optimistic.exhausted")
+                .description("Transfers rejected after every attempt hit a card version conflict")
+                .register(meterRegistry);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * @throws ConcurrentCardUpdateException if every optimistic attempt conflicted with another update
+     */
+    public void run(Runnable transfer) {
+        if (mode != Mode.OPTIMISTIC) {
+            transactionTemplate.executeWithoutResult(status -> transfer.run());
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> transfer.run());
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw new ConcurrentCardUpdateException();
+                }
+                retries.increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    // full jitter, so transfers that collided once don't collide again in lockstep
+    private void backOff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 16));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentCardUpdateException();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.service.lane;
+
+import com.example.bankcards.exception.InternalException;
+import com.example.bankcards.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs work keyed by card ids so that work sharing a card runs one at a time, in arrival order, while work on
+ * disjoint cards runs in parallel. Every card has a chain of futures: a submission starts once the previous
+ * submission of each of its cards has finished, on its own virtual thread. Conflicting work thus waits in memory
+ * instead of on a database row lock with a pooled connection held. A chain is dropped as soon as it runs empty.
+ * <p>
+ * Past {@code maxPending} queued or running submissions, or when a submission hasn't started within
+ * {@code maxQueueWait}, the caller gets a {@link ServiceOverloadedException} and the work never runs.
+ * The number in flight is published as the {@code transfers.lanes.pending} gauge.
+ */
+public class CardLanes {
+
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+
+    // guarded by this; a few map operations per submission, the work itself runs outside
+    private final Map<UUID, CompletableFuture<Void>> tails = new HashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final long maxQueueWaitMillis;
+
+    public CardLanes(int maxPending, Duration maxQueueWait, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxPending);
+        this.maxQueueWaitMillis = maxQueueWait.toMillis();
+        Gauge.builder("transfers.lanes.pending", permits, semaphore -> maxPending - semaphore.availablePermits())
+                .description("Transfers queued or running on card lanes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the work after all earlier work on any of the cards, with the caller's security context, and waits for it.
+     */
+    public <T> T run(Collection<UUID> cardIds, Supplier<T> work) {
+        if (!permits.tryAcquire()) {
+            throw new ServiceOverloadedException("Too many transfers in progress, try again later.");
+        }
+        AtomicInteger state = new AtomicInteger(PENDING);
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        CompletableFuture<T> result;
+        try {
+            result = enqueue(Set.copyOf(cardIds), () -> {
+                if (!state.compareAndSet(PENDING, RUNNING)) {
+                    // the caller gave up waiting
+                    return null;
+                }
+                SecurityContextHolder.setContext(securityContext);
+                try {
+                    return work.get();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        result.whenComplete((value, failure) -> permits.release());
+        return await(result, state);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private synchronized <T> CompletableFuture<T> enqueue(Set<UUID> cardIds, Supplier<T> task) {
+        CompletableFuture<?>[] predecessors = cardIds.stream()
+                .map(tails::get)
+                .filter(Objects::nonNull)
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture<T> result = CompletableFuture.allOf(predecessors).thenApplyAsync(ignored -> task.get(), executor);
+        // the chain moves on whether the work succeeded or not
+        CompletableFuture<Void> tail = result.handle((value, failure) -> null);
+        for (UUID cardId : cardIds) {
+            tails.put(cardId, tail);
+        }
+        tail.whenComplete((value, failure) -> release(cardIds, tail));
+        return result;
+    }
+
+    private synchronized void release(Set<UUID> cardIds, CompletableFuture<Void> tail) {
+        for (UUID cardId : cardIds) {
+            tails.remove(cardId, tail);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> result, AtomicInteger state) {
+        try {
+            try {
+                return result.get(maxQueueWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (state.compareAndSet(PENDING, ABANDONED)) {
+                    throw new ServiceOverloadedException("The card is busy with other transfers, try again later.");
+                }
+                // already running, so its outcome is near
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.compareAndSet(PENDING, ABANDONED);
+            throw new InternalException("Interrupted while waiting for a transfer.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new InternalException("Transfer failed: " + e.getCause());
+        }
+    }
+}
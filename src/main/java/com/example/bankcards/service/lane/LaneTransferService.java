@@ -0,0 +1,74 @@
+package com.example.bankcards.service.lane;
+
+import com.example.bankcards.dto.card.TransferHistoryDto;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.jpa.JpaTransferService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-process transfer engine for deployments where a few cards take most of the transfers. Transfers sharing a card
+ * are ordered on {@link CardLanes} and reach {@link JpaTransferService} one at a time, so they stop piling up on
+ * the card's row lock, each holding a pooled connection.
+ * <p>
+ * The lanes only order the transfers of one instance; the delegate still runs every transfer under the configured
+ * concurrency mode, so correctness across instances doesn't depend on them.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.transfers.engine", havingValue = "lanes")
+public class LaneTransferService implements TransferService {
+
+    private final JpaTransferService delegate;
+    private final CardLanes lanes;
+
+    public LaneTransferService(JpaTransferService delegate,
+                               @Value("${app.transfers.lanes.max-pending:10000}") int maxPending,
+                               @Value("${app.transfers.lanes.max-queue-wait:PT5S}") Duration maxQueueWait,
+                               MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.lanes = new CardLanes(maxPending, maxQueueWait, meterRegistry);
+    }
+
+    @Override
+    public void transferBetweenUserOwnedCards(UUID userId, TransferRequest request, String idempotencyKey) {
+        lanes.run(List.of(request.getFromCardId(), request.getToCardId()), () -> {
+            delegate.transferBetweenUserOwnedCards(userId, request, idempotencyKey);
+            return null;
+        });
+    }
+
+    @Override
+    public void transferBatch(UUID userId, List<TransferRequest> transfers) {
+        Set<UUID> cardIds = new HashSet<>();
+        for (TransferRequest transfer : transfers) {
+            cardIds.add(transfer.getFromCardId());
+            cardIds.add(transfer.getToCardId());
+        }
+        lanes.run(cardIds, () -> {
+            delegate.transferBatch(userId, transfers);
+            return null;
+        });
+    }
+
+    @Override
+    public TransferHistoryDto getTransferHistory(UUID userId, UUID cardId, Integer pageSize, String cursor) {
+        return delegate.getTransferHistory(userId, cardId, pageSize, cursor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdown();
+    }
+}
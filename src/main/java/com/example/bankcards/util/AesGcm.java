@@ -0,0 +1,97 @@
+package com.example.bankcards.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * AES-GCM with a random 96-bit nonce prepended to the ciphertext and tag.
+ * <p>
+ * Each thread reuses one {@link Cipher} and one random source: {@code Cipher.getInstance} walks the provider list
+ * on every call, and re-initializing a cipher with the key it last used skips the AES key expansion.
+ * A fresh nonce is drawn for every encryption, so reuse never repeats a key and nonce pair.
+ */
+final class AesGcm {
+
+    static final int KEY_BYTES = 32;
+    static final int IV_BYTES = 12;
+    static final int TAG_BYTES = 16;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    });
+    // per thread, so nonce generation doesn't serialize concurrent encryptions on one lock
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ThreadLocal<byte[]> NONCE = ThreadLocal.withInitial(() -> new byte[IV_BYTES]);
+
+    private AesGcm() {
+    }
+
+    static byte[] encrypt(SecretKey key, byte[] plaintext, byte[] associatedData) {
+        return encrypt(key, plaintext, plaintext.length, associatedData);
+    }
+
+    /**
+     * Encrypts the first {@code length} bytes of {@code plaintext} straight into the returned array.
+     */
+    static byte[] encrypt(SecretKey key, byte[] plaintext, int length, byte[] associatedData) {
+        byte[] out = new byte[IV_BYTES + length + TAG_BYTES];
+        writeNonce(out);
+        try {
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, out, 0, IV_BYTES));
+            if (associatedData != null) {
+                cipher.updateAAD(associatedData);
+            }
+            cipher.doFinal(plaintext, 0, length, out, IV_BYTES);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM encryption failed", e);
+        }
+    }
+
+    static byte[] decrypt(SecretKey key, byte[] ciphertext, byte[] associatedData) {
+        byte[] out = new byte[plaintextLength(ciphertext)];
+        decrypt(key, ciphertext, out, associatedData);
+        return out;
+    }
+
+    /**
+     * Decrypts into {@code out}, which must hold at least {@link #plaintextLength} bytes.
+     *
+     * @return the number of plaintext bytes written
+     */
+    static int decrypt(SecretKey key, byte[] ciphertext, byte[] out, byte[] associatedData) {
+        if (ciphertext.length < IV_BYTES + TAG_BYTES) {
+            throw new IllegalStateException("AES-GCM ciphertext is too short");
+        }
+        try {
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, ciphertext, 0, IV_BYTES));
+            if (associatedData != null) {
+                cipher.updateAAD(associatedData);
+            }
+            return cipher.doFinal(ciphertext, IV_BYTES, ciphertext.length - IV_BYTES, out, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM decryption failed", e);
+        }
+    }
+
+    static int plaintextLength(byte[] ciphertext) {
+        return Math.max(0, ciphertext.length - IV_BYTES - TAG_BYTES);
+    }
+
+    // drawn into a per-thread array and copied, as SecureRandom can't fill a slice of the output
+    private static void writeNonce(byte[] out) {
+        byte[] nonce = NONCE.get();
+        RANDOM.get().nextBytes(nonce);
+        System.arraycopy(nonce, 0, out, 0, IV_BYTES);
+    }
+}
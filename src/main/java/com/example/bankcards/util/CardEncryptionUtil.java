@@ -1,48 +1,193 @@
 package com.example.bankcards.util;
 
+import com.example.bankcards.entity.Card;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.encrypt.BytesEncryptor;
 import org.springframework.security.crypto.encrypt.Encryptors;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.UUID;
 
+/**
+ * Envelope encryption of card numbers: each number is encrypted with AES-GCM under a data key managed by the
+ * {@link DataKeyManager}, and stored as binary together with that key's id. Rows still holding a Base64 text
+ * ciphertext are read as before until the re-encryption job has moved them; those without a key id predate
+ * envelope encryption and use the legacy secret and salt, falling back to {@code app.encryption.previous-secret}
+ * and {@code previous-salt} while a rotation of either is in progress.
+ */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class CardEncryptionUtil {
 
+    private final DataKeyManager dataKeyManager;
+
     @Value("${app.encryption.secret}")
     private String secretKey;
 
     @Value("${app.encryption.salt}")
     private String salt;
 
-    private BytesEncryptor bytesEncryptor;
+    // blank when not rotating; each falls back to the current value, so only the one that changed needs setting
+    @Value("${app.encryption.previous-secret:}")
+    private String previousSecretKey = "";
+
+    @Value("${app.encryption.previous-salt:}")
+    private String previousSalt = "";
+
+    @Value("${app.encryption.blind-index-key:}")
+    private String blindIndexKey;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // sized for card numbers; grown per thread if a longer value ever comes along
+    private static final ThreadLocal<byte[]> PLAINTEXT_BUFFER = ThreadLocal.withInitial(() -> new byte[32]);
+
+    private BytesEncryptor legacyEncryptor;
+    // null unless the secret or salt is being rotated
+    private BytesEncryptor previousLegacyEncryptor;
+    // Mac instances are stateful, so each thread keeps its own
+    private ThreadLocal<Mac> blindIndexMac;
 
     @PostConstruct
     public void init() {
-        this.bytesEncryptor = Encryptors.stronger(secretKey, salt);
+        this.legacyEncryptor = Encryptors.stronger(secretKey, salt);
+        if (!previousSecretKey.isBlank() || !previousSalt.isBlank()) {
+            this.previousLegacyEncryptor = Encryptors.stronger(previousSecretKey.isBlank() ? secretKey : previousSecretKey,
+                    previousSalt.isBlank() ? salt : previousSalt);
+        }
+        if (blindIndexKey.isBlank()) {
+            // a key derived from the encryption secret would change every blind index when the secret is rotated
+            throw new IllegalStateException("app.encryption.blind-index-key must be set: card number lookups and "
+                    + "duplicate checks depend on it, and it must stay the same when the encryption secret changes");
+        }
+        SecretKeySpec macKey = new SecretKeySpec(blindIndexKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.blindIndexMac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(macKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        });
     }
 
-    public String encrypt(String text) {
+    /**
+     * @return the binary ciphertext, whose array is the only allocation besides the result holder
+     */
+    public EncryptedCardNumber encrypt(String text) {
         if (text == null || text.isEmpty()) {
-            return text;
+            return null;
+        }
+        DataKeyManager.ActiveKey key = dataKeyManager.activeKey();
+        byte[] buffer = plaintextBuffer(text.length());
+        try {
+            int length = encodeAscii(text, buffer);
+            byte[] encryptedBytes = length >= 0
+                    ? AesGcm.encrypt(key.key(), buffer, length, null)
+                    : AesGcm.encrypt(key.key(), text.getBytes(StandardCharsets.UTF_8), null);
+            return new EncryptedCardNumber(key.id(), encryptedBytes);
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
         }
-        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
-        byte[] encryptedBytes = bytesEncryptor.encrypt(bytes);
+    }
 
-        return Base64.getEncoder().encodeToString(encryptedBytes);
+    /**
+     * Deterministic keyed digest of a card number: equal numbers always map to the same value, so it can be indexed
+     * and searched, while the number can't be recovered or brute-forced from it without the key.
+     *
+     * @return the unpadded base64url HMAC-SHA256 of the digits, 43 characters long
+     */
+    public String blindIndex(String cardNumber) {
+        if (cardNumber == null || cardNumber.isEmpty()) {
+            return null;
+        }
+        byte[] digest = blindIndexMac.get().doFinal(normalize(cardNumber).getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
     }
-    public String decrypt(String text) {
+
+    /**
+     * Reads the binary ciphertext, or the Base64 text column on rows the re-encryption job hasn't moved yet.
+     */
+    public String decrypt(Card card) {
+        return card.getCardNumberCiphertext() != null
+                ? decrypt(card.getCardNumberKeyId(), card.getCardNumberCiphertext())
+                : decryptText(card.getCardNumberKeyId(), card.getEncryptedCardNumber());
+    }
+
+    /**
+     * Decrypts into a per-thread buffer, so the resulting String is the only allocation.
+     */
+    public String decrypt(UUID keyId, byte[] ciphertext) {
+        if (ciphertext == null || ciphertext.length == 0) {
+            return null;
+        }
+        byte[] buffer = plaintextBuffer(AesGcm.plaintextLength(ciphertext));
+        try {
+            int length = AesGcm.decrypt(dataKeyManager.key(keyId), ciphertext, buffer, null);
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        } finally {
+            Arrays.fill(buffer, (byte) 0);
+        }
+    }
+
+    /**
+     * @param keyId the data key the number was encrypted with, or {@code null} for legacy ciphertexts
+     */
+    public String decryptText(UUID keyId, String text) {
         if (text == null || text.isEmpty()) {
             return text;
         }
         byte[] encryptedBytes = Base64.getDecoder().decode(text);
-        byte[] decryptedBytes = bytesEncryptor.decrypt(encryptedBytes);
+        if (keyId != null) {
+            return decrypt(keyId, encryptedBytes);
+        }
+        try {
+            return new String(legacyEncryptor.decrypt(encryptedBytes), StandardCharsets.UTF_8);
+        } catch (IllegalStateException e) {
+            // AES-GCM rejects a ciphertext made under the other secret or salt
+            if (previousLegacyEncryptor == null) {
+                throw e;
+            }
+            return new String(previousLegacyEncryptor.decrypt(encryptedBytes), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] plaintextBuffer(int length) {
+        byte[] buffer = PLAINTEXT_BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new byte[length];
+            PLAINTEXT_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Card numbers are digits, so the common case is a plain char-to-byte copy without a temporary array.
+     *
+     * @return the number of bytes written, or -1 if the text isn't ASCII and must be encoded as UTF-8
+     */
+    private static int encodeAscii(String text, byte[] buffer) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c > 0x7F) {
+                return -1;
+            }
+            buffer[i] = (byte) c;
+        }
+        return text.length();
+    }
 
-        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    private static String normalize(String cardNumber) {
+        return cardNumber.replaceAll("[\\s-]", "");
     }
 }
@@ -1,10 +1,23 @@
 package com.example.bankcards.util;
 
 public class CardMaskingUtil {
+    private static final String MASK_PREFIX = "**** **** **** ";
+
     public static String maskCardNumber(String cardNumber) {
         if (cardNumber == null || cardNumber.length() < 4) {
             return cardNumber;
         }
-        return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
+        return maskLastFour(lastFour(cardNumber));
+    }
+
+    public static String lastFour(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() < 4) {
+            return null;
+        }
+        return cardNumber.substring(cardNumber.length() - 4);
+    }
+
+    public static String maskLastFour(String lastFour) {
+        return MASK_PREFIX + lastFour;
     }
 }
\ No newline at end of file
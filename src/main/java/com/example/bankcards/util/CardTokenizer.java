@@ -0,0 +1,105 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.repository.CardRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Format-preserving surrogate tokens for card numbers. A token has the length of the number and keeps its last four
+ * digits, so it fits wherever a number is expected, but the other digits are random and the token never passes the
+ * Luhn check, so it can't be mistaken for a real card number. Tokens are not derived from the number: only the row
+ * they are stored on links them back to it.
+ * <p>
+ * A card's token never changes, so token to card id lookups are cached. Hit, miss and eviction counters are published
+ * as {@code cache.*} metrics under the name "cardTokens".
+ */
+@Component
+public class CardTokenizer {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int KEPT_DIGITS = 4;
+
+    private final CardRepository cardRepository;
+    private final Cache<String, UUID> cardIds;
+    private final SecureRandom random = new SecureRandom();
+
+    public CardTokenizer(CardRepository cardRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.tokenization.lookup-cache.max-size:100000}") long cacheMaxSize) {
+        this.cardRepository = cardRepository;
+        this.cardIds = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cardIds, "cardTokens");
+    }
+
+    /**
+     * @return a token no other card holds yet; the unique index on the column settles the remaining race
+     */
+    public String issueToken(String cardNumber) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            String token = tokenize(cardNumber);
+            if (!cardRepository.existsByCardToken(token)) {
+                return token;
+            }
+        }
+        throw new IllegalStateException("Could not issue a unique card token");
+    }
+
+    /**
+     * @return the id of the card holding the token, from the cache when it has been looked up before
+     */
+    public Optional<UUID> findCardId(String token) {
+        return Optional.ofNullable(cardIds.get(token, key -> cardRepository.findIdByCardToken(key).orElse(null)));
+    }
+
+    /**
+     * Drops a cached lookup, e.g. once the card it points to turned out to be deleted.
+     */
+    public void evict(String token) {
+        cardIds.invalidate(token);
+    }
+
+    String tokenize(String cardNumber) {
+        String digits = cardNumber.replaceAll("[\\s-]", "");
+        if (digits.length() <= KEPT_DIGITS || !digits.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("A card number must have more than " + KEPT_DIGITS + " digits");
+        }
+        char[] token = digits.toCharArray();
+        int randomDigits = token.length - KEPT_DIGITS;
+        do {
+            for (int i = 0; i < randomDigits; i++) {
+                token[i] = (char) ('0' + random.nextInt(10));
+            }
+            if (passesLuhn(token)) {
+                // changing any single digit changes the Luhn sum by a non-multiple of ten
+                token[randomDigits - 1] = (char) ('0' + (token[randomDigits - 1] - '0' + 1) % 10);
+            }
+        } while (String.valueOf(token).equals(digits));
+        return String.valueOf(token);
+    }
+
+    static boolean passesLuhn(char[] digits) {
+        int sum = 0;
+        for (int i = digits.length - 1, position = 0; i >= 0; i--, position++) {
+            int digit = digits[i] - '0';
+            if (position % 2 == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.DataKey;
+import com.example.bankcards.repository.DataKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Data keys for card number encryption, stored wrapped by the {@link MasterKeyProvider}. Unwrapped keys are cached,
+ * so the master key is only involved when a key is first used; after a master key rotation the re-encryption job
+ * re-wraps them under the new one. The newest data key is the active one; older keys stay readable until the
+ * re-encryption job has moved every row off them. The active key is re-read every
+ * {@code active-key-refresh-interval}, so a rotation on another instance is picked up within that interval.
+ */
+@Slf4j
+@Component
+public class DataKeyManager {
+
+    private final DataKeyRepository dataKeyRepository;
+    private final MasterKeyProvider masterKeyProvider;
+    private final Cache<UUID, SecretKey> unwrappedKeys;
+    private final SecureRandom random = new SecureRandom();
+    private final long activeKeyRefreshNanos;
+    // one caller re-reads the active key while the others keep using the current one
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile ActiveKey activeKey;
+    private volatile long activeKeyCheckedAt;
+
+    public DataKeyManager(DataKeyRepository dataKeyRepository,
+                          MasterKeyProvider masterKeyProvider,
+                          @Value("${app.encryption.data-key-cache.max-size:1000}") long cacheMaxSize,
+                          @Value("${app.encryption.data-key-cache.expire-after-access:PT1H}") Duration cacheExpireAfterAccess,
+                          @Value("${app.encryption.active-key-refresh-interval:PT10S}") Duration activeKeyRefreshInterval) {
+        this.dataKeyRepository = dataKeyRepository;
+        this.masterKeyProvider = masterKeyProvider;
+        this.activeKeyRefreshNanos = activeKeyRefreshInterval.toNanos();
+        this.unwrappedKeys = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterAccess(cacheExpireAfterAccess)
+                .build();
+    }
+
+    /**
+     * The key new ciphertexts are produced with, created on first use when none exists yet.
+     */
+    public ActiveKey activeKey() {
+        ActiveKey current = activeKey;
+        if (current != null) {
+            if (System.nanoTime() - activeKeyCheckedAt >= activeKeyRefreshNanos && refreshing.compareAndSet(false, true)) {
+                try {
+                    refreshActiveKey();
+                } catch (RuntimeException e) {
+                    // the current key stays valid, so encryption goes on with it until the next check
+                    log.warn("Could not re-read the active card number data key: {}", e.getMessage());
+                } finally {
+                    refreshing.set(false);
+                }
+                return activeKey;
+            }
+            return current;
+        }
+        synchronized (this) {
+            if (activeKey == null) {
+                refreshActiveKey();
+                if (activeKey == null) {
+                    rotate();
+                }
+            }
+            return activeKey;
+        }
+    }
+
+    /**
+     * Picks up a key rotated on another instance. Until then this instance keeps encrypting with its previous key,
+     * which stays valid; the re-encryption job moves those rows later, rescanning until none are left.
+     */
+    public void refreshActiveKey() {
+        activeKeyCheckedAt = System.nanoTime();
+        dataKeyRepository.findFirstByOrderByCreatedAtDesc()
+                .ifPresent(dataKey -> this.activeKey = new ActiveKey(dataKey.getId(), key(dataKey.getId())));
+    }
+
+    /**
+     * Generates a new data key, stores it wrapped and makes it the active one.
+     */
+    public synchronized DataKey rotate() {
+        byte[] keyBytes = new byte[AesGcm.KEY_BYTES];
+        random.nextBytes(keyBytes);
+        UUID id = UUID.randomUUID();
+        byte[] wrapped = masterKeyProvider.wrap(keyBytes, associatedData(id));
+        DataKey dataKey = dataKeyRepository.save(
+                new DataKey(id, Base64.getEncoder().encodeToString(wrapped), masterKeyProvider.keyId()));
+        SecretKey key = new SecretKeySpec(keyBytes, "AES");
+        unwrappedKeys.put(id, key);
+        this.activeKey = new ActiveKey(id, key);
+        this.activeKeyCheckedAt = System.nanoTime();
+        log.info("Card number data key rotated, now encrypting with {}.", id);
+        return dataKey;
+    }
+
+    /**
+     * @throws IllegalStateException if the key is unknown or was wrapped by a master key that isn't configured
+     */
+    public SecretKey key(UUID keyId) {
+        ActiveKey current = activeKey;
+        if (current != null && current.id().equals(keyId)) {
+            return current.key();
+        }
+        return unwrappedKeys.get(keyId, this::unwrap);
+    }
+
+    /**
+     * Re-wraps every data key still wrapped by a previous master key under the current one, after which the
+     * previous master key can be removed from the configuration. Safe to run on several instances at once: each
+     * writes a valid wrapping of the same key.
+     *
+     * @return how many data keys were re-wrapped
+     */
+    public int rewrapDataKeys() {
+        int rewrapped = 0;
+        for (DataKey dataKey : dataKeyRepository.findAllByMasterKeyIdNot(masterKeyProvider.keyId())) {
+            try {
+                byte[] keyBytes = unwrapBytes(dataKey);
+                try {
+                    dataKey.setWrappedKey(Base64.getEncoder().encodeToString(
+                            masterKeyProvider.wrap(keyBytes, associatedData(dataKey.getId()))));
+                    dataKey.setMasterKeyId(masterKeyProvider.keyId());
+                    dataKeyRepository.save(dataKey);
+                    rewrapped++;
+                } finally {
+                    Arrays.fill(keyBytes, (byte) 0);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not re-wrap data key {}: {}", dataKey.getId(), e.getMessage());
+            }
+        }
+        if (rewrapped > 0) {
+            log.info("Re-wrapped {} card number data keys under master key {}.", rewrapped, masterKeyProvider.keyId());
+        }
+        return rewrapped;
+    }
+
+    public long countDataKeysToRewrap() {
+        return dataKeyRepository.countByMasterKeyIdNot(masterKeyProvider.keyId());
+    }
+
+    private SecretKey unwrap(UUID keyId) {
+        DataKey dataKey = dataKeyRepository.findById(keyId)
+                .orElseThrow(() -> new IllegalStateException("Unknown card number data key " + keyId));
+        return new SecretKeySpec(unwrapBytes(dataKey), "AES");
+    }
+
+    private byte[] unwrapBytes(DataKey dataKey) {
+        return masterKeyProvider.unwrap(dataKey.getMasterKeyId(),
+                Base64.getDecoder().decode(dataKey.getWrappedKey()), associatedData(dataKey.getId()));
+    }
+
+    // binds each wrapped key to its row, so wrapped keys can't be swapped between ids
+    private static byte[] associatedData(UUID keyId) {
+        return ByteBuffer.allocate(16)
+                .putLong(keyId.getMostSignificantBits())
+                .putLong(keyId.getLeastSignificantBits())
+                .array();
+    }
+
+    public record ActiveKey(UUID id, SecretKey key) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.util;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * A card number ciphertext together with the id of the data key that produced it.
+ */
+@Value
+public class EncryptedCardNumber {
+    UUID keyId;
+    byte[] ciphertext;
+}
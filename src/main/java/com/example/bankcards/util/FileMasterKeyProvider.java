@@ -0,0 +1,145 @@
+package com.example.bankcards.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Master key read from a local file holding 32 base64-encoded bytes, so envelope encryption works offline.
+ * A missing file is created with a fresh random key; without {@code app.encryption.master-key.location}
+ * the key is derived from {@code app.encryption.secret}.
+ * <p>
+ * To rotate it, the old file or secret moves to {@code app.encryption.master-key.previous-location} or
+ * {@code app.encryption.previous-secret}: data keys wrapped by the previous master key stay readable until the
+ * re-encryption job has re-wrapped them under the current one.
+ */
+@Slf4j
+@Component
+public class FileMasterKeyProvider implements MasterKeyProvider {
+
+    private static final String DERIVATION_CONTEXT = "card-number-master-key";
+
+    private final SecretKey masterKey;
+    private final String keyId;
+    // null unless a rotation is in progress
+    private final SecretKey previousMasterKey;
+    private final String previousKeyId;
+
+    public FileMasterKeyProvider(@Value("${app.encryption.master-key.location:}") String location,
+                                 @Value("${app.encryption.secret}") String secret,
+                                 @Value("${app.encryption.master-key.previous-location:}") String previousLocation,
+                                 @Value("${app.encryption.previous-secret:}") String previousSecret) {
+        if (location.isBlank()) {
+            log.warn("No app.encryption.master-key.location configured: deriving the master key from app.encryption.secret.");
+        }
+        byte[] keyBytes = location.isBlank() ? derive(secret) : readOrCreate(Path.of(location));
+        this.masterKey = new SecretKeySpec(keyBytes, "AES");
+        this.keyId = "file-" + fingerprint(keyBytes);
+        byte[] previousKeyBytes = previousKeyBytes(location, previousLocation, previousSecret);
+        if (previousKeyBytes != null && !Arrays.equals(previousKeyBytes, keyBytes)) {
+            this.previousMasterKey = new SecretKeySpec(previousKeyBytes, "AES");
+            this.previousKeyId = "file-" + fingerprint(previousKeyBytes);
+            log.info("Master key {} is still read while data keys are re-wrapped under {}.", previousKeyId, keyId);
+        } else {
+            this.previousMasterKey = null;
+            this.previousKeyId = null;
+        }
+    }
+
+    @Override
+    public String keyId() {
+        return keyId;
+    }
+
+    @Override
+    public byte[] wrap(byte[] dataKey, byte[] associatedData) {
+        return AesGcm.encrypt(masterKey, dataKey, associatedData);
+    }
+
+    @Override
+    public byte[] unwrap(String masterKeyId, byte[] wrappedKey, byte[] associatedData) {
+        if (keyId.equals(masterKeyId)) {
+            return AesGcm.decrypt(masterKey, wrappedKey, associatedData);
+        }
+        if (previousKeyId != null && previousKeyId.equals(masterKeyId)) {
+            return AesGcm.decrypt(previousMasterKey, wrappedKey, associatedData);
+        }
+        throw new IllegalStateException("Data key is wrapped by master key " + masterKeyId + ", but only " + keyId
+                + (previousKeyId != null ? " and " + previousKeyId : "") + " are configured");
+    }
+
+    // a file key is only replaced by another file, a derived key by another secret
+    private static byte[] previousKeyBytes(String location, String previousLocation, String previousSecret) {
+        if (!previousLocation.isBlank()) {
+            Path path = Path.of(previousLocation);
+            if (!Files.exists(path)) {
+                throw new IllegalStateException("Previous master key file " + path + " does not exist");
+            }
+            return readOrCreate(path);
+        }
+        if (location.isBlank() && !previousSecret.isBlank()) {
+            return derive(previousSecret);
+        }
+        return null;
+    }
+
+    private static byte[] derive(String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(DERIVATION_CONTEXT.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static byte[] readOrCreate(Path path) {
+        try {
+            if (Files.exists(path)) {
+                byte[] keyBytes = Base64.getDecoder().decode(Files.readString(path).trim());
+                if (keyBytes.length != AesGcm.KEY_BYTES) {
+                    throw new IllegalStateException("Master key in " + path + " must be " + AesGcm.KEY_BYTES + " bytes");
+                }
+                return keyBytes;
+            }
+            byte[] keyBytes = new byte[AesGcm.KEY_BYTES];
+            new SecureRandom().nextBytes(keyBytes);
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            Files.writeString(path, Base64.getEncoder().encodeToString(keyBytes));
+            try {
+                Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                log.debug("Cannot restrict permissions of {} on this file system.", path);
+            }
+            log.warn("Generated a new master key at {}. Back it up: card numbers can't be decrypted without it.", path);
+            return keyBytes;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read the master key from " + path, e);
+        }
+    }
+
+    private static String fingerprint(byte[] keyBytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(keyBytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
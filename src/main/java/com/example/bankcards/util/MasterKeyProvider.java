@@ -0,0 +1,22 @@
+package com.example.bankcards.util;
+
+/**
+ * Wraps and unwraps data keys with a master key that never leaves the provider. The file-based
+ * {@link FileMasterKeyProvider} stands in for a KMS or HSM, which would implement the same contract remotely.
+ */
+public interface MasterKeyProvider {
+
+    /**
+     * Identifies the master key new data keys are wrapped with, stored next to every data key it wraps.
+     */
+    String keyId();
+
+    byte[] wrap(byte[] dataKey, byte[] associatedData);
+
+    /**
+     * Unwraps with the current master key or, while a rotation is in progress, the previous one.
+     *
+     * @throws IllegalStateException if {@code masterKeyId} is neither of them
+     */
+    byte[] unwrap(String masterKeyId, byte[] wrappedKey, byte[] associatedData);
+}
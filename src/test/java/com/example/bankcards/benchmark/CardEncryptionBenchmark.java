@@ -0,0 +1,130 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.DataKey;
+import com.example.bankcards.repository.DataKeyRepository;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.DataKeyManager;
+import com.example.bankcards.util.EncryptedCardNumber;
+import com.example.bankcards.util.FileMasterKeyProvider;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Card number encrypt and decrypt cost, compared with the two implementations it replaced:
+ * {@code legacy*} is the original {@code Encryptors.stronger} util with Base64 text, {@code text*} the first
+ * AES-GCM version that built a Cipher per call and stored Base64 text.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.includes=CardEncryptionBenchmark};
+ * the gc profiler reports the allocation rate as {@code gc.alloc.rate.norm} (bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardEncryptionBenchmark {
+
+    private static final String SECRET = "Zm9vYmFyYmF6cXV4c29tZXJhbmRvbXN0cmluZ3RoaXNpc2p1c3RhbmV4YW1wbGV0b2RlbW9uc3RyYXRl";
+    private static final String SALT = "ABCDEF0123456789ABCDEF0123456789";
+    private static final String CARD_NUMBER = "2380328656218459";
+
+    private CardEncryptionUtil util;
+    private EncryptedCardNumber encrypted;
+
+    private BytesEncryptor legacyEncryptor;
+    private String legacyCiphertext;
+
+    private SecretKey dataKey;
+    private final SecureRandom random = new SecureRandom();
+    private String textCiphertext;
+
+    @Setup
+    public void setUp() {
+        DataKeyRepository repository = Mockito.mock(DataKeyRepository.class);
+        Mockito.when(repository.findFirstByOrderByCreatedAtDesc()).thenReturn(Optional.empty());
+        Mockito.when(repository.save(any(DataKey.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        util = new CardEncryptionUtil(new DataKeyManager(repository, new FileMasterKeyProvider("", SECRET, "", ""),
+                10, Duration.ofHours(1), Duration.ofHours(1)));
+        ReflectionTestUtils.setField(util, "secretKey", SECRET);
+        ReflectionTestUtils.setField(util, "salt", SALT);
+        ReflectionTestUtils.setField(util, "blindIndexKey", "benchmark-blind-index-key");
+        util.init();
+        encrypted = util.encrypt(CARD_NUMBER);
+
+        legacyEncryptor = Encryptors.stronger(SECRET, SALT);
+        legacyCiphertext = legacyEncrypt();
+
+        byte[] keyBytes = new byte[32];
+        random.nextBytes(keyBytes);
+        dataKey = new SecretKeySpec(keyBytes, "AES");
+        textCiphertext = textEncrypt();
+    }
+
+    @Benchmark
+    public EncryptedCardNumber encrypt() {
+        return util.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return util.decrypt(encrypted.getKeyId(), encrypted.getCiphertext());
+    }
+
+    @Benchmark
+    public String legacyEncrypt() {
+        byte[] encryptedBytes = legacyEncryptor.encrypt(CARD_NUMBER.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(encryptedBytes);
+    }
+
+    @Benchmark
+    public String legacyDecrypt() {
+        byte[] decryptedBytes = legacyEncryptor.decrypt(Base64.getDecoder().decode(legacyCiphertext));
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String textEncrypt() {
+        byte[] iv = new byte[12];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey, new GCMParameterSpec(128, iv));
+            byte[] plaintext = CARD_NUMBER.getBytes(StandardCharsets.UTF_8);
+            byte[] out = Arrays.copyOf(iv, 12 + cipher.getOutputSize(plaintext.length));
+            cipher.doFinal(plaintext, 0, plaintext.length, out, 12);
+            return Base64.getEncoder().encodeToString(out);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public String textDecrypt() {
+        byte[] ciphertext = Base64.getDecoder().decode(textCiphertext);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, dataKey, new GCMParameterSpec(128, ciphertext, 0, 12));
+            return new String(cipher.doFinal(ciphertext, 12, ciphertext.length - 12), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
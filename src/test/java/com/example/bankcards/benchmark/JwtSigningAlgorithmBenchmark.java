@@ -0,0 +1,60 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.JwtKeyRing;
+import com.example.bankcards.security.JwtPrincipal;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UuidUserDetails;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify cost of each supported access token algorithm, with the verified-token cache disabled.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.includes=JwtSigningAlgorithmBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningAlgorithmBenchmark {
+
+    private static final String SECRET = "Zm9vYmFyYmF6cXV4c29tZXJhbmRvbXN0cmluZ3RoaXNpc2p1c3RhbmV4YW1wbGV0b2RlbW9uc3RyYXRl";
+
+    @Param({"HS512", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtTokenProvider provider;
+    private UuidUserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, algorithm, "", "");
+        keyRing.init();
+        provider = new JwtTokenProvider(keyRing, new TokenRevocationRegistry());
+        provider.jwtTokenValidity = 3600;
+        ReflectionTestUtils.setField(provider, "tokenCacheMaxSize", 0L);
+        provider.init();
+        userDetails = new UuidUserDetails(UUID.randomUUID(), "benchmark-user", "",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = provider.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String sign() {
+        return provider.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public Optional<JwtPrincipal> verify() {
+        return provider.validateToken(token);
+    }
+}
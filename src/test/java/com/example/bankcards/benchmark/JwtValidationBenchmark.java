@@ -0,0 +1,70 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.JwtKeyRing;
+import com.example.bankcards.security.JwtPrincipal;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UuidUserDetails;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares the uncached claims parse against the digest-keyed verified-token cache.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.includes=JwtValidationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "Zm9vYmFyYmF6cXV4c29tZXJhbmRvbXN0cmluZ3RoaXNpc2p1c3RhbmV4YW1wbGV0b2RlbW9uc3RyYXRl";
+
+    private JwtTokenProvider uncachedProvider;
+    private JwtTokenProvider cachedProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncachedProvider = provider(0);
+        cachedProvider = provider(10_000);
+        token = cachedProvider.generateToken(new UuidUserDetails(UUID.randomUUID(), "benchmark-user", "",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Benchmark
+    public Claims parseAllClaims() {
+        return uncachedProvider.getClaimFromToken(token, Function.identity());
+    }
+
+    @Benchmark
+    public Optional<JwtPrincipal> validateUncached() {
+        return uncachedProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Optional<JwtPrincipal> validateCached() {
+        return cachedProvider.validateToken(token);
+    }
+
+    private static JwtTokenProvider provider(long cacheSize) {
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, "HS512", "", "");
+        keyRing.init();
+        JwtTokenProvider provider = new JwtTokenProvider(keyRing, new TokenRevocationRegistry());
+        provider.jwtTokenValidity = 3600;
+        ReflectionTestUtils.setField(provider, "tokenCacheMaxSize", cacheSize);
+        ReflectionTestUtils.setField(provider, "tokenCacheMaxMemoryBytes", 8L * 1024 * 1024);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UuidUserDetails;
+import com.example.bankcards.service.TransferService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single transfers from many threads on the {@code direct} engine, one commit per transfer, against the
+ * {@code group-commit} engine, one commit per group: throughput, and the latency percentiles of the sample mode.
+ * Every thread moves money between two cards of its own, so the engines are compared without lock contention.
+ * <p>
+ * The application is started once per engine, on the database of the active profile. On the in-memory H2 database
+ * of the default profile a commit flushes nothing to disk, so the gap there comes from per-transaction overhead and
+ * connection pool waits alone; against PostgreSQL, e.g. with {@code SPRING_PROFILES_ACTIVE=postgres} and the
+ * {@code SPRING_DATASOURCE_*} variables of {@code .env-example} exported, the log flushes saved per group add to it.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.includes=TransferEngineBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class TransferEngineBenchmark {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"direct", "group-commit"})
+    public String engine;
+
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+    private UserRepository userRepository;
+    private CardRepository cardRepository;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class).run(
+                "--server.port=0",
+                "--app.transfers.engine=" + engine,
+                "--logging.level.root=WARN");
+        transferService = context.getBean(TransferService.class);
+        userRepository = context.getBean(UserRepository.class);
+        cardRepository = context.getBean(CardRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void transfer(ThreadCards cards) {
+        transferService.transferBetweenUserOwnedCards(cards.userId, cards.next(), null);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCards {
+
+        private UUID userId;
+        private TransferRequest there;
+        private TransferRequest back;
+        private boolean outbound;
+
+        @Setup
+        public void setUp(TransferEngineBenchmark benchmark) {
+            // random names and numbers, so repeated runs against a persistent database don't collide
+            User user = benchmark.userRepository.save(
+                    new User("benchmark-" + UUID.randomUUID().toString().substring(0, 8), "unused"));
+            Card first = benchmark.cardRepository.save(card(user));
+            Card second = benchmark.cardRepository.save(card(user));
+            userId = user.getId();
+            there = new TransferRequest(first.getId(), second.getId(), AMOUNT);
+            back = new TransferRequest(second.getId(), first.getId(), AMOUNT);
+            UuidUserDetails principal = new UuidUserDetails(userId, user.getUsername(), "",
+                    List.of(new SimpleGrantedAuthority("ROLE_USER")));
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        }
+
+        @TearDown
+        public void tearDown() {
+            SecurityContextHolder.clearContext();
+        }
+
+        TransferRequest next() {
+            outbound = !outbound;
+            return outbound ? there : back;
+        }
+
+        private static Card card(User owner) {
+            String digits = String.format("%016d", ThreadLocalRandom.current().nextLong(1_000_000_000_000_000L,
+                    10_000_000_000_000_000L));
+            return new Card(new byte[]{1}, null, digits.substring(12), "benchmark-" + UUID.randomUUID(), digits, owner,
+                    LocalDate.now().plusYears(1), CardStatus.ACTIVE, INITIAL_BALANCE);
+        }
+    }
+}
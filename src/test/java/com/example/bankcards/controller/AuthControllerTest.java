@@ -2,13 +2,17 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.security.JwtAuthResponse;
 import com.example.bankcards.dto.security.LoginRequest;
+import com.example.bankcards.dto.security.RefreshTokenRequest;
 import com.example.bankcards.dto.security.RegisterRequest;
 import com.example.bankcards.exception.InternalException;
+import com.example.bankcards.exception.security.InvalidRefreshTokenException;
+import com.example.bankcards.exception.security.TooManyLoginAttemptsException;
 import com.example.bankcards.exception.user.UserAlreadyExistsException;
 import com.example.bankcards.security.JwtAuthenticationEntryPoint;
 import com.example.bankcards.security.JwtAuthenticationFilter;
 import com.example.bankcards.security.JwtTokenProvider;
 import com.example.bankcards.security.JwtUserDetailsService;
+import com.example.bankcards.security.LoginThrottle;
 import com.example.bankcards.service.AuthService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -22,8 +26,13 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -49,13 +58,16 @@ class AuthControllerTest {
     @MockitoBean
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @MockitoBean
+    private LoginThrottle loginThrottle;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Test
     void login_validCredentials_shouldReturnOkAndJwtAuthResponse() throws Exception {
         LoginRequest loginRequest = new LoginRequest("testuser", "password");
-        JwtAuthResponse jwtAuthResponse = new JwtAuthResponse("mockedToken");
+        JwtAuthResponse jwtAuthResponse = new JwtAuthResponse("mockedToken", "mockedRefreshToken");
 
         when(authService.login(any(LoginRequest.class))).thenReturn(jwtAuthResponse);
 
@@ -63,7 +75,24 @@ class AuthControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.token", is("mockedToken")));
+                .andExpect(jsonPath("$.token", is("mockedToken")))
+                .andExpect(jsonPath("$.refreshToken", is("mockedRefreshToken")));
+        verify(loginThrottle).acquire(anyString(), anyString());
+        verify(loginThrottle).reset("testuser");
+    }
+
+    @Test
+    void login_throttled_shouldReturnTooManyRequestsWithoutAuthenticating() throws Exception {
+        LoginRequest loginRequest = new LoginRequest("testuser", "password");
+
+        doThrow(new TooManyLoginAttemptsException(12)).when(loginThrottle).acquire(anyString(), anyString());
+
+        mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"));
+        verify(authService, never()).login(any(LoginRequest.class));
     }
 
     @Test
@@ -101,7 +130,7 @@ class AuthControllerTest {
     @Test
     void register_newUser_shouldReturnCreatedAndJwtAuthResponse() throws Exception {
         RegisterRequest registerRequest = new RegisterRequest("newuser", "newpassword");
-        JwtAuthResponse jwtAuthResponse = new JwtAuthResponse("newMockedToken");
+        JwtAuthResponse jwtAuthResponse = new JwtAuthResponse("newMockedToken", "newMockedRefreshToken");
 
         when(authService.register(any(RegisterRequest.class))).thenReturn(jwtAuthResponse);
 
@@ -197,4 +226,63 @@ class AuthControllerTest {
                         .content(objectMapper.writeValueAsString(registerRequest)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void refresh_validToken_shouldReturnOkAndNewTokens() throws Exception {
+        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest("refreshToken");
+        JwtAuthResponse jwtAuthResponse = new JwtAuthResponse("newAccessToken", "newRefreshToken");
+
+        when(authService.refresh(any(RefreshTokenRequest.class))).thenReturn(jwtAuthResponse);
+
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshTokenRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token", is("newAccessToken")))
+                .andExpect(jsonPath("$.refreshToken", is("newRefreshToken")));
+    }
+
+    @Test
+    void refresh_invalidToken_shouldReturnUnauthorized() throws Exception {
+        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest("usedToken");
+
+        when(authService.refresh(any(RefreshTokenRequest.class))).thenThrow(new InvalidRefreshTokenException());
+
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshTokenRequest)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void refresh_blankToken_shouldReturnBadRequest() throws Exception {
+        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest("");
+
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshTokenRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void logout_bearerTokenAndRefreshToken_shouldRevokeBothAndReturnNoContent() throws Exception {
+        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest("refreshToken");
+
+        mockMvc.perform(post("/api/v1/auth/logout")
+                        .header("Authorization", "Bearer accessToken")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshTokenRequest)))
+                .andExpect(status().isNoContent());
+
+        verify(authService).logout("accessToken", "refreshToken");
+    }
+
+    @Test
+    void logout_bearerTokenOnly_shouldReturnNoContent() throws Exception {
+        mockMvc.perform(post("/api/v1/auth/logout")
+                        .header("Authorization", "Bearer accessToken"))
+                .andExpect(status().isNoContent());
+
+        verify(authService).logout("accessToken", null);
+    }
 }
\ No newline at end of file
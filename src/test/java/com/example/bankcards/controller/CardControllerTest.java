@@ -1,10 +1,12 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.CardNumberLookupRequest;
 import com.example.bankcards.dto.card.CardSearchRequest;
 import com.example.bankcards.dto.card.CreateCardRequest;
 import com.example.bankcards.dto.card.UpdateCardStatusRequest;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.exception.card.CardAlreadyExistsException;
 import com.example.bankcards.exception.card.CardNotFoundException;
 import com.example.bankcards.exception.card.CardNotOwnedByUserException;
 import com.example.bankcards.exception.card.CardStatusAlreadySetException;
@@ -79,6 +81,7 @@ class CardControllerTest {
         cardDto = new CardDto(
                 cardId,
                 "************3456",
+                "9876543210983456",
                 ownerId,
                 LocalDate.now().plusYears(1),
                 CardStatus.ACTIVE,
@@ -124,6 +127,36 @@ class CardControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void createCard_duplicateNumber_shouldReturnConflict() throws Exception {
+        when(cardService.createCard(any(CreateCardRequest.class))).thenThrow(new CardAlreadyExistsException());
+
+        mockMvc.perform(post("/api/v1/cards")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createCardRequest)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void findCardByNumber_existingCard_shouldReturnOkAndCardDto() throws Exception {
+        when(cardService.findCardByNumber(any(CardNumberLookupRequest.class))).thenReturn(cardDto);
+
+        mockMvc.perform(post("/api/v1/cards/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardNumberLookupRequest("1234567890123456"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(cardId.toString()));
+    }
+
+    @Test
+    void findCardByNumber_invalidNumber_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/cards/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardNumberLookupRequest("1234"))))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(cardService);
+    }
+
     @Test
     void getAllCards_noParams_shouldReturnOkAndListOfCards() throws Exception {
         when(cardService.getAllCards(any(), any(), anyBoolean(), any(CardSearchRequest.class)))
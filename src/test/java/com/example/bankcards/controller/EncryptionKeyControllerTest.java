@@ -0,0 +1,81 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.security.DataKeyDto;
+import com.example.bankcards.dto.security.ReEncryptionStatusDto;
+import com.example.bankcards.security.JwtAuthenticationEntryPoint;
+import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.JwtUserDetailsService;
+import com.example.bankcards.service.EncryptionKeyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(EncryptionKeyController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class EncryptionKeyControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private EncryptionKeyService encryptionKeyService;
+
+    @MockitoBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockitoBean
+    private JwtUserDetailsService jwtUserDetailsService;
+
+    @MockitoBean
+    private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+
+    @MockitoBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    private final UUID keyId = UUID.randomUUID();
+
+    @Test
+    void rotateDataKey_shouldReturnCreatedAndNewKey() throws Exception {
+        when(encryptionKeyService.rotateDataKey()).thenReturn(new DataKeyDto(keyId, "file-abc", LocalDateTime.now()));
+
+        mockMvc.perform(post("/api/v1/encryption-keys/rotate"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(keyId.toString()));
+    }
+
+    @Test
+    void startReEncryption_shouldReturnAcceptedAndStatus() throws Exception {
+        when(encryptionKeyService.startReEncryption())
+                .thenReturn(new ReEncryptionStatusDto(keyId, true, false, 0, 0, new UUID(0, 0), LocalDateTime.now()));
+
+        mockMvc.perform(post("/api/v1/encryption-keys/re-encryption"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.keyId").value(keyId.toString()))
+                .andExpect(jsonPath("$.running").value(true));
+    }
+
+    @Test
+    void getReEncryptionStatus_shouldReturnProgress() throws Exception {
+        when(encryptionKeyService.getReEncryptionStatus())
+                .thenReturn(new ReEncryptionStatusDto(keyId, false, true, 42, 1, UUID.randomUUID(), LocalDateTime.now()));
+
+        mockMvc.perform(get("/api/v1/encryption-keys/re-encryption"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.processed").value(42))
+                .andExpect(jsonPath("$.failed").value(1));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.card.CreateScheduledTransferRequest;
+import com.example.bankcards.dto.card.ScheduledTransferDto;
+import com.example.bankcards.entity.ScheduledTransferStatus;
+import com.example.bankcards.entity.TransferFrequency;
+import com.example.bankcards.exception.card.ScheduledTransferNotFoundException;
+import com.example.bankcards.security.JwtAuthenticationEntryPoint;
+import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.JwtUserDetailsService;
+import com.example.bankcards.service.ScheduledTransferService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ScheduledTransferController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class ScheduledTransferControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ScheduledTransferService scheduledTransferService;
+
+    @MockitoBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockitoBean
+    private JwtUserDetailsService jwtUserDetailsService;
+
+    @MockitoBean
+    private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+
+    @MockitoBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private UUID userId;
+    private UUID fromCardId;
+    private UUID toCardId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID();
+        fromCardId = UUID.randomUUID();
+        toCardId = UUID.randomUUID();
+    }
+
+    @Test
+    void createScheduledTransfer_validRequest_shouldReturnCreated() throws Exception {
+        LocalDateTime firstRunAt = LocalDateTime.now().plusDays(1);
+        CreateScheduledTransferRequest request = new CreateScheduledTransferRequest(fromCardId, toCardId,
+                BigDecimal.valueOf(25), firstRunAt, TransferFrequency.WEEKLY);
+        ScheduledTransferDto created = new ScheduledTransferDto(UUID.randomUUID(), fromCardId, toCardId,
+                BigDecimal.valueOf(25), TransferFrequency.WEEKLY, ScheduledTransferStatus.ACTIVE, firstRunAt, null,
+                null, LocalDateTime.now());
+        when(scheduledTransferService.createScheduledTransfer(eq(userId), any(CreateScheduledTransferRequest.class)))
+                .thenReturn(created);
+
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}/scheduled", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.frequency").value("WEEKLY"))
+                .andExpect(jsonPath("$.status").value("ACTIVE"));
+    }
+
+    @Test
+    void createScheduledTransfer_firstRunInThePast_shouldReturnBadRequest() throws Exception {
+        CreateScheduledTransferRequest request = new CreateScheduledTransferRequest(fromCardId, toCardId,
+                BigDecimal.valueOf(25), LocalDateTime.now().minusDays(1), TransferFrequency.ONCE);
+
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}/scheduled", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(scheduledTransferService);
+    }
+
+    @Test
+    void cancelScheduledTransfer_existing_shouldReturnNoContent() throws Exception {
+        UUID scheduleId = UUID.randomUUID();
+
+        mockMvc.perform(delete("/api/v1/transfers/user/{userId}/scheduled/{id}", userId, scheduleId))
+                .andExpect(status().isNoContent());
+
+        verify(scheduledTransferService).cancelScheduledTransfer(userId, scheduleId);
+    }
+
+    @Test
+    void cancelScheduledTransfer_unknown_shouldReturnNotFound() throws Exception {
+        UUID scheduleId = UUID.randomUUID();
+        doThrow(new ScheduledTransferNotFoundException(scheduleId)).when(scheduledTransferService)
+                .cancelScheduledTransfer(userId, scheduleId);
+
+        mockMvc.perform(delete("/api/v1/transfers/user/{userId}/scheduled/{id}", userId, scheduleId))
+                .andExpect(status().isNotFound());
+    }
+}
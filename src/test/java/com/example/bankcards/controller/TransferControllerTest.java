@@ -1,7 +1,11 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.card.BatchTransferRequest;
+import com.example.bankcards.dto.card.TransferDto;
+import com.example.bankcards.dto.card.TransferHistoryDto;
 import com.example.bankcards.dto.card.TransferRequest;
 import com.example.bankcards.exception.card.CardNotOwnedByUserException;
+import com.example.bankcards.exception.card.IdempotencyKeyReusedException;
 import com.example.bankcards.exception.card.InvalidCardOperationException;
 import com.example.bankcards.exception.user.UserNotFoundException;
 import com.example.bankcards.security.JwtAuthenticationEntryPoint;
@@ -20,13 +24,20 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransferController.class)
@@ -68,7 +79,7 @@ class TransferControllerTest {
 
     @Test
     void transferBetweenUserOwnedCards_validRequest_shouldReturnNoContent() throws Exception {
-        doNothing().when(transferService).transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class));
+        doNothing().when(transferService).transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class), isNull());
 
         mockMvc.perform(post("/api/v1/transfers/user/{userId}", userId)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -76,10 +87,42 @@ class TransferControllerTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void transferBetweenUserOwnedCards_idempotencyKey_shouldPassKeyToService() throws Exception {
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}", userId)
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isNoContent());
+
+        verify(transferService).transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class), eq("retry-1"));
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_tooLongIdempotencyKey_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}", userId)
+                        .header("Idempotency-Key", "k".repeat(65))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_idempotencyKeyReused_shouldReturnUnprocessableEntity() throws Exception {
+        doThrow(new IdempotencyKeyReusedException()).when(transferService)
+                .transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class), eq("retry-1"));
+
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}", userId)
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     void transferBetweenUserOwnedCards_userNotFound_shouldReturnNotFound() throws Exception {
         doThrow(new UserNotFoundException(userId)).when(transferService)
-                .transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class));
+                .transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class), isNull());
 
         mockMvc.perform(post("/api/v1/transfers/user/{userId}", userId)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -90,7 +133,7 @@ class TransferControllerTest {
     @Test
     void transferBetweenUserOwnedCards_cardNotOwned_shouldReturnNotFound() throws Exception {
         doThrow(new CardNotOwnedByUserException(fromCardId, userId)).when(transferService)
-                .transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class));
+                .transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class), isNull());
 
         mockMvc.perform(post("/api/v1/transfers/user/{userId}", userId)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -101,7 +144,7 @@ class TransferControllerTest {
     @Test
     void transferBetweenUserOwnedCards_invalidCardOperation_shouldReturnBadRequest() throws Exception {
         doThrow(new InvalidCardOperationException("Insufficient balance")).when(transferService)
-                .transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class));
+                .transferBetweenUserOwnedCards(eq(userId), any(TransferRequest.class), isNull());
 
         mockMvc.perform(post("/api/v1/transfers/user/{userId}", userId)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -148,4 +191,61 @@ class TransferControllerTest {
                         .content(objectMapper.writeValueAsString(invalidRequest)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void transferBatch_validRequest_shouldReturnNoContent() throws Exception {
+        BatchTransferRequest batch = new BatchTransferRequest(List.of(transferRequest,
+                new TransferRequest(toCardId, fromCardId, BigDecimal.ONE)));
+
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}/batch", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isNoContent());
+
+        verify(transferService).transferBatch(userId, batch.getTransfers());
+    }
+
+    @Test
+    void transferBatch_emptyBatch_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}/batch", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BatchTransferRequest(List.of()))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void transferBatch_invalidTransferInBatch_shouldReturnBadRequest() throws Exception {
+        BatchTransferRequest batch = new BatchTransferRequest(List.of(transferRequest,
+                new TransferRequest(fromCardId, toCardId, BigDecimal.ZERO)));
+
+        mockMvc.perform(post("/api/v1/transfers/user/{userId}/batch", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTransferHistory_withCursor_shouldReturnPage() throws Exception {
+        TransferDto transfer = new TransferDto(UUID.randomUUID(), fromCardId, toCardId, BigDecimal.TEN, LocalDateTime.now());
+        when(transferService.getTransferHistory(userId, fromCardId, 1, "cursor"))
+                .thenReturn(new TransferHistoryDto(List.of(transfer), "next"));
+
+        mockMvc.perform(get("/api/v1/transfers/user/{userId}", userId)
+                        .param("cardId", fromCardId.toString())
+                        .param("size", "1")
+                        .param("cursor", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transfers[0].id").value(transfer.getId().toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void getTransferHistory_invalidCursor_shouldReturnBadRequest() throws Exception {
+        when(transferService.getTransferHistory(userId, null, null, "bad"))
+                .thenThrow(new IllegalArgumentException("Invalid transfer history cursor."));
+
+        mockMvc.perform(get("/api/v1/transfers/user/{userId}", userId)
+                        .param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
 }
\ No newline at end of file
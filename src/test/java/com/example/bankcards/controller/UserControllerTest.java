@@ -177,4 +177,21 @@ class UserControllerTest {
         mockMvc.perform(delete("/api/v1/users/{id}", userId))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void revokeTokens_existingUser_shouldReturnNoContent() throws Exception {
+        doNothing().when(userService).revokeTokens(eq(userId));
+
+        mockMvc.perform(post("/api/v1/users/{id}/revoke-tokens", userId))
+                .andExpect(status().isNoContent());
+        verify(userService).revokeTokens(userId);
+    }
+
+    @Test
+    void revokeTokens_nonExistingUser_shouldReturnNotFound() throws Exception {
+        doThrow(new UserNotFoundException(userId)).when(userService).revokeTokens(eq(userId));
+
+        mockMvc.perform(post("/api/v1/users/{id}/revoke-tokens", userId))
+                .andExpect(status().isNotFound());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.bankcards.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferFrequencyTest {
+
+    private static final LocalDateTime JAN_31 = LocalDateTime.of(2025, 1, 31, 9, 0);
+
+    @Test
+    void nextRun_monthlyFromMonthEnd_shouldClampToShortMonthsAndReturnToAnchorDay() {
+        LocalDateTime feb = TransferFrequency.MONTHLY.nextRun(JAN_31, JAN_31);
+        LocalDateTime mar = TransferFrequency.MONTHLY.nextRun(JAN_31, feb);
+        LocalDateTime apr = TransferFrequency.MONTHLY.nextRun(JAN_31, mar);
+        LocalDateTime may = TransferFrequency.MONTHLY.nextRun(JAN_31, apr);
+
+        assertThat(feb).isEqualTo(LocalDateTime.of(2025, 2, 28, 9, 0));
+        assertThat(mar).isEqualTo(LocalDateTime.of(2025, 3, 31, 9, 0));
+        assertThat(apr).isEqualTo(LocalDateTime.of(2025, 4, 30, 9, 0));
+        assertThat(may).isEqualTo(LocalDateTime.of(2025, 5, 31, 9, 0));
+    }
+
+    @Test
+    void nextRun_afterMissedRuns_shouldReturnFirstRunAfterGivenTime() {
+        assertThat(TransferFrequency.MONTHLY.nextRun(JAN_31, LocalDateTime.of(2025, 6, 15, 0, 0)))
+                .isEqualTo(LocalDateTime.of(2025, 6, 30, 9, 0));
+        assertThat(TransferFrequency.DAILY.nextRun(JAN_31, JAN_31.plusDays(2)))
+                .isEqualTo(JAN_31.plusDays(3));
+        assertThat(TransferFrequency.WEEKLY.nextRun(JAN_31, JAN_31.plusDays(1)))
+                .isEqualTo(JAN_31.plusWeeks(1));
+    }
+
+    @Test
+    void nextRun_once_shouldReturnNull() {
+        assertThat(TransferFrequency.ONCE.nextRun(JAN_31, JAN_31)).isNull();
+    }
+}
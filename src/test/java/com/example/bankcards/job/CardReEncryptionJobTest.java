@@ -0,0 +1,216 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.DataKey;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.DataKeyRepository;
+import com.example.bankcards.repository.ReEncryptionCheckpointRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.DataKeyManager;
+import com.example.bankcards.util.EncryptedCardNumber;
+import com.example.bankcards.util.FileMasterKeyProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the job against a real database, mostly with the cryptography stubbed out, so only which rows it visits and
+ * when a pass counts as completed are tested. A secret rotation is also run end to end with the real cryptography.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:card-re-encryption;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardReEncryptionJobTest {
+
+    private static final UUID OLD_KEY_ID = UUID.randomUUID();
+    private static final UUID ACTIVE_KEY_ID = UUID.randomUUID();
+    private static final byte[] FAILING_CIPHERTEXT = {9};
+    private static final String CARD_NUMBER = "1234567890123456";
+    private static final String SALT = "ABCDEF0123456789ABCDEF0123456789";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private DataKeyRepository dataKeyRepository;
+    @Autowired
+    private ReEncryptionCheckpointRepository checkpointRepository;
+
+    private final AtomicBoolean decryptionFailing = new AtomicBoolean();
+    private CardReEncryptionJob job;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("re-encryption-user", "encoded"));
+        dataKeyRepository.save(new DataKey(OLD_KEY_ID, "wrapped", "master"));
+        dataKeyRepository.save(new DataKey(ACTIVE_KEY_ID, "wrapped", "master"));
+        CardEncryptionUtil cardEncryptionUtil = mock(CardEncryptionUtil.class);
+        when(cardEncryptionUtil.decrypt(any(UUID.class), any(byte[].class))).thenAnswer(invocation -> {
+            byte[] ciphertext = invocation.getArgument(1);
+            if (decryptionFailing.get() && ciphertext[0] == FAILING_CIPHERTEXT[0]) {
+                throw new IllegalStateException("Tag mismatch");
+            }
+            return CARD_NUMBER;
+        });
+        when(cardEncryptionUtil.encrypt(anyString())).thenReturn(new EncryptedCardNumber(ACTIVE_KEY_ID, new byte[]{2}));
+        DataKeyManager dataKeyManager = mock(DataKeyManager.class);
+        when(dataKeyManager.activeKey()).thenReturn(new DataKeyManager.ActiveKey(ACTIVE_KEY_ID, null));
+        job = job(cardEncryptionUtil, dataKeyManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+        checkpointRepository.deleteAll();
+        cardRepository.deleteAll();
+        dataKeyRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void runScheduled_rowWrittenWithOldKeyAfterCompletion_shouldBeMovedByNextRun() {
+        Card early = saveCard("1111", new byte[]{1});
+        job.runScheduled();
+        assertThat(job.status().isCompleted()).isTrue();
+
+        // written by an instance that had not picked up the rotation yet
+        Card late = saveCard("2222", new byte[]{1});
+        assertThat(job.status().isCompleted()).isFalse();
+        job.runScheduled();
+
+        assertThat(keyIdOf(early)).isEqualTo(ACTIVE_KEY_ID);
+        assertThat(keyIdOf(late)).isEqualTo(ACTIVE_KEY_ID);
+        assertThat(job.status().isCompleted()).isTrue();
+        assertThat(job.status().getProcessed()).isEqualTo(2);
+    }
+
+    @Test
+    void runScheduled_failedRow_shouldBeRetriedByNextRun() {
+        decryptionFailing.set(true);
+        Card failing = saveCard("1111", FAILING_CIPHERTEXT);
+        Card other = saveCard("2222", new byte[]{1});
+
+        job.runScheduled();
+
+        assertThat(keyIdOf(failing)).isEqualTo(OLD_KEY_ID);
+        assertThat(keyIdOf(other)).isEqualTo(ACTIVE_KEY_ID);
+        assertThat(job.status().isCompleted()).isFalse();
+        assertThat(job.status().getFailed()).isEqualTo(1);
+
+        decryptionFailing.set(false);
+        job.runScheduled();
+
+        assertThat(keyIdOf(failing)).isEqualTo(ACTIVE_KEY_ID);
+        assertThat(job.status().isCompleted()).isTrue();
+    }
+
+    @Test
+    void runScheduled_rowFailingInEveryPass_shouldBeCountedOncePerPass() {
+        decryptionFailing.set(true);
+        Card failing = saveCard("1111", FAILING_CIPHERTEXT);
+
+        job.runScheduled();
+        job.runScheduled();
+        job.runScheduled();
+
+        assertThat(keyIdOf(failing)).isEqualTo(OLD_KEY_ID);
+        assertThat(job.status().isCompleted()).isFalse();
+        assertThat(job.status().getFailed()).isEqualTo(1);
+    }
+
+    @Test
+    void runScheduled_afterSecretRotation_shouldLeaveNothingThatNeedsThePreviousSecret() {
+        dataKeyRepository.deleteAll();
+        EncryptedCardNumber enveloped = cardEncryptionUtil("old-secret", "").encrypt(CARD_NUMBER);
+        saveCard("1111", enveloped.getCiphertext(), enveloped.getKeyId(), null);
+        byte[] legacy = Encryptors.stronger("old-secret", SALT).encrypt(CARD_NUMBER.getBytes(StandardCharsets.UTF_8));
+        saveCard("2222", null, null, Base64.getEncoder().encodeToString(legacy));
+        Card beforeRotation = cardRepository.findAll().get(0);
+        assertThrows(IllegalStateException.class, () -> cardEncryptionUtil("new-secret", "").decrypt(beforeRotation));
+
+        CardEncryptionUtil duringRotation = cardEncryptionUtil("new-secret", "old-secret");
+        assertThat(cardRepository.findAll()).allSatisfy(card -> assertThat(duringRotation.decrypt(card)).isEqualTo(CARD_NUMBER));
+        CardReEncryptionJob rotationJob = job(duringRotation,
+                (DataKeyManager) ReflectionTestUtils.getField(duringRotation, "dataKeyManager"));
+        try {
+            rotationJob.runScheduled();
+            assertThat(rotationJob.status().isCompleted()).isTrue();
+        } finally {
+            rotationJob.shutdown();
+        }
+
+        CardEncryptionUtil afterRotation = cardEncryptionUtil("new-secret", "");
+        assertThat(cardRepository.findAll()).hasSize(2)
+                .allSatisfy(card -> assertThat(afterRotation.decrypt(card)).isEqualTo(CARD_NUMBER));
+    }
+
+    private CardReEncryptionJob job(CardEncryptionUtil cardEncryptionUtil, DataKeyManager dataKeyManager) {
+        return new CardReEncryptionJob(jdbcTemplate, transactionTemplate, checkpointRepository, cardEncryptionUtil,
+                dataKeyManager, 2, 10, 2);
+    }
+
+    private CardEncryptionUtil cardEncryptionUtil(String secret, String previousSecret) {
+        DataKeyManager dataKeyManager = new DataKeyManager(dataKeyRepository,
+                new FileMasterKeyProvider("", secret, "", previousSecret), 100, Duration.ofMinutes(1), Duration.ofSeconds(10));
+        CardEncryptionUtil cardEncryptionUtil = new CardEncryptionUtil(dataKeyManager);
+        ReflectionTestUtils.setField(cardEncryptionUtil, "secretKey", secret);
+        ReflectionTestUtils.setField(cardEncryptionUtil, "salt", SALT);
+        ReflectionTestUtils.setField(cardEncryptionUtil, "previousSecretKey", previousSecret);
+        ReflectionTestUtils.setField(cardEncryptionUtil, "previousSalt", "");
+        ReflectionTestUtils.setField(cardEncryptionUtil, "blindIndexKey", "test-blind-index-key");
+        cardEncryptionUtil.init();
+        return cardEncryptionUtil;
+    }
+
+    private UUID keyIdOf(Card card) {
+        return jdbcTemplate.queryForObject("SELECT card_number_key_id FROM cards WHERE id = ?", UUID.class, card.getId());
+    }
+
+    private Card saveCard(String lastFour, byte[] ciphertext) {
+        return saveCard(lastFour, ciphertext, OLD_KEY_ID, null);
+    }
+
+    private Card saveCard(String lastFour, byte[] ciphertext, UUID keyId, String text) {
+        Card card = new Card(ciphertext, keyId, lastFour, "blindIndex" + lastFour,
+                "987654321098" + lastFour, user, LocalDate.now().plusYears(1), CardStatus.ACTIVE, BigDecimal.TEN);
+        card.setEncryptedCardNumber(text);
+        return cardRepository.save(card);
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.card.TransferHistoryDto;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.entity.*;
+import com.example.bankcards.exception.card.ConcurrentCardUpdateException;
+import com.example.bankcards.exception.card.InvalidCardOperationException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.ScheduledTransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UuidUserDetails;
+import com.example.bankcards.service.TransferService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the job against a real database, with a transfer service that only records what it was asked to do, so the
+ * claiming and finishing of runs is tested on its own.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:scheduled-transfers;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ScheduledTransferJobTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private ScheduledTransferRepository scheduledTransferRepository;
+
+    private final Map<String, AtomicInteger> transfersByKey = new ConcurrentHashMap<>();
+    private final List<ScheduledTransferJob> jobs = new ArrayList<>();
+    private Consumer<TransferRequest> transferOutcome = request -> {
+    };
+    private User user;
+    private Card from;
+    private Card to;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("scheduled-user", "encoded"));
+        from = saveCard("1111");
+        to = saveCard("2222");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobs.forEach(ScheduledTransferJob::shutdown);
+        scheduledTransferRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void runDue_instancesPollingConcurrently_shouldRunEveryDueTransferOnce() throws Exception {
+        List<ScheduledTransfer> schedules = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            schedules.add(schedule(TransferFrequency.ONCE, LocalDateTime.now().minusMinutes(1)));
+        }
+        scheduledTransferRepository.saveAll(schedules);
+        List<ScheduledTransferJob> instances = List.of(job(Duration.ofMinutes(5)), job(Duration.ofMinutes(5)),
+                job(Duration.ofMinutes(5)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(instances.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> polls = new ArrayList<>();
+        for (ScheduledTransferJob instance : instances) {
+            polls.add(executor.submit(() -> {
+                start.await();
+                instance.runDue();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> poll : polls) {
+            poll.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(transfersByKey).hasSize(200);
+        assertThat(transfersByKey.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+        assertThat(scheduledTransferRepository.findAll())
+                .allSatisfy(schedule -> assertThat(schedule.getStatus()).isEqualTo(ScheduledTransferStatus.COMPLETED));
+    }
+
+    @Test
+    void runDue_recurringTransferMissedSeveralRuns_shouldRunOnceAndMoveToNextFutureRun() {
+        LocalDateTime firstRun = LocalDateTime.now().minusDays(3).minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        ScheduledTransfer daily = scheduledTransferRepository.save(schedule(TransferFrequency.DAILY, firstRun));
+
+        job(Duration.ofMinutes(5)).runDue();
+
+        ScheduledTransfer reloaded = scheduledTransferRepository.findById(daily.getId()).orElseThrow();
+        assertThat(transfersByKey).hasSize(1);
+        assertThat(reloaded.getStatus()).isEqualTo(ScheduledTransferStatus.ACTIVE);
+        assertThat(reloaded.getNextRunAt()).isEqualTo(firstRun.plusDays(4));
+        assertThat(reloaded.getLastRunAt()).isNotNull();
+        assertThat(reloaded.getClaimedUntil()).isNull();
+    }
+
+    @Test
+    void runDue_monthlyTransferAnchoredOnMonthEnd_shouldNotDriftToShortMonthDay() {
+        // February of a year ago was run on its last day, clamped from the 31st of January
+        LocalDateTime firstRun = LocalDate.now().minusYears(1).withMonth(1).withDayOfMonth(31).atTime(9, 0);
+        LocalDateTime clampedRun = firstRun.plusMonths(1);
+        ScheduledTransfer monthly = scheduledTransferRepository.save(schedule(TransferFrequency.MONTHLY, firstRun));
+        jdbcTemplate.update("UPDATE scheduled_transfers SET next_run_at = ? WHERE id = ?", clampedRun, monthly.getId());
+
+        job(Duration.ofMinutes(5)).runDue();
+
+        LocalDateTime nextRunAt = scheduledTransferRepository.findById(monthly.getId()).orElseThrow().getNextRunAt();
+        assertThat(transfersByKey).hasSize(1);
+        assertThat(nextRunAt).isAfter(LocalDateTime.now()).isBefore(LocalDateTime.now().plusMonths(1).plusDays(1));
+        assertThat(nextRunAt.getDayOfMonth()).isEqualTo(nextRunAt.toLocalDate().lengthOfMonth());
+        assertThat(nextRunAt.toLocalTime()).isEqualTo(firstRun.toLocalTime());
+    }
+
+    @Test
+    void runDue_notDueYet_shouldNotRun() {
+        scheduledTransferRepository.save(schedule(TransferFrequency.ONCE, LocalDateTime.now().plusHours(1)));
+
+        job(Duration.ofMinutes(5)).runDue();
+
+        assertThat(transfersByKey).isEmpty();
+    }
+
+    @Test
+    void runDue_transferRejected_shouldFailOneOffSchedule() {
+        transferOutcome = request -> {
+            throw new InvalidCardOperationException("Insufficient balance on source card.");
+        };
+        ScheduledTransfer once = scheduledTransferRepository.save(
+                schedule(TransferFrequency.ONCE, LocalDateTime.now().minusMinutes(1)));
+
+        job(Duration.ofMinutes(5)).runDue();
+
+        ScheduledTransfer reloaded = scheduledTransferRepository.findById(once.getId()).orElseThrow();
+        assertThat(reloaded.getStatus()).isEqualTo(ScheduledTransferStatus.FAILED);
+        assertThat(reloaded.getLastError()).isEqualTo("Insufficient balance on source card.");
+    }
+
+    @Test
+    void runDue_transientFailure_shouldRetrySameRunOnceClaimRunsOut() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        transferOutcome = request -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ConcurrentCardUpdateException();
+            }
+        };
+        ScheduledTransfer once = scheduledTransferRepository.save(
+                schedule(TransferFrequency.ONCE, LocalDateTime.now().minusMinutes(1)));
+        ScheduledTransferJob job = job(Duration.ofSeconds(1));
+
+        job.runDue();
+        ScheduledTransfer afterFailure = scheduledTransferRepository.findById(once.getId()).orElseThrow();
+        // still claimed, so an immediate poll leaves it alone
+        job.runDue();
+        assertThat(attempts.get()).isEqualTo(1);
+        Thread.sleep(1100);
+        job.runDue();
+
+        assertThat(afterFailure.getStatus()).isEqualTo(ScheduledTransferStatus.ACTIVE);
+        assertThat(afterFailure.getLastError()).isNotNull();
+        assertThat(attempts.get()).isEqualTo(2);
+        // both attempts made the same run, under the same idempotency key
+        assertThat(transfersByKey).hasSize(1);
+        assertThat(transfersByKey.values().iterator().next().get()).isEqualTo(2);
+        assertThat(scheduledTransferRepository.findById(once.getId()).orElseThrow().getStatus())
+                .isEqualTo(ScheduledTransferStatus.COMPLETED);
+    }
+
+    private ScheduledTransferJob job(Duration claimDuration) {
+        ScheduledTransferJob job = new ScheduledTransferJob(jdbcTemplate, transactionTemplate, new RecordingTransferService(),
+                20, 100, claimDuration, 4, new SimpleMeterRegistry());
+        jobs.add(job);
+        return job;
+    }
+
+    private ScheduledTransfer schedule(TransferFrequency frequency, LocalDateTime firstRunAt) {
+        return new ScheduledTransfer(user.getId(), from.getId(), to.getId(), AMOUNT, frequency, firstRunAt);
+    }
+
+    private Card saveCard(String lastFour) {
+        return cardRepository.save(new Card(new byte[]{1}, null, lastFour, "blindIndex" + lastFour,
+                "987654321098" + lastFour, user, LocalDate.now().plusYears(1), CardStatus.ACTIVE, BigDecimal.TEN));
+    }
+
+    private class RecordingTransferService implements TransferService {
+
+        @Override
+        public void transferBetweenUserOwnedCards(UUID userId, TransferRequest request, String idempotencyKey) {
+            UuidUserDetails principal = (UuidUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            assertThat(principal.getUuid()).isEqualTo(userId);
+            transfersByKey.computeIfAbsent(idempotencyKey, key -> new AtomicInteger()).incrementAndGet();
+            transferOutcome.accept(request);
+        }
+
+        @Override
+        public void transferBatch(UUID userId, List<TransferRequest> transfers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TransferHistoryDto getTransferHistory(UUID userId, UUID cardId, Integer pageSize, String cursor) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
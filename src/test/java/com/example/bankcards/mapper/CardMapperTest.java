@@ -0,0 +1,39 @@
+package com.example.bankcards.mapper;
+
+import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.util.CardEncryptionUtil;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class CardMapperTest {
+
+    @Test
+    void toDto_shouldCopyTokenAndMaskWithoutCrypto() {
+        CardEncryptionUtil cardEncryptionUtil = mock(CardEncryptionUtil.class);
+        CardMapper cardMapper = Mappers.getMapper(CardMapper.class);
+        ReflectionTestUtils.setField(cardMapper, "cardEncryptionUtil", cardEncryptionUtil);
+        User owner = new User();
+        owner.setId(UUID.randomUUID());
+        Card card = new Card(new byte[]{1}, UUID.randomUUID(), "3456", "blindIndex3456", "9876543210983456", owner,
+                LocalDate.now().plusYears(1), CardStatus.ACTIVE, BigDecimal.TEN);
+
+        CardDto cardDto = cardMapper.toDto(card);
+
+        assertThat(cardDto.getCardToken()).isEqualTo("9876543210983456");
+        assertThat(cardDto.getMaskedCardNumber()).isEqualTo("**** **** **** 3456");
+        assertThat(cardDto.getOwnerId()).isEqualTo(owner.getId());
+        verifyNoInteractions(cardEncryptionUtil);
+    }
+}
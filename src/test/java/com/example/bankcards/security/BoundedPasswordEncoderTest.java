@@ -0,0 +1,72 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("hashed:" + rawPassword);
+        }
+    };
+
+    private final BoundedPasswordEncoder boundedPasswordEncoder = new BoundedPasswordEncoder(blockingEncoder, 1, 1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        boundedPasswordEncoder.shutdown();
+    }
+
+    @Test
+    void encode_withinCapacity_shouldDelegate() {
+        release.countDown();
+
+        assertThat(boundedPasswordEncoder.encode("secret")).isEqualTo("hashed:secret");
+        assertThat(boundedPasswordEncoder.matches("secret", "hashed:secret")).isTrue();
+    }
+
+    @Test
+    void encode_poolAndQueueFull_shouldRejectImmediately() throws InterruptedException {
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.encode("first"));
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.encode("second"));
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(boundedPasswordEncoder, "executor");
+        while (executor.getQueue().isEmpty()) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(ServiceOverloadedException.class, () -> boundedPasswordEncoder.encode("third"));
+
+        release.countDown();
+        assertThat(running.join()).isEqualTo("hashed:first");
+        assertThat(queued.join()).isEqualTo("hashed:second");
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRefreshTokenStoreTest {
+
+    private final InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(100);
+
+    @Test
+    void consume_savedToken_shouldReturnOwnerOnlyOnce() {
+        UUID userId = UUID.randomUUID();
+        store.save("hash", userId, Instant.now().plusSeconds(60));
+
+        assertThat(store.consume("hash")).contains(userId);
+        assertThat(store.consume("hash")).isEmpty();
+    }
+
+    @Test
+    void consume_expiredToken_shouldReturnEmpty() {
+        store.save("hash", UUID.randomUUID(), Instant.now().minusSeconds(1));
+
+        assertThat(store.consume("hash")).isEmpty();
+    }
+
+    @Test
+    void revokeAllForUser_shouldDropOnlyThatUsersTokens() {
+        UUID userId = UUID.randomUUID();
+        UUID otherUserId = UUID.randomUUID();
+        store.save("first", userId, Instant.now().plusSeconds(60));
+        store.save("second", userId, Instant.now().plusSeconds(60));
+        store.save("other", otherUserId, Instant.now().plusSeconds(60));
+
+        store.revokeAllForUser(userId);
+
+        assertThat(store.consume("first")).isEmpty();
+        assertThat(store.consume("second")).isEmpty();
+        assertThat(store.consume("other")).contains(otherUserId);
+    }
+}
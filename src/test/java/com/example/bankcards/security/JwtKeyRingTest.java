@@ -0,0 +1,141 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PrivateJwk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtKeyRingTest {
+
+    private static final String SECRET = "Zm9vYmFyYmF6cXV4c29tZXJhbmRvbXN0cmluZ3RoaXNpc2p1c3RhbmV4YW1wbGV0b2RlbW9uc3RyYXRl";
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"HS512", "ES256", "EdDSA"})
+    void generateToken_eachAlgorithm_shouldValidateAndCarryKid(String algorithm) {
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, algorithm, "", "");
+        keyRing.init();
+        JwtTokenProvider provider = provider(keyRing);
+
+        String token = provider.generateToken("testuser");
+
+        assertThat(provider.validateToken(token)).isPresent();
+        assertThat(kidOf(keyRing, token)).isEqualTo(keyRing.signingKey().getKid());
+        assertThat(keyRing.signingKey().getAlgorithm().getId()).isEqualTo(algorithm);
+    }
+
+    @Test
+    void init_unsupportedAlgorithm_shouldFail() {
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, "RS256", "", "");
+
+        assertThrows(IllegalStateException.class, keyRing::init);
+    }
+
+    @Test
+    void validateToken_algorithmDiffersFromKey_shouldReturnEmpty() {
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, "HS512", "", "");
+        keyRing.init();
+        String token = Jwts.builder()
+                .header().keyId(keyRing.signingKey().getKid()).and()
+                .subject("testuser")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS256)
+                .compact();
+
+        assertThat(provider(keyRing).validateToken(token)).isEmpty();
+    }
+
+    @Test
+    void reload_rotatedJwkSet_shouldSignWithNewKeyAndDropRetiredOne() throws IOException {
+        PrivateJwk<?, ?, ?> oldKey = Jwks.builder().keyPair(Jwts.SIG.ES256.keyPair().build()).id("old").build();
+        KeyPair newKeyPair = Jwks.CRV.Ed25519.keyPair().build();
+        PrivateJwk<?, ?, ?> newKey = Jwks.builder().keyPair(newKeyPair).id("new").build();
+        Path keys = tempDir.resolve("jwks.json");
+        writeJwkSet(keys, 1, Jwks.UNSAFE_JSON(oldKey));
+        JwtKeyRing keyRing = new JwtKeyRing("", "HS512", keys.toString(), "");
+        keyRing.init();
+        JwtTokenProvider provider = provider(keyRing);
+        String oldToken = provider.generateToken("testuser");
+        assertThat(kidOf(keyRing, oldToken)).isEqualTo("old");
+        assertThat(provider.validateToken(oldToken)).isPresent();
+
+        writeJwkSet(keys, 2, Jwks.json(oldKey.toPublicJwk()), Jwks.UNSAFE_JSON(newKey));
+        keyRing.reload();
+        String newToken = provider.generateToken("testuser");
+
+        assertThat(kidOf(keyRing, newToken)).isEqualTo("new");
+        assertThat(provider.validateToken(oldToken)).isPresent();
+        assertThat(provider.validateToken(newToken)).isPresent();
+
+        writeJwkSet(keys, 3, Jwks.UNSAFE_JSON(newKey));
+        keyRing.reload();
+
+        assertThat(provider.validateToken(oldToken)).isEmpty();
+        assertThat(provider.validateToken(newToken)).isPresent();
+    }
+
+    @Test
+    void reload_malformedJwkSet_shouldKeepCurrentKeys() throws IOException {
+        PrivateJwk<?, ?, ?> key = Jwks.builder().keyPair(Jwts.SIG.ES256.keyPair().build()).id("current").build();
+        Path keys = tempDir.resolve("jwks.json");
+        writeJwkSet(keys, 1, Jwks.UNSAFE_JSON(key));
+        JwtKeyRing keyRing = new JwtKeyRing("", "HS512", keys.toString(), "");
+        keyRing.init();
+
+        Files.writeString(keys, "{\"keys\": [");
+        Files.setLastModifiedTime(keys, FileTime.fromMillis(System.currentTimeMillis() + 2_000));
+        keyRing.reload();
+
+        assertThat(keyRing.signingKey().getKid()).isEqualTo("current");
+    }
+
+    @Test
+    void signingKey_publicKeysOnly_shouldFail() throws IOException {
+        PrivateJwk<?, ?, ?> key = Jwks.builder().keyPair(Jwts.SIG.ES256.keyPair().build()).id("verify-only").build();
+        Path keys = tempDir.resolve("jwks.json");
+        writeJwkSet(keys, 1, Jwks.json(key.toPublicJwk()));
+        JwtKeyRing keyRing = new JwtKeyRing("", "HS512", keys.toString(), "");
+        keyRing.init();
+
+        assertThat(keyRing.keys()).extracting(JwtSigningKey::getKid).containsExactly("verify-only");
+        assertThrows(IllegalStateException.class, keyRing::signingKey);
+    }
+
+    private static JwtTokenProvider provider(JwtKeyRing keyRing) {
+        JwtTokenProvider provider = new JwtTokenProvider(keyRing, new TokenRevocationRegistry());
+        provider.jwtTokenValidity = 60;
+        ReflectionTestUtils.setField(provider, "tokenCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(provider, "tokenCacheMaxMemoryBytes", 1024L * 1024);
+        provider.init();
+        return provider;
+    }
+
+    private static String kidOf(JwtKeyRing keyRing, String token) {
+        return Jwts.parser().keyLocator(keyRing).build().parseSignedClaims(token).getHeader().getKeyId();
+    }
+
+    private static void writeJwkSet(Path path, int version, String... jwks) throws IOException {
+        Files.writeString(path, "{\"keys\": [" + String.join(",", List.of(jwks)) + "]}");
+        // distinct modification times, as the ring only re-reads a file that has changed
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + version * 1_000L));
+    }
+}
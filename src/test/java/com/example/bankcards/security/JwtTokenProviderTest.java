@@ -0,0 +1,140 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "Zm9vYmFyYmF6cXV4c29tZXJhbmRvbXN0cmluZ3RoaXNpc2p1c3RhbmV4YW1wbGV0b2RlbW9uc3RyYXRl";
+
+    private JwtTokenProvider jwtTokenProvider;
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @BeforeEach
+    void setUp() {
+        JwtKeyRing keyRing = new JwtKeyRing(SECRET, "HS512", "", "");
+        keyRing.init();
+        tokenRevocationRegistry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(tokenRevocationRegistry, "jwtTokenValidity", 60L);
+        jwtTokenProvider = new JwtTokenProvider(keyRing, tokenRevocationRegistry);
+        jwtTokenProvider.jwtTokenValidity = 60;
+        jwtTokenProvider.init();
+    }
+
+    @Test
+    void validateToken_freshToken_shouldReturnPrincipal() {
+        String token = jwtTokenProvider.generateToken("testuser");
+
+        Optional<JwtPrincipal> principal = jwtTokenProvider.validateToken(token);
+
+        assertThat(principal).isPresent();
+        assertThat(principal.get().getUsername()).isEqualTo("testuser");
+        assertThat(principal.get().getExpiresAt()).isAfter(principal.get().getIssuedAt());
+    }
+
+    @Test
+    void validateToken_tokenForUuidUser_shouldCarryIdentityClaims() {
+        UUID userId = UUID.randomUUID();
+        UuidUserDetails userDetails = new UuidUserDetails(userId, "testuser", "encoded",
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("ROLE_USER")));
+
+        JwtPrincipal principal = jwtTokenProvider.validateToken(jwtTokenProvider.generateToken(userDetails)).orElseThrow();
+
+        assertThat(principal.hasIdentityClaims()).isTrue();
+        assertThat(principal.getUserId()).isEqualTo(userId);
+        assertThat(principal.getRoles()).containsExactlyInAnyOrder("ADMIN", "USER");
+    }
+
+    @Test
+    void generateToken_inSameSecondAsRevocation_shouldNotBeRevoked() {
+        UUID userId = UUID.randomUUID();
+        UuidUserDetails userDetails = new UuidUserDetails(userId, "testuser", "encoded",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        JwtPrincipal before = jwtTokenProvider.validateToken(jwtTokenProvider.generateToken(userDetails)).orElseThrow();
+
+        tokenRevocationRegistry.revokeAllForUser(userId);
+        JwtPrincipal after = jwtTokenProvider.validateToken(jwtTokenProvider.generateToken(userDetails)).orElseThrow();
+
+        assertThat(tokenRevocationRegistry.isRevoked(before)).isTrue();
+        assertThat(tokenRevocationRegistry.isRevoked(after)).isFalse();
+    }
+
+    @Test
+    void validateToken_usernameOnlyToken_shouldHaveNoIdentityClaims() {
+        JwtPrincipal principal = jwtTokenProvider.validateToken(jwtTokenProvider.generateToken("testuser")).orElseThrow();
+
+        assertThat(principal.hasIdentityClaims()).isFalse();
+    }
+
+    @Test
+    void validateToken_expiredToken_shouldReturnEmpty() {
+        jwtTokenProvider.jwtTokenValidity = -60;
+        String token = jwtTokenProvider.generateToken("testuser");
+
+        assertThat(jwtTokenProvider.validateToken(token)).isEmpty();
+    }
+
+    @Test
+    void validateToken_foreignSignature_shouldReturnEmpty() {
+        String token = Jwts.builder()
+                .subject("testuser")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor("another-secret-another-secret-another-secret-another-secret-1234"
+                        .getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS512)
+                .compact();
+
+        assertThat(jwtTokenProvider.validateToken(token)).isEmpty();
+    }
+
+    @Test
+    void validateToken_cacheEnabled_shouldReturnCachedPrincipalForSameToken() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "tokenCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "tokenCacheMaxMemoryBytes", 1024L * 1024);
+        jwtTokenProvider.init();
+        String token = jwtTokenProvider.generateToken("testuser");
+
+        JwtPrincipal first = jwtTokenProvider.validateToken(token).orElseThrow();
+        JwtPrincipal second = jwtTokenProvider.validateToken(token).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void validateToken_cacheEnabled_shouldNotCacheRejectedTokens() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "tokenCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "tokenCacheMaxMemoryBytes", 1024L * 1024);
+        jwtTokenProvider.init();
+        jwtTokenProvider.jwtTokenValidity = -60;
+        String token = jwtTokenProvider.generateToken("testuser");
+
+        assertThat(jwtTokenProvider.validateToken(token)).isEmpty();
+        assertThat(jwtTokenProvider.validateToken(token)).isEmpty();
+    }
+
+    @Test
+    void validateToken_garbage_shouldReturnEmpty() {
+        assertThat(jwtTokenProvider.validateToken("not-a-jwt")).isEmpty();
+        assertThat(jwtTokenProvider.validateToken("")).isEmpty();
+    }
+
+    @Test
+    void generateToken_shouldAssignUniqueTokenId() {
+        JwtPrincipal first = jwtTokenProvider.validateToken(jwtTokenProvider.generateToken("testuser")).orElseThrow();
+        JwtPrincipal second = jwtTokenProvider.validateToken(jwtTokenProvider.generateToken("testuser")).orElseThrow();
+
+        assertThat(first.getTokenId()).isNotNull();
+        assertThat(second.getTokenId()).isNotEqualTo(first.getTokenId());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.security.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginThrottleTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        loginThrottle = new LoginThrottle(true, new LoginThrottle.Limit(3, 6), new LoginThrottle.Limit(5, 60),
+                1000, meterRegistry, clock::get);
+    }
+
+    @Test
+    void acquire_burstExhausted_shouldRejectUntilRefilled() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("testuser", "10.0.0.1");
+        }
+
+        TooManyLoginAttemptsException thrown = assertThrows(TooManyLoginAttemptsException.class,
+                () -> loginThrottle.acquire("testuser", "10.0.0.1"));
+        assertThat(thrown.getRetryAfterSeconds()).isEqualTo(10);
+        assertThat(meterRegistry.get("auth.login.throttled").tag("key", "username").counter().count()).isEqualTo(1);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertDoesNotThrow(() -> loginThrottle.acquire("testuser", "10.0.0.1"));
+    }
+
+    @Test
+    void acquire_caseVariantsOfUsername_shouldShareBucket() {
+        loginThrottle.acquire("TestUser", "10.0.0.1");
+        loginThrottle.acquire("testuser", "10.0.0.2");
+        loginThrottle.acquire("TESTUSER", "10.0.0.3");
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> loginThrottle.acquire("testUser", "10.0.0.4"));
+    }
+
+    @Test
+    void acquire_manyUsernamesFromOneAddress_shouldRejectByAddress() {
+        for (int i = 0; i < 5; i++) {
+            loginThrottle.acquire("user" + i, "10.0.0.1");
+        }
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> loginThrottle.acquire("user5", "10.0.0.1"));
+        assertThat(meterRegistry.get("auth.login.throttled").tag("key", "address").counter().count()).isEqualTo(1);
+        assertDoesNotThrow(() -> loginThrottle.acquire("user5", "10.0.0.2"));
+    }
+
+    @Test
+    void reset_afterSuccessfulLogin_shouldRefillUsernameBucket() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("testuser", "10.0.0.1");
+        }
+
+        loginThrottle.reset("testuser");
+
+        assertDoesNotThrow(() -> loginThrottle.acquire("testuser", "10.0.0.1"));
+    }
+
+    @Test
+    void acquire_disabled_shouldNeverReject() {
+        LoginThrottle disabled = new LoginThrottle(false, new LoginThrottle.Limit(1, 1), new LoginThrottle.Limit(1, 1),
+                1000, meterRegistry, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            disabled.acquire("testuser", "10.0.0.1");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationRegistryTest {
+
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(registry, "jwtTokenValidity", 900L);
+    }
+
+    @Test
+    void revokeToken_shouldRejectOnlyThatToken() {
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal revoked = principal(UUID.randomUUID().toString(), userId, Instant.now().plusSeconds(600));
+        JwtPrincipal other = principal(UUID.randomUUID().toString(), userId, revoked.getExpiresAt());
+
+        registry.revokeToken(revoked);
+
+        assertThat(registry.isRevoked(revoked)).isTrue();
+        assertThat(registry.isRevoked(other)).isFalse();
+    }
+
+    @Test
+    void revokeToken_withoutTokenId_shouldBeIgnored() {
+        JwtPrincipal principal = principal(null, UUID.randomUUID(), Instant.now().plusSeconds(600));
+
+        registry.revokeToken(principal);
+
+        assertThat(registry.isRevoked(principal)).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void purgeExpired_shouldDropBucketsOfExpiredTokens() {
+        JwtPrincipal longLived = principal(UUID.randomUUID().toString(), UUID.randomUUID(), Instant.now().plusSeconds(600));
+        registry.revokeToken(longLived);
+        Map<Long, Set<UUID>> buckets = (Map<Long, Set<UUID>>) ReflectionTestUtils.getField(registry, "revokedTokenIds");
+        buckets.put(0L, Set.of(UUID.randomUUID()));
+
+        registry.purgeExpired();
+
+        assertThat(buckets).doesNotContainKey(0L).hasSize(1);
+        assertThat(registry.isRevoked(longLived)).isTrue();
+    }
+
+    @Test
+    void revokeAllForUser_shouldRejectTokensIssuedBeforeButNotOtherUsers() {
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal issuedBefore = new JwtPrincipal(UUID.randomUUID().toString(), "testuser", userId, List.of("USER"),
+                Instant.now().minusSeconds(10), Instant.now().plusSeconds(600));
+        JwtPrincipal otherUser = principal(UUID.randomUUID().toString(), UUID.randomUUID(), Instant.now().plusSeconds(600));
+
+        registry.revokeAllForUser(userId);
+
+        assertThat(registry.isRevoked(issuedBefore)).isTrue();
+        assertThat(registry.isRevoked(otherUser)).isFalse();
+    }
+
+    @Test
+    void revokeAllForUser_shouldAcceptTokenIssuedInSameSecondAfterRevocation() {
+        UUID userId = UUID.randomUUID();
+        Instant revokedAt = Instant.now();
+        JwtPrincipal issuedInSameSecond = new JwtPrincipal(UUID.randomUUID().toString(), "testuser", userId, List.of("USER"),
+                revokedAt.truncatedTo(ChronoUnit.SECONDS), revokedAt.plusSeconds(600));
+
+        registry.revokeAllForUser(userId);
+        Instant reissuedAt = registry.issuedAtFor(userId, Instant.now()).truncatedTo(ChronoUnit.SECONDS);
+        JwtPrincipal reissued = new JwtPrincipal(UUID.randomUUID().toString(), "testuser", userId, List.of("USER"),
+                reissuedAt, reissuedAt.plusSeconds(600));
+
+        assertThat(registry.isRevoked(issuedInSameSecond)).isTrue();
+        assertThat(registry.isRevoked(reissued)).isFalse();
+        assertThat(registry.issuedAtFor(UUID.randomUUID(), revokedAt)).isEqualTo(revokedAt);
+    }
+
+    @Test
+    void revokeAllForUser_withSharedStore_shouldReachOtherInstances() {
+        UserRevocationStore sharedStore = new MapUserRevocationStore();
+        TokenRevocationRegistry revoking = registry(sharedStore);
+        TokenRevocationRegistry other = registry(sharedStore);
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal issuedBefore = new JwtPrincipal(UUID.randomUUID().toString(), "testuser", userId, List.of("USER"),
+                Instant.now().minusSeconds(10), Instant.now().plusSeconds(600));
+
+        revoking.revokeAllForUser(userId);
+
+        assertThat(other.isRevoked(issuedBefore)).isFalse();
+        assertThat(other.issuedAtFor(userId, Instant.now())).isAfter(Instant.now());
+        other.syncShared();
+        assertThat(other.isRevoked(issuedBefore)).isTrue();
+    }
+
+    private static TokenRevocationRegistry registry(UserRevocationStore sharedStore) {
+        TokenRevocationRegistry registry = new TokenRevocationRegistry(Optional.of(sharedStore));
+        ReflectionTestUtils.setField(registry, "jwtTokenValidity", 900L);
+        return registry;
+    }
+
+    private static JwtPrincipal principal(String tokenId, UUID userId, Instant expiresAt) {
+        return new JwtPrincipal(tokenId, "testuser", userId, List.of("USER"), Instant.now().minusSeconds(10), expiresAt);
+    }
+
+    private static class MapUserRevocationStore implements UserRevocationStore {
+        private final Map<UUID, Instant> cutoffs = new ConcurrentHashMap<>();
+
+        @Override
+        public void save(UUID userId, Instant revokedBefore) {
+            cutoffs.put(userId, revokedBefore);
+        }
+
+        @Override
+        public Optional<Instant> findLatest(UUID userId) {
+            return Optional.ofNullable(cutoffs.get(userId));
+        }
+
+        @Override
+        public Map<UUID, Instant> findAllAfter(Instant after) {
+            return Map.copyOf(cutoffs);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserPrincipalCacheTest {
+
+    private UserPrincipalCache userPrincipalCache;
+    private UUID userId;
+    private AtomicInteger loads;
+    private Function<String, UuidUserDetails> loader;
+
+    @BeforeEach
+    void setUp() {
+        userPrincipalCache = new UserPrincipalCache(100, 60, new SimpleMeterRegistry());
+        userId = UUID.randomUUID();
+        loads = new AtomicInteger();
+        loader = username -> {
+            loads.incrementAndGet();
+            return new UuidUserDetails(userId, username, "encoded", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        };
+    }
+
+    @Test
+    void get_repeatedLookups_shouldLoadOnceAndCountHits() {
+        userPrincipalCache.get("testuser", loader);
+        userPrincipalCache.get("testuser", loader);
+        userPrincipalCache.get("testuser", loader);
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(userPrincipalCache.stats().hitCount()).isEqualTo(2);
+        assertThat(userPrincipalCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_erasedCredentialsOnReturnedInstance_shouldNotLeakIntoCache() {
+        userPrincipalCache.get("testuser", loader).eraseCredentials();
+
+        assertThat(userPrincipalCache.get("testuser", loader).getPassword()).isEqualTo("encoded");
+    }
+
+    @Test
+    void evict_byUserId_shouldForceReload() {
+        userPrincipalCache.get("testuser", loader);
+
+        userPrincipalCache.evictAfterCommit(userId);
+        userPrincipalCache.get("testuser", loader);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void evict_byUserId_shouldOnlyEvictThatUser() {
+        Function<String, UuidUserDetails> otherLoader = username -> {
+            loads.incrementAndGet();
+            return new UuidUserDetails(UUID.randomUUID(), username, "encoded", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        };
+        userPrincipalCache.get("testuser", loader);
+        userPrincipalCache.get("otheruser", otherLoader);
+
+        userPrincipalCache.evict(userId);
+        userPrincipalCache.get("testuser", loader);
+        userPrincipalCache.get("otheruser", otherLoader);
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evict_byUsernameAndSizeEviction_shouldDropIdIndexEntries() {
+        UserPrincipalCache small = new UserPrincipalCache(1, 60, new SimpleMeterRegistry());
+        Map<UUID, Set<String>> usernamesById = (Map<UUID, Set<String>>) ReflectionTestUtils.getField(small, "usernamesById");
+
+        small.get("testuser", loader);
+        small.evict("testuser");
+        assertThat(usernamesById).isEmpty();
+
+        for (int i = 0; i < 50; i++) {
+            UUID id = UUID.randomUUID();
+            small.get("user" + i, username -> new UuidUserDetails(id, username, "encoded", List.of()));
+        }
+        ((Cache<?, ?>) ReflectionTestUtils.getField(small, "cache")).cleanUp();
+
+        assertThat(usernamesById).hasSize(1);
+    }
+}
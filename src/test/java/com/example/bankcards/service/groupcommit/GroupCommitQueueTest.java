@@ -0,0 +1,149 @@
+package com.example.bankcards.service.groupcommit;
+
+import com.example.bankcards.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroupCommitQueueTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final List<List<Integer>> groups = new CopyOnWriteArrayList<>();
+    private GroupCommitQueue<Integer> queue;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void submit_whileAGroupCommits_shouldGatherLaterSubmissionsIntoOneGroup() throws Exception {
+        CountDownLatch firstCommitting = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        queue = queue(100, Duration.ofMillis(20), 100, group -> {
+            if (groups.isEmpty()) {
+                firstCommitting.countDown();
+                await(releaseFirst);
+            }
+            groups.add(group);
+            return Collections.nCopies(group.size(), null);
+        });
+
+        Future<?> first = callers.submit(() -> queue.submit(0));
+        assertThat(firstCommitting.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<?>> later = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            int item = i;
+            later.add(callers.submit(() -> queue.submit(item)));
+        }
+        // let every later submission reach the queue before the committer is free again
+        Thread.sleep(200);
+        releaseFirst.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        for (Future<?> result : later) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(groups).hasSize(2);
+        assertThat(groups.get(1)).containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    void submit_groupFull_shouldCommitWithoutWaitingForTheDelay() throws Exception {
+        queue = queue(3, Duration.ofMinutes(1), 100, group -> {
+            groups.add(group);
+            return Collections.nCopies(group.size(), null);
+        });
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int item = i;
+            results.add(callers.submit(() -> queue.submit(item)));
+        }
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(groups).flatExtracting(group -> group).containsExactlyInAnyOrder(0, 1, 2);
+    }
+
+    @Test
+    void submit_itemRejectedByCommit_shouldFailOnlyThatCaller() throws Exception {
+        queue = queue(10, Duration.ofMillis(50), 100, group -> group.stream()
+                .map(item -> item == 1 ? new IllegalStateException("rejected " + item) : null)
+                .toList());
+
+        Future<?> accepted = callers.submit(() -> queue.submit(0));
+        Future<?> rejected = callers.submit(() -> queue.submit(1));
+
+        accepted.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("rejected 1");
+    }
+
+    @Test
+    void submit_commitThrows_shouldFailEveryCallerOfTheGroup() {
+        queue = queue(10, Duration.ZERO, 100, group -> {
+            throw new IllegalStateException("commit failed");
+        });
+
+        assertThatThrownBy(() -> queue.submit(0))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("commit failed");
+    }
+
+    @Test
+    void submit_tooManyPending_shouldRejectWithoutQueueing() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CountDownLatch firstCommitting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue = new GroupCommitQueue<>(1, Duration.ZERO, 1, group -> {
+            firstCommitting.countDown();
+            await(release);
+            groups.add(group);
+            return Collections.nCopies(group.size(), null);
+        }, meterRegistry);
+
+        Future<?> committing = callers.submit(() -> queue.submit(0));
+        assertThat(firstCommitting.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> waiting = callers.submit(() -> queue.submit(1));
+        // the single slot is taken once the second submission is queued
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("transfers.group_commit.pending").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertThatThrownBy(() -> queue.submit(2)).isInstanceOf(ServiceOverloadedException.class);
+        release.countDown();
+        committing.get(5, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertThat(groups).flatExtracting(group -> group).containsExactly(0, 1);
+    }
+
+    private static GroupCommitQueue<Integer> queue(int maxGroupSize, Duration maxDelay, int maxPending,
+                                                   Function<List<Integer>, List<? extends RuntimeException>> commit) {
+        return new GroupCommitQueue<>(maxGroupSize, maxDelay, maxPending, commit, new SimpleMeterRegistry());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.bankcards.service.groupcommit;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.exception.card.InvalidCardOperationException;
+import com.example.bankcards.service.jpa.JpaTransferService;
+import com.example.bankcards.service.jpa.JpaTransferService.GroupedTransfer;
+import com.example.bankcards.service.jpa.TransferIdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitTransferServiceTest {
+    @Mock
+    private JpaTransferService delegate;
+    @Mock
+    private TransferIdempotencyStore transferIdempotencyStore;
+
+    private GroupCommitTransferService groupCommitTransferService;
+    private final UUID userId = UUID.randomUUID();
+    private GroupedTransfer keyed;
+    private GroupedTransfer plain;
+
+    @BeforeEach
+    void setUp() {
+        groupCommitTransferService = new GroupCommitTransferService(delegate, transferIdempotencyStore, 10,
+                Duration.ofMillis(1), 100, new SimpleMeterRegistry());
+        keyed = new GroupedTransfer(userId,
+                new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.TEN), "retry-1");
+        plain = new GroupedTransfer(userId,
+                new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE), null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        groupCommitTransferService.shutdown();
+    }
+
+    @Test
+    void commit_groupCommitted_shouldRememberKeysOfTransfersMade() {
+        InvalidCardOperationException rejected = new InvalidCardOperationException("Source card is not active.");
+        when(delegate.transferGroup(List.of(keyed, plain))).thenReturn(Arrays.asList(null, rejected));
+
+        List<RuntimeException> failures = groupCommitTransferService.commit(List.of(keyed, plain));
+
+        assertEquals(Arrays.asList(null, rejected), failures);
+        verify(transferIdempotencyStore).remember(userId, "retry-1", TransferIdempotencyStore.requestHash(keyed.request()));
+    }
+
+    @Test
+    void commit_groupFails_shouldRetryEachTransferAlone() {
+        CannotAcquireLockException lockTimeout = new CannotAcquireLockException("lock timeout");
+        when(delegate.transferGroup(List.of(keyed, plain))).thenThrow(lockTimeout);
+        when(delegate.transferGroup(List.of(keyed))).thenReturn(Arrays.asList((RuntimeException) null));
+        when(delegate.transferGroup(List.of(plain))).thenThrow(lockTimeout);
+
+        List<RuntimeException> failures = groupCommitTransferService.commit(List.of(keyed, plain));
+
+        assertNull(failures.get(0));
+        assertSame(lockTimeout, failures.get(1));
+        verify(transferIdempotencyStore).remember(userId, "retry-1", TransferIdempotencyStore.requestHash(keyed.request()));
+    }
+
+    @Test
+    void commit_keyCommittedElsewhereMeanwhile_shouldReplay() {
+        when(delegate.transferGroup(List.of(keyed))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        String requestHash = TransferIdempotencyStore.requestHash(keyed.request());
+        when(transferIdempotencyStore.isCompletedInStore(userId, "retry-1", requestHash)).thenReturn(true);
+
+        List<RuntimeException> failures = groupCommitTransferService.commit(List.of(keyed));
+
+        assertNull(failures.get(0));
+    }
+
+    @Test
+    void commit_integrityViolationWithoutKey_shouldFailTheTransfer() {
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("constraint");
+        when(delegate.transferGroup(List.of(plain))).thenThrow(violation);
+
+        List<RuntimeException> failures = groupCommitTransferService.commit(List.of(plain));
+
+        assertSame(violation, failures.get(0));
+        verifyNoInteractions(transferIdempotencyStore);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_keyInCache_shouldNotQueue() {
+        when(transferIdempotencyStore.isCompleted(userId, "retry-1", TransferIdempotencyStore.requestHash(keyed.request())))
+                .thenReturn(true);
+
+        groupCommitTransferService.transferBetweenUserOwnedCards(userId, keyed.request(), "retry-1");
+
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_rejected_shouldThrowOwnFailure() {
+        InvalidCardOperationException rejected = new InvalidCardOperationException("Insufficient balance on source card.");
+        when(delegate.transferGroup(List.of(plain))).thenReturn(List.of(rejected));
+
+        InvalidCardOperationException thrown = assertThrows(InvalidCardOperationException.class,
+                () -> groupCommitTransferService.transferBetweenUserOwnedCards(userId, plain.request(), null));
+
+        assertSame(rejected, thrown);
+    }
+}
@@ -2,15 +2,21 @@ package com.example.bankcards.service.jpa;
 
 import com.example.bankcards.dto.security.JwtAuthResponse;
 import com.example.bankcards.dto.security.LoginRequest;
+import com.example.bankcards.dto.security.RefreshTokenRequest;
 import com.example.bankcards.dto.security.RegisterRequest;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.RoleName;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.InternalException;
+import com.example.bankcards.exception.security.InvalidRefreshTokenException;
 import com.example.bankcards.exception.user.UserAlreadyExistsException;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.JwtPrincipal;
+import com.example.bankcards.security.RefreshTokenStore;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UuidUserDetails;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -24,17 +30,23 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -55,6 +67,12 @@ class JpaAuthServiceTest {
     @Mock
     private RoleRepository roleRepository;
 
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @InjectMocks
     private JpaAuthService authService;
 
@@ -77,6 +95,29 @@ class JpaAuthServiceTest {
         verify(jwtTokenProvider, times(1)).generateToken("testuser");
     }
 
+    @Test
+    void login_uuidPrincipal_shouldIssueTokenWithIdentityClaims() {
+        LoginRequest loginRequest = new LoginRequest("testuser", "password");
+        UuidUserDetails userDetails = new UuidUserDetails(UUID.randomUUID(), "testuser", "encoded", List.of());
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenReturn(authentication);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(jwtTokenProvider.generateToken(userDetails)).thenReturn("mockedJwtToken");
+        when(jwtTokenProvider.generateRefreshToken()).thenReturn("refreshToken");
+        when(jwtTokenProvider.hashRefreshToken("refreshToken")).thenReturn("refreshTokenHash");
+        SecurityContextHolder.setContext(securityContext);
+
+        JwtAuthResponse result = authService.login(loginRequest);
+
+        assertThat(result.getToken()).isEqualTo("mockedJwtToken");
+        assertThat(result.getRefreshToken()).isEqualTo("refreshToken");
+        verify(jwtTokenProvider, times(1)).generateToken(userDetails);
+        verify(jwtTokenProvider, never()).generateToken(anyString());
+        verify(refreshTokenStore, times(1)).save(eq("refreshTokenHash"), eq(userDetails.getUuid()), any());
+    }
+
     @Test
     void login_invalidCredentials_shouldThrowBadCredentialsException() {
         LoginRequest loginRequest = new LoginRequest("wronguser", "wrongpassword");
@@ -96,29 +137,28 @@ class JpaAuthServiceTest {
         Role userRole = new Role();
         userRole.setName(RoleName.USER);
         User savedUser = new User("newuser", "encodedpassword");
+        savedUser.setId(UUID.randomUUID());
         savedUser.setRoles(Set.of(userRole));
-        Authentication authentication = mock(Authentication.class);
-        SecurityContext securityContext = mock(SecurityContext.class);
 
         when(userRepository.existsByUsername("newuser")).thenReturn(false);
         when(passwordEncoder.encode("newpassword")).thenReturn("encodedpassword");
         when(roleRepository.findByName(RoleName.USER)).thenReturn(Optional.of(userRole));
         when(userRepository.save(any(User.class))).thenReturn(savedUser);
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenReturn(authentication);
-        when(authentication.getName()).thenReturn("newuser");
-        when(jwtTokenProvider.generateToken("newuser")).thenReturn("mockedJwtToken");
-        SecurityContextHolder.setContext(securityContext);
+        when(jwtTokenProvider.generateToken(any(UuidUserDetails.class))).thenReturn("mockedJwtToken");
 
         JwtAuthResponse result = authService.register(registerRequest);
 
         assertThat(result.getToken()).isEqualTo("mockedJwtToken");
         verify(userRepository, times(1)).existsByUsername("newuser");
         verify(passwordEncoder, times(1)).encode("newpassword");
+        verify(passwordEncoder, never()).matches(anyString(), anyString());
         verify(roleRepository, times(1)).findByName(RoleName.USER);
         verify(userRepository, times(1)).save(any(User.class));
-        verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(securityContext, times(1)).setAuthentication(authentication);
-        verify(jwtTokenProvider, times(1)).generateToken("newuser");
+        verify(userRepository, never()).findByUsername(anyString());
+        verify(authenticationManager, never()).authenticate(any(UsernamePasswordAuthenticationToken.class));
+        verify(jwtTokenProvider, times(1)).generateToken(argThat((UuidUserDetails userDetails) ->
+                userDetails.getUuid().equals(savedUser.getId())
+                        && userDetails.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER"))));
     }
 
     @Test
@@ -152,4 +192,72 @@ class JpaAuthServiceTest {
         verify(userRepository, never()).save(any(User.class));
         verify(authenticationManager, never()).authenticate(any(UsernamePasswordAuthenticationToken.class));
     }
+
+    @Test
+    void refresh_validToken_shouldRotateAndReturnNewTokens() {
+        User user = new User("testuser", "encodedpassword");
+        user.setId(UUID.randomUUID());
+
+        when(jwtTokenProvider.hashRefreshToken("oldRefreshToken")).thenReturn("oldHash");
+        when(refreshTokenStore.consume("oldHash")).thenReturn(Optional.of(user.getId()));
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(jwtTokenProvider.generateRefreshToken()).thenReturn("newRefreshToken");
+        when(jwtTokenProvider.hashRefreshToken("newRefreshToken")).thenReturn("newHash");
+        when(jwtTokenProvider.getRefreshTokenExpiry()).thenReturn(Instant.now().plusSeconds(60));
+        when(jwtTokenProvider.generateToken(any(UuidUserDetails.class))).thenReturn("newAccessToken");
+
+        JwtAuthResponse result = authService.refresh(new RefreshTokenRequest("oldRefreshToken"));
+
+        assertThat(result.getToken()).isEqualTo("newAccessToken");
+        assertThat(result.getRefreshToken()).isEqualTo("newRefreshToken");
+        verify(refreshTokenStore, times(1)).consume("oldHash");
+        verify(refreshTokenStore, times(1)).save(eq("newHash"), eq(user.getId()), any(Instant.class));
+        verify(authenticationManager, never()).authenticate(any());
+        verify(passwordEncoder, never()).matches(anyString(), anyString());
+    }
+
+    @Test
+    void refresh_unknownOrUsedToken_shouldThrowInvalidRefreshTokenException() {
+        when(jwtTokenProvider.hashRefreshToken("usedToken")).thenReturn("usedHash");
+        when(refreshTokenStore.consume("usedHash")).thenReturn(Optional.empty());
+
+        assertThrows(InvalidRefreshTokenException.class, () -> authService.refresh(new RefreshTokenRequest("usedToken")));
+
+        verify(refreshTokenStore, never()).save(anyString(), any(), any());
+        verify(jwtTokenProvider, never()).generateToken(any(UuidUserDetails.class));
+    }
+
+    @Test
+    void refresh_ownerDeleted_shouldThrowInvalidRefreshTokenException() {
+        UUID userId = UUID.randomUUID();
+        when(jwtTokenProvider.hashRefreshToken("orphanToken")).thenReturn("orphanHash");
+        when(refreshTokenStore.consume("orphanHash")).thenReturn(Optional.of(userId));
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        assertThrows(InvalidRefreshTokenException.class, () -> authService.refresh(new RefreshTokenRequest("orphanToken")));
+
+        verify(refreshTokenStore, never()).save(anyString(), any(), any());
+    }
+
+    @Test
+    void logout_validTokens_shouldRevokeAccessTokenAndConsumeRefreshToken() {
+        JwtPrincipal principal = new JwtPrincipal(UUID.randomUUID().toString(), "testuser", UUID.randomUUID(),
+                List.of("USER"), Instant.now(), Instant.now().plusSeconds(60));
+        when(jwtTokenProvider.validateToken("accessToken")).thenReturn(Optional.of(principal));
+        when(jwtTokenProvider.hashRefreshToken("refreshToken")).thenReturn("refreshHash");
+
+        authService.logout("accessToken", "refreshToken");
+
+        verify(tokenRevocationRegistry, times(1)).revokeToken(principal);
+        verify(refreshTokenStore, times(1)).consume("refreshHash");
+    }
+
+    @Test
+    void logout_invalidAccessTokenWithoutRefreshToken_shouldDoNothing() {
+        when(jwtTokenProvider.validateToken("expiredToken")).thenReturn(Optional.empty());
+
+        authService.logout("expiredToken", null);
+
+        verifyNoInteractions(tokenRevocationRegistry, refreshTokenStore);
+    }
 }
\ No newline at end of file
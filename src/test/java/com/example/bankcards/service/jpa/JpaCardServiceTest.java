@@ -1,12 +1,14 @@
 package com.example.bankcards.service.jpa;
 
 import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.CardNumberLookupRequest;
 import com.example.bankcards.dto.card.CardSearchRequest;
 import com.example.bankcards.dto.card.CreateCardRequest;
 import com.example.bankcards.dto.card.UpdateCardStatusRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.card.CardAlreadyExistsException;
 import com.example.bankcards.exception.card.CardNotFoundException;
 import com.example.bankcards.exception.card.CardNotOwnedByUserException;
 import com.example.bankcards.exception.card.CardStatusAlreadySetException;
@@ -17,12 +19,16 @@ import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.repository.specification.CardSpecificationMapper;
 import com.example.bankcards.security.UuidUserDetails;
 import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardTokenizer;
+import com.example.bankcards.util.EncryptedCardNumber;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -33,6 +39,7 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
@@ -41,6 +48,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -52,6 +60,8 @@ class JpaCardServiceTest {
     @Mock
     private CardEncryptionUtil cardEncryptionUtil;
     @Mock
+    private CardTokenizer cardTokenizer;
+    @Mock
     private UserRepository userRepository;
     @Mock
     private CardMapper cardMapper;
@@ -66,6 +76,7 @@ class JpaCardServiceTest {
     private JpaCardService jpaCardService;
 
     private UUID cardId;
+    private final UUID keyId = UUID.randomUUID();
     private UUID ownerId;
     private User owner;
     private Card card;
@@ -81,7 +92,11 @@ class JpaCardServiceTest {
         owner.setUsername("testuser");
 
         card = new Card(
-                "encryptedCardNumber",
+                new byte[]{1},
+                null,
+                "3456",
+                "blindIndex3456",
+                "9876543210983456",
                 owner,
                 LocalDate.now().plusYears(1),
                 CardStatus.ACTIVE,
@@ -92,6 +107,7 @@ class JpaCardServiceTest {
         cardDto = new CardDto(
                 cardId,
                 "maskedCardNumber",
+                "9876543210983456",
                 ownerId,
                 LocalDate.now().plusYears(1),
                 CardStatus.ACTIVE,
@@ -112,8 +128,10 @@ class JpaCardServiceTest {
     void createCard_validRequest_shouldReturnCardDto() {
         when(userRepository.existsById(ownerId)).thenReturn(true);
         when(userRepository.getReferenceById(ownerId)).thenReturn(owner);
-        when(cardEncryptionUtil.encrypt(anyString())).thenReturn("encryptedCardNumber");
-        when(cardRepository.save(any(Card.class))).thenReturn(card);
+        when(cardEncryptionUtil.encrypt(anyString())).thenReturn(new EncryptedCardNumber(keyId, new byte[]{1}));
+        when(cardEncryptionUtil.blindIndex("1234567890123456")).thenReturn("blindIndex3456");
+        when(cardTokenizer.issueToken("1234567890123456")).thenReturn("9876543210983456");
+        when(cardRepository.saveAndFlush(any(Card.class))).thenReturn(card);
         when(cardMapper.toDto(any(Card.class))).thenReturn(cardDto);
 
         CardDto result = jpaCardService.createCard(createCardRequest);
@@ -123,7 +141,11 @@ class JpaCardServiceTest {
         verify(userRepository).existsById(ownerId);
         verify(userRepository).getReferenceById(ownerId);
         verify(cardEncryptionUtil).encrypt("1234567890123456");
-        verify(cardRepository).save(any(Card.class));
+        verify(cardRepository).existsByCardNumberBlindIndex("blindIndex3456");
+        verify(cardRepository).saveAndFlush(argThat(saved -> keyId.equals(saved.getCardNumberKeyId())
+                && "3456".equals(saved.getCardNumberLastFour())
+                && "blindIndex3456".equals(saved.getCardNumberBlindIndex())
+                && "9876543210983456".equals(saved.getCardToken())));
         verify(cardMapper).toDto(card);
     }
 
@@ -141,6 +163,66 @@ class JpaCardServiceTest {
         verifyNoInteractions(cardEncryptionUtil, cardRepository, cardMapper);
     }
 
+    @Test
+    void createCard_duplicateNumber_shouldThrowCardAlreadyExistsException() {
+        when(userRepository.existsById(ownerId)).thenReturn(true);
+        when(cardEncryptionUtil.blindIndex("1234567890123456")).thenReturn("blindIndex3456");
+        when(cardRepository.existsByCardNumberBlindIndex("blindIndex3456")).thenReturn(true);
+
+        assertThrows(CardAlreadyExistsException.class, () -> jpaCardService.createCard(createCardRequest));
+
+        verify(cardRepository, never()).saveAndFlush(any(Card.class));
+        verify(cardEncryptionUtil, never()).encrypt(anyString());
+    }
+
+    @Test
+    void createCard_concurrentDuplicateNumber_shouldThrowCardAlreadyExistsException() {
+        when(userRepository.existsById(ownerId)).thenReturn(true);
+        when(userRepository.getReferenceById(ownerId)).thenReturn(owner);
+        when(cardEncryptionUtil.encrypt(anyString())).thenReturn(new EncryptedCardNumber(keyId, new byte[]{1}));
+        when(cardEncryptionUtil.blindIndex("1234567890123456")).thenReturn("blindIndex3456");
+        when(cardRepository.saveAndFlush(any(Card.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(),
+                        "PUBLIC.UQ_CARDS_CARD_NUMBER_BLIND_INDEX_INDEX_4")));
+
+        assertThrows(CardAlreadyExistsException.class, () -> jpaCardService.createCard(createCardRequest));
+
+        verifyNoInteractions(cardMapper);
+    }
+
+    @Test
+    void createCard_otherIntegrityViolation_shouldRethrow() {
+        when(userRepository.existsById(ownerId)).thenReturn(true);
+        when(userRepository.getReferenceById(ownerId)).thenReturn(owner);
+        when(cardEncryptionUtil.encrypt(anyString())).thenReturn(new EncryptedCardNumber(keyId, new byte[]{1}));
+        when(cardEncryptionUtil.blindIndex("1234567890123456")).thenReturn("blindIndex3456");
+        when(cardRepository.saveAndFlush(any(Card.class))).thenThrow(new DataIntegrityViolationException("fk",
+                new ConstraintViolationException("fk", new SQLException(), "fk_cards_owner")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> jpaCardService.createCard(createCardRequest));
+    }
+
+    @Test
+    void findCardByNumber_existingCard_shouldReturnCardDto() {
+        when(cardEncryptionUtil.blindIndex("1234567890123456")).thenReturn("blindIndex3456");
+        when(cardRepository.findByCardNumberBlindIndex("blindIndex3456")).thenReturn(Optional.of(card));
+        when(cardMapper.toDto(card)).thenReturn(cardDto);
+
+        CardDto result = jpaCardService.findCardByNumber(new CardNumberLookupRequest("1234567890123456"));
+
+        assertEquals(cardDto.getId(), result.getId());
+    }
+
+    @Test
+    void findCardByNumber_unknownNumber_shouldThrowCardNotFoundException() {
+        when(cardEncryptionUtil.blindIndex("1234567890123456")).thenReturn("blindIndex3456");
+        when(cardRepository.findByCardNumberBlindIndex("blindIndex3456")).thenReturn(Optional.empty());
+
+        assertThrows(CardNotFoundException.class,
+                () -> jpaCardService.findCardByNumber(new CardNumberLookupRequest("1234567890123456")));
+        verifyNoInteractions(cardMapper);
+    }
+
     @Test
     void getAllCards_shouldReturnListOfCardDto() {
         Page<Card> cardPage = new PageImpl<>(List.of(card));
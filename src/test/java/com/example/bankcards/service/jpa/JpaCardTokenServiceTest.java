@@ -0,0 +1,107 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.CardDto;
+import com.example.bankcards.dto.card.DetokenizeRequest;
+import com.example.bankcards.dto.card.DetokenizedCardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.card.CardNotFoundException;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardTokenizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaCardTokenServiceTest {
+
+    private static final String CARD_TOKEN = "9876543210983456";
+
+    @Mock
+    private CardRepository cardRepository;
+    @Mock
+    private CardTokenizer cardTokenizer;
+    @Mock
+    private CardEncryptionUtil cardEncryptionUtil;
+    @Mock
+    private CardMapper cardMapper;
+
+    @InjectMocks
+    private JpaCardTokenService jpaCardTokenService;
+
+    private UUID cardId;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        cardId = UUID.randomUUID();
+        card = new Card(new byte[]{1}, UUID.randomUUID(), "3456", "blindIndex3456", CARD_TOKEN, new User(),
+                LocalDate.now().plusYears(1), CardStatus.ACTIVE, BigDecimal.TEN);
+        card.setId(cardId);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("admin", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getCardDtoByToken_knownToken_shouldNotDecrypt() {
+        CardDto cardDto = new CardDto(cardId, "**** **** **** 3456", CARD_TOKEN, null, null, CardStatus.ACTIVE, BigDecimal.TEN);
+        when(cardTokenizer.findCardId(CARD_TOKEN)).thenReturn(Optional.of(cardId));
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(cardMapper.toDto(card)).thenReturn(cardDto);
+
+        assertEquals(cardDto, jpaCardTokenService.getCardDtoByToken(CARD_TOKEN));
+        verifyNoInteractions(cardEncryptionUtil);
+    }
+
+    @Test
+    void detokenize_knownToken_shouldRevealNumber() {
+        when(cardTokenizer.findCardId(CARD_TOKEN)).thenReturn(Optional.of(cardId));
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(cardEncryptionUtil.decrypt(card)).thenReturn("1234567890123456");
+
+        DetokenizedCardDto result = jpaCardTokenService.detokenize(new DetokenizeRequest(CARD_TOKEN));
+
+        assertEquals(new DetokenizedCardDto(cardId, CARD_TOKEN, "1234567890123456"), result);
+    }
+
+    @Test
+    void detokenize_unknownToken_shouldThrowCardNotFoundException() {
+        when(cardTokenizer.findCardId(CARD_TOKEN)).thenReturn(Optional.empty());
+
+        assertThrows(CardNotFoundException.class,
+                () -> jpaCardTokenService.detokenize(new DetokenizeRequest(CARD_TOKEN)));
+        verifyNoInteractions(cardEncryptionUtil);
+    }
+
+    @Test
+    void getCardDtoByToken_deletedCard_shouldEvictCachedLookup() {
+        when(cardTokenizer.findCardId(CARD_TOKEN)).thenReturn(Optional.of(cardId));
+        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+
+        assertThrows(CardNotFoundException.class, () -> jpaCardTokenService.getCardDtoByToken(CARD_TOKEN));
+        verify(cardTokenizer).evict(CARD_TOKEN);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.CreateScheduledTransferRequest;
+import com.example.bankcards.dto.card.ScheduledTransferDto;
+import com.example.bankcards.entity.*;
+import com.example.bankcards.exception.card.CardNotOwnedByUserException;
+import com.example.bankcards.exception.card.InvalidCardOperationException;
+import com.example.bankcards.exception.card.ScheduledTransferNotFoundException;
+import com.example.bankcards.mapper.ScheduledTransferMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.ScheduledTransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaScheduledTransferServiceTest {
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private CardRepository cardRepository;
+    @Mock
+    private ScheduledTransferRepository scheduledTransferRepository;
+    @Mock
+    private ScheduledTransferMapper scheduledTransferMapper;
+
+    @InjectMocks
+    private JpaScheduledTransferService scheduledTransferService;
+
+    private UUID userId;
+    private UUID fromCardId;
+    private UUID toCardId;
+    private Card fromCard;
+    private Card toCard;
+    private CreateScheduledTransferRequest request;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID();
+        fromCardId = UUID.randomUUID();
+        toCardId = UUID.randomUUID();
+        User user = new User("testuser");
+        user.setId(userId);
+        fromCard = card(fromCardId, user);
+        toCard = card(toCardId, user);
+        request = new CreateScheduledTransferRequest(fromCardId, toCardId, BigDecimal.TEN,
+                LocalDateTime.now().plusDays(1), TransferFrequency.MONTHLY);
+    }
+
+    @Test
+    void createScheduledTransfer_ownedCards_shouldSaveActiveSchedule() {
+        ScheduledTransferDto dto = mock(ScheduledTransferDto.class);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(scheduledTransferRepository.saveAndFlush(any(ScheduledTransfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(scheduledTransferMapper.toDto(any(ScheduledTransfer.class))).thenReturn(dto);
+
+        assertSame(dto, scheduledTransferService.createScheduledTransfer(userId, request));
+
+        verify(scheduledTransferRepository).saveAndFlush(argThat(schedule -> schedule.getStatus() == ScheduledTransferStatus.ACTIVE
+                && schedule.getUserId().equals(userId)
+                && schedule.getNextRunAt().equals(request.getFirstRunAt())
+                && schedule.getFrequency() == TransferFrequency.MONTHLY));
+    }
+
+    @Test
+    void createScheduledTransfer_cardOfAnotherUser_shouldThrowCardNotOwnedByUserException() {
+        User stranger = new User("stranger");
+        stranger.setId(UUID.randomUUID());
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(card(toCardId, stranger)));
+
+        assertThrows(CardNotOwnedByUserException.class,
+                () -> scheduledTransferService.createScheduledTransfer(userId, request));
+        verify(scheduledTransferRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createScheduledTransfer_sameCard_shouldThrowInvalidCardOperationException() {
+        CreateScheduledTransferRequest sameCard = new CreateScheduledTransferRequest(fromCardId, fromCardId,
+                BigDecimal.TEN, LocalDateTime.now().plusDays(1), TransferFrequency.ONCE);
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        assertThrows(InvalidCardOperationException.class,
+                () -> scheduledTransferService.createScheduledTransfer(userId, sameCard));
+    }
+
+    @Test
+    void cancelScheduledTransfer_alreadyFinished_shouldDoNothing() {
+        UUID scheduleId = UUID.randomUUID();
+        when(scheduledTransferRepository.cancelIfActive(scheduleId, userId)).thenReturn(0);
+        when(scheduledTransferRepository.findByIdAndUserId(scheduleId, userId))
+                .thenReturn(Optional.of(mock(ScheduledTransfer.class)));
+
+        scheduledTransferService.cancelScheduledTransfer(userId, scheduleId);
+    }
+
+    @Test
+    void cancelScheduledTransfer_unknownOrOfAnotherUser_shouldThrowScheduledTransferNotFoundException() {
+        UUID scheduleId = UUID.randomUUID();
+        when(scheduledTransferRepository.cancelIfActive(scheduleId, userId)).thenReturn(0);
+        when(scheduledTransferRepository.findByIdAndUserId(scheduleId, userId)).thenReturn(Optional.empty());
+
+        assertThrows(ScheduledTransferNotFoundException.class,
+                () -> scheduledTransferService.cancelScheduledTransfer(userId, scheduleId));
+    }
+
+    private static Card card(UUID id, User owner) {
+        Card card = new Card(new byte[]{1}, null, "1111", "blindIndex" + id, "9876543210981111", owner,
+                LocalDate.now().plusYears(1), CardStatus.ACTIVE, BigDecimal.valueOf(100));
+        card.setId(id);
+        return card;
+    }
+}
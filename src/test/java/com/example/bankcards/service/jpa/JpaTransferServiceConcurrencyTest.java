@@ -0,0 +1,362 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.TransferDto;
+import com.example.bankcards.dto.card.TransferHistoryDto;
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.card.InvalidCardOperationException;
+import com.example.bankcards.mapper.TransferMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.groupcommit.GroupCommitTransferService;
+import com.example.bankcards.service.lane.LaneTransferService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs transfers against a real database from many threads at once, in every concurrency mode and engine. Every thread moves
+ * money in both directions through one shared card, so lost updates show up as a changed total, an inconsistent
+ * lock order as a deadlock, and a ledger write outside the transfer's transaction as a missing or extra row.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transfer-concurrency;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaTransferServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 50;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransferRepository transferRepository;
+    @Autowired
+    private TransferIdempotencyKeyRepository transferIdempotencyKeyRepository;
+
+    private User user;
+    private Card hub;
+    private List<Card> spokes;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("concurrency-user", "encoded"));
+        hub = saveCard("0000");
+        spokes = List.of(saveCard("1111"), saveCard("2222"), saveCard("3333"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferIdempotencyKeyRepository.deleteAll();
+        transferRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_atomicMode_shouldConserveTotalBalance() throws Exception {
+        JpaTransferService jpaTransferService = transferService(TransferTransactionRunner.Mode.ATOMIC, 1);
+        transferConcurrently(jpaTransferService);
+
+        assertBalancesConserved();
+        assertLedgerComplete();
+        assertHistoryListsEveryTransfer(jpaTransferService);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_atomicModeRejectedAfterCredit_shouldRollBackCredit() {
+        Card spoke = spokes.get(0);
+        // the credit runs first when the destination has the lower id
+        Card from = JpaTransferService.CARD_LOCK_ORDER.compare(hub.getId(), spoke.getId()) > 0 ? hub : spoke;
+        Card to = from == hub ? spoke : hub;
+        TransferRequest request = new TransferRequest(from.getId(), to.getId(), INITIAL_BALANCE.add(AMOUNT));
+
+        assertThatThrownBy(() -> transferService(TransferTransactionRunner.Mode.ATOMIC, 1)
+                .transferBetweenUserOwnedCards(user.getId(), request, null))
+                .isInstanceOf(InvalidCardOperationException.class)
+                .hasMessage("Insufficient balance on source card.");
+
+        assertBalancesConserved();
+        assertThat(transferRepository.count()).isZero();
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_pessimisticMode_shouldConserveTotalBalance() throws Exception {
+        transferConcurrently(transferService(TransferTransactionRunner.Mode.PESSIMISTIC, 1));
+
+        assertBalancesConserved();
+        assertLedgerComplete();
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_optimisticMode_shouldConserveTotalBalance() throws Exception {
+        // every thread contends for the same card, far more than the production attempt limit is sized for
+        transferConcurrently(transferService(TransferTransactionRunner.Mode.OPTIMISTIC, 1000));
+
+        assertBalancesConserved();
+        assertLedgerComplete();
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_throughCardLanes_shouldConserveTotalBalance() throws Exception {
+        LaneTransferService laneTransferService = new LaneTransferService(
+                transferService(TransferTransactionRunner.Mode.ATOMIC, 1), 10_000, Duration.ofSeconds(30),
+                new SimpleMeterRegistry());
+        try {
+            transferConcurrently(laneTransferService);
+        } finally {
+            laneTransferService.shutdown();
+        }
+
+        assertBalancesConserved();
+        assertLedgerComplete();
+    }
+
+    @Test
+    void transferBatch_alongsideSingleTransfers_shouldConserveTotalBalance() throws Exception {
+        JpaTransferService jpaTransferService = transferService(TransferTransactionRunner.Mode.ATOMIC, 1);
+        // a round trip through every spoke, so each batch leaves every balance where it found it
+        List<TransferRequest> roundTrip = new ArrayList<>();
+        for (Card spoke : spokes) {
+            roundTrip.add(new TransferRequest(hub.getId(), spoke.getId(), AMOUNT));
+            roundTrip.add(new TransferRequest(spoke.getId(), hub.getId(), AMOUNT));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> batches = executor.submit(() -> {
+            for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                // the @Transactional proxy isn't there, so the test opens the transaction
+                transactionTemplate.executeWithoutResult(status -> jpaTransferService.transferBatch(user.getId(), roundTrip));
+            }
+            return null;
+        });
+        transferConcurrently(jpaTransferService);
+        batches.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertBalancesConserved();
+        assertThat(transferRepository.count())
+                .isEqualTo(THREADS * TRANSFERS_PER_THREAD + TRANSFERS_PER_THREAD * roundTrip.size());
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_duplicatesWithOneIdempotencyKey_shouldTransferOnce() throws Exception {
+        transferDuplicatesConcurrently(transferService(TransferTransactionRunner.Mode.ATOMIC, 1));
+
+        assertThat(transferRepository.count()).isEqualTo(1);
+        assertThat(cardRepository.findById(hub.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(INITIAL_BALANCE.subtract(AMOUNT));
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_rejectedWithIdempotencyKey_shouldRunAgainOnRetry() {
+        JpaTransferService jpaTransferService = transferService(TransferTransactionRunner.Mode.ATOMIC, 1);
+        Card spoke = spokes.get(0);
+        TransferRequest request = new TransferRequest(hub.getId(), spoke.getId(), INITIAL_BALANCE.add(AMOUNT));
+
+        assertThatThrownBy(() -> jpaTransferService.transferBetweenUserOwnedCards(user.getId(), request, "retried"))
+                .isInstanceOf(InvalidCardOperationException.class);
+        assertThat(transferIdempotencyKeyRepository.count()).isZero();
+
+        jdbcTemplate.update("UPDATE cards SET balance = balance + ? WHERE id = ?", AMOUNT, hub.getId());
+        jpaTransferService.transferBetweenUserOwnedCards(user.getId(), request, "retried");
+
+        assertThat(transferRepository.count()).isEqualTo(1);
+        assertThat(cardRepository.findById(hub.getId()).orElseThrow().getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_groupCommit_shouldConserveTotalBalance() throws Exception {
+        GroupCommitTransferService groupCommitTransferService = groupCommitTransferService();
+        try {
+            transferConcurrently(groupCommitTransferService);
+        } finally {
+            groupCommitTransferService.shutdown();
+        }
+
+        assertBalancesConserved();
+        assertLedgerComplete();
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_groupCommitDuplicatesWithOneIdempotencyKey_shouldTransferOnce() throws Exception {
+        GroupCommitTransferService groupCommitTransferService = groupCommitTransferService();
+        try {
+            transferDuplicatesConcurrently(groupCommitTransferService);
+        } finally {
+            groupCommitTransferService.shutdown();
+        }
+
+        assertThat(transferRepository.count()).isEqualTo(1);
+        assertThat(transferIdempotencyKeyRepository.count()).isEqualTo(1);
+        assertThat(cardRepository.findById(hub.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(INITIAL_BALANCE.subtract(AMOUNT));
+    }
+
+    @Test
+    void transferGroup_oneTransferOverdrawing_shouldCommitTheOthers() {
+        JpaTransferService jpaTransferService = transferService(TransferTransactionRunner.Mode.ATOMIC, 1);
+        Card spoke = spokes.get(0);
+        List<JpaTransferService.GroupedTransfer> group = List.of(
+                new JpaTransferService.GroupedTransfer(user.getId(), new TransferRequest(hub.getId(), spoke.getId(), AMOUNT), null),
+                new JpaTransferService.GroupedTransfer(user.getId(), new TransferRequest(spoke.getId(), hub.getId(),
+                        INITIAL_BALANCE.add(AMOUNT).add(AMOUNT)), null),
+                new JpaTransferService.GroupedTransfer(user.getId(), new TransferRequest(spoke.getId(), hub.getId(), AMOUNT), null));
+
+        List<RuntimeException> failures = transactionTemplate.execute(status -> jpaTransferService.transferGroup(group));
+
+        assertThat(failures).hasSize(3);
+        assertThat(failures.get(0)).isNull();
+        assertThat(failures.get(1)).isInstanceOf(InvalidCardOperationException.class);
+        assertThat(failures.get(2)).isNull();
+        assertBalancesConserved();
+        assertThat(transferRepository.count()).isEqualTo(2);
+    }
+
+    private JpaTransferService transferService(TransferTransactionRunner.Mode mode, int maxAttempts) {
+        TransferTransactionRunner runner = new TransferTransactionRunner(transactionTemplate, mode, maxAttempts, 1, 10,
+                new SimpleMeterRegistry());
+        TransferIdempotencyStore idempotencyStore = new TransferIdempotencyStore(transferIdempotencyKeyRepository,
+                Duration.ofHours(1), 100, new SimpleMeterRegistry());
+        return new JpaTransferService(userRepository, cardRepository, transferRepository,
+                Mappers.getMapper(TransferMapper.class), runner, idempotencyStore, new TransferBatchWriter(jdbcTemplate));
+    }
+
+    private GroupCommitTransferService groupCommitTransferService() {
+        TransferTransactionRunner runner = new TransferTransactionRunner(transactionTemplate,
+                TransferTransactionRunner.Mode.ATOMIC, 1, 1, 10, new SimpleMeterRegistry());
+        TransferIdempotencyStore idempotencyStore = new TransferIdempotencyStore(transferIdempotencyKeyRepository,
+                Duration.ofHours(1), 100, new SimpleMeterRegistry());
+        JpaTransferService jpaTransferService = new JpaTransferService(userRepository, cardRepository,
+                transferRepository, Mappers.getMapper(TransferMapper.class), runner, idempotencyStore,
+                new TransferBatchWriter(jdbcTemplate)) {
+            @Override
+            public List<RuntimeException> transferGroup(List<GroupedTransfer> transfers) {
+                // the @Transactional proxy isn't there, so the test opens the group's transaction
+                return transactionTemplate.execute(status -> super.transferGroup(transfers));
+            }
+        };
+        return new GroupCommitTransferService(jpaTransferService, idempotencyStore, 100, Duration.ofMillis(2),
+                10_000, new SimpleMeterRegistry());
+    }
+
+    private void transferDuplicatesConcurrently(TransferService transferService) throws Exception {
+        TransferRequest request = new TransferRequest(hub.getId(), spokes.get(0).getId(), AMOUNT);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                transferService.transferBetweenUserOwnedCards(user.getId(), request, "retry-1");
+                return null;
+            }));
+        }
+        start.countDown();
+        // every duplicate is answered as a success, whether it waited on the first one or came after it
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private void transferConcurrently(TransferService transferService) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Card spoke = spokes.get(thread % spokes.size());
+            boolean fromHub = thread % 2 == 0;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    // alternating directions, so half of the transactions touch the pair in the opposite order
+                    boolean outOfHub = fromHub == (i % 2 == 0);
+                    TransferRequest request = outOfHub
+                            ? new TransferRequest(hub.getId(), spoke.getId(), AMOUNT)
+                            : new TransferRequest(spoke.getId(), hub.getId(), AMOUNT);
+                    transferService.transferBetweenUserOwnedCards(user.getId(), request, null);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private void assertBalancesConserved() {
+        List<Card> cards = cardRepository.findAll();
+        BigDecimal total = cards.stream().map(Card::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(cards.size())));
+        // every thread made as many transfers in as out, so no balance may have drifted
+        assertThat(cards).allSatisfy(card -> assertThat(card.getBalance()).isEqualByComparingTo(INITIAL_BALANCE));
+    }
+
+    private void assertLedgerComplete() {
+        // one row per committed transfer: a rolled back attempt takes its row with it
+        assertThat(transferRepository.count()).isEqualTo(THREADS * TRANSFERS_PER_THREAD);
+    }
+
+    private void assertHistoryListsEveryTransfer(JpaTransferService jpaTransferService) {
+        for (UUID cardId : Arrays.asList(null, hub.getId())) {
+            Set<UUID> seen = new HashSet<>();
+            TransferDto previous = null;
+            String cursor = null;
+            do {
+                TransferHistoryDto page = jpaTransferService.getTransferHistory(user.getId(), cardId, 50, cursor);
+                for (TransferDto transfer : page.getTransfers()) {
+                    assertThat(seen.add(transfer.getId())).isTrue();
+                    if (previous != null) {
+                        assertThat(transfer.getCreatedAt()).isBeforeOrEqualTo(previous.getCreatedAt());
+                    }
+                    previous = transfer;
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            // every transfer moves money into or out of the hub
+            assertThat(seen).hasSize(THREADS * TRANSFERS_PER_THREAD);
+        }
+    }
+
+    private Card saveCard(String lastFour) {
+        return cardRepository.save(new Card(new byte[]{1}, null, lastFour, "blindIndex" + lastFour,
+                "987654321098" + lastFour, user, LocalDate.now().plusYears(1), CardStatus.ACTIVE, INITIAL_BALANCE));
+    }
+}
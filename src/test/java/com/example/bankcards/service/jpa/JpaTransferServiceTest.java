@@ -1,32 +1,49 @@
 package com.example.bankcards.service.jpa;
 
+import com.example.bankcards.dto.card.TransferDto;
+import com.example.bankcards.dto.card.TransferHistoryDto;
 import com.example.bankcards.dto.card.TransferRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.card.CardNotOwnedByUserException;
+import com.example.bankcards.exception.card.ConcurrentCardUpdateException;
+import com.example.bankcards.exception.card.IdempotencyKeyReusedException;
 import com.example.bankcards.exception.card.InvalidCardOperationException;
 import com.example.bankcards.exception.user.UserNotFoundException;
+import com.example.bankcards.mapper.TransferMapper;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.UuidUserDetails;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -38,6 +55,16 @@ class JpaTransferServiceTest {
     @Mock
     private CardRepository cardRepository;
     @Mock
+    private TransferRepository transferRepository;
+    @Mock
+    private TransferMapper transferMapper;
+    @Mock
+    private TransferTransactionRunner transferTransactionRunner;
+    @Mock
+    private TransferIdempotencyStore transferIdempotencyStore;
+    @Mock
+    private TransferBatchWriter transferBatchWriter;
+    @Mock
     private SecurityContext securityContext;
     @Mock
     private Authentication authentication;
@@ -56,15 +83,20 @@ class JpaTransferServiceTest {
     @BeforeEach
     void setUp() {
         userId = UUID.randomUUID();
-        fromCardId = UUID.randomUUID();
-        toCardId = UUID.randomUUID();
+        // ordered ids, so the source card is always the first one locked
+        fromCardId = new UUID(0L, 1L);
+        toCardId = new UUID(0L, 2L);
 
         user = new User();
         user.setId(userId);
         user.setUsername("testuser");
 
         fromCard = new Card(
-                "encryptedFromCard",
+                new byte[]{1},
+                null,
+                "1111",
+                "blindIndex1111",
+                "9876543210981111",
                 user,
                 LocalDate.now().plusYears(1),
                 CardStatus.ACTIVE,
@@ -73,7 +105,11 @@ class JpaTransferServiceTest {
         fromCard.setId(fromCardId);
 
         toCard = new Card(
-                "encryptedToCard",
+                new byte[]{2},
+                null,
+                "2222",
+                "blindIndex2222",
+                "9876543210982222",
                 user,
                 LocalDate.now().plusYears(1),
                 CardStatus.ACTIVE,
@@ -83,6 +119,12 @@ class JpaTransferServiceTest {
 
         transferRequest = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100.00));
 
+        lenient().when(transferTransactionRunner.mode()).thenReturn(TransferTransactionRunner.Mode.PESSIMISTIC);
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transferTransactionRunner).run(any());
+
         SecurityContextHolder.setContext(securityContext);
         lenient().when(securityContext.getAuthentication()).thenReturn(authentication);
         lenient().when(authentication.isAuthenticated()).thenReturn(true);
@@ -92,19 +134,23 @@ class JpaTransferServiceTest {
     @Test
     void transferBetweenUserOwnedCards_validRequest_shouldPerformTransfer() {
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
         when(userRepository.getReferenceById(userId)).thenReturn(user);
 
-        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
 
         assertEquals(BigDecimal.valueOf(100.00), fromCard.getBalance());
         assertEquals(BigDecimal.valueOf(150.00), toCard.getBalance());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
-        verify(cardRepository).findById(toCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
+        verify(cardRepository).findByIdForUpdate(toCardId);
         verify(userRepository).getReferenceById(userId);
         verify(cardRepository, times(2)).save(any(Card.class));
+        verify(transferRepository).save(argThat(transfer -> transfer.getUserId().equals(userId)
+                && transfer.getFromCardId().equals(fromCardId)
+                && transfer.getToCardId().equals(toCardId)
+                && transfer.getAmount().equals(BigDecimal.valueOf(100.00))));
     }
 
     @Test
@@ -112,7 +158,7 @@ class JpaTransferServiceTest {
         when(userRepository.existsById(userId)).thenReturn(false);
 
         UserNotFoundException thrown = assertThrows(UserNotFoundException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("User not found with ID: " + userId + ".", thrown.getMessage());
@@ -123,32 +169,32 @@ class JpaTransferServiceTest {
     @Test
     void transferBetweenUserOwnedCards_fromCardNotFound_shouldThrowCardNotOwnedByUserException() {
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.empty());
 
         CardNotOwnedByUserException thrown = assertThrows(CardNotOwnedByUserException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Card with ID \"" + fromCardId + "\" isn't owned by user with ID \"" + userId + "\" or doesn't exist.", thrown.getMessage());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
         verifyNoMoreInteractions(cardRepository);
     }
 
     @Test
     void transferBetweenUserOwnedCards_toCardNotFound_shouldThrowCardNotOwnedByUserException() {
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.empty());
 
         CardNotOwnedByUserException thrown = assertThrows(CardNotOwnedByUserException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Card with ID \"" + toCardId + "\" isn't owned by user with ID \"" + userId + "\" or doesn't exist.", thrown.getMessage());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
-        verify(cardRepository).findById(toCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
+        verify(cardRepository).findByIdForUpdate(toCardId);
         verifyNoMoreInteractions(cardRepository);
     }
 
@@ -159,18 +205,18 @@ class JpaTransferServiceTest {
         fromCard.setOwner(differentUser);
 
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
         when(userRepository.getReferenceById(userId)).thenReturn(user);
 
         CardNotOwnedByUserException thrown = assertThrows(CardNotOwnedByUserException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Card with ID \"" + fromCardId + "\" isn't owned by user with ID \"" + userId + "\" or doesn't exist.", thrown.getMessage());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
-        verify(cardRepository).findById(toCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
+        verify(cardRepository).findByIdForUpdate(toCardId);
         verify(userRepository).getReferenceById(userId);
         verifyNoMoreInteractions(cardRepository, userRepository);
     }
@@ -182,18 +228,18 @@ class JpaTransferServiceTest {
         toCard.setOwner(differentUser);
 
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
         when(userRepository.getReferenceById(userId)).thenReturn(user);
 
         CardNotOwnedByUserException thrown = assertThrows(CardNotOwnedByUserException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Card with ID \"" + toCardId + "\" isn't owned by user with ID \"" + userId + "\" or doesn't exist.", thrown.getMessage());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
-        verify(cardRepository).findById(toCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
+        verify(cardRepository).findByIdForUpdate(toCardId);
         verify(userRepository).getReferenceById(userId);
         verifyNoMoreInteractions(cardRepository, userRepository);
     }
@@ -203,18 +249,18 @@ class JpaTransferServiceTest {
         fromCard.setStatus(CardStatus.BLOCKED);
 
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
         when(userRepository.getReferenceById(userId)).thenReturn(user);
 
         InvalidCardOperationException thrown = assertThrows(InvalidCardOperationException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Source card is not active.", thrown.getMessage());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
-        verify(cardRepository).findById(toCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
+        verify(cardRepository).findByIdForUpdate(toCardId);
         verify(userRepository).getReferenceById(userId);
         verifyNoMoreInteractions(cardRepository);
     }
@@ -224,18 +270,18 @@ class JpaTransferServiceTest {
         toCard.setStatus(CardStatus.EXPIRED);
 
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
         when(userRepository.getReferenceById(userId)).thenReturn(user);
 
         InvalidCardOperationException thrown = assertThrows(InvalidCardOperationException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Destination card is not active.", thrown.getMessage());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
-        verify(cardRepository).findById(toCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
+        verify(cardRepository).findByIdForUpdate(toCardId);
         verify(userRepository).getReferenceById(userId);
         verifyNoMoreInteractions(cardRepository);
     }
@@ -247,7 +293,7 @@ class JpaTransferServiceTest {
         when(userRepository.existsById(userId)).thenReturn(true);
 
         InvalidCardOperationException thrown = assertThrows(InvalidCardOperationException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Can't transfer money to the same card.", thrown.getMessage());
@@ -260,19 +306,367 @@ class JpaTransferServiceTest {
         transferRequest = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(300.00));
 
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
         when(userRepository.getReferenceById(userId)).thenReturn(user);
 
         InvalidCardOperationException thrown = assertThrows(InvalidCardOperationException.class, () -> {
-            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest);
+            jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
         });
 
         assertEquals("Insufficient balance on source card.", thrown.getMessage());
         verify(userRepository).existsById(userId);
-        verify(cardRepository).findById(fromCardId);
-        verify(cardRepository).findById(toCardId);
+        verify(cardRepository).findByIdForUpdate(fromCardId);
+        verify(cardRepository).findByIdForUpdate(toCardId);
         verify(userRepository).getReferenceById(userId);
         verifyNoMoreInteractions(cardRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    void transferBetweenUserOwnedCards_toLowerId_shouldLockLowerIdFirst() {
+        transferRequest = new TransferRequest(toCardId, fromCardId, BigDecimal.valueOf(50.00));
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findByIdForUpdate(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCardId)).thenReturn(Optional.of(toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
+
+        InOrder lockOrder = inOrder(cardRepository);
+        lockOrder.verify(cardRepository).findByIdForUpdate(fromCardId);
+        lockOrder.verify(cardRepository).findByIdForUpdate(toCardId);
+        assertEquals(BigDecimal.valueOf(250.00), fromCard.getBalance());
+        assertEquals(BigDecimal.valueOf(0.00), toCard.getBalance());
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_optimisticMode_shouldReadWithoutLocks() {
+        when(transferTransactionRunner.mode()).thenReturn(TransferTransactionRunner.Mode.OPTIMISTIC);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
+
+        assertEquals(BigDecimal.valueOf(100.00), fromCard.getBalance());
+        assertEquals(BigDecimal.valueOf(150.00), toCard.getBalance());
+        verify(cardRepository, never()).findByIdForUpdate(any());
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_atomicMode_shouldUpdateWithoutReading() {
+        when(transferTransactionRunner.mode()).thenReturn(TransferTransactionRunner.Mode.ATOMIC);
+        when(cardRepository.debitIfActiveAndCovered(fromCardId, userId, BigDecimal.valueOf(100.00))).thenReturn(1);
+        when(cardRepository.creditIfActive(toCardId, userId, BigDecimal.valueOf(100.00))).thenReturn(1);
+
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
+
+        InOrder statementOrder = inOrder(cardRepository);
+        statementOrder.verify(cardRepository).debitIfActiveAndCovered(fromCardId, userId, BigDecimal.valueOf(100.00));
+        statementOrder.verify(cardRepository).creditIfActive(toCardId, userId, BigDecimal.valueOf(100.00));
+        verifyNoMoreInteractions(cardRepository);
+        verifyNoInteractions(userRepository);
+        verify(transferRepository).save(any(Transfer.class));
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_atomicModeToLowerId_shouldCreditFirst() {
+        transferRequest = new TransferRequest(toCardId, fromCardId, BigDecimal.valueOf(50.00));
+        when(transferTransactionRunner.mode()).thenReturn(TransferTransactionRunner.Mode.ATOMIC);
+        when(cardRepository.creditIfActive(fromCardId, userId, BigDecimal.valueOf(50.00))).thenReturn(1);
+        when(cardRepository.debitIfActiveAndCovered(toCardId, userId, BigDecimal.valueOf(50.00))).thenReturn(1);
+
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null);
+
+        InOrder statementOrder = inOrder(cardRepository);
+        statementOrder.verify(cardRepository).creditIfActive(fromCardId, userId, BigDecimal.valueOf(50.00));
+        statementOrder.verify(cardRepository).debitIfActiveAndCovered(toCardId, userId, BigDecimal.valueOf(50.00));
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_atomicModeInsufficientBalance_shouldExplainRejection() {
+        transferRequest = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(300.00));
+        when(transferTransactionRunner.mode()).thenReturn(TransferTransactionRunner.Mode.ATOMIC);
+        when(cardRepository.debitIfActiveAndCovered(fromCardId, userId, BigDecimal.valueOf(300.00))).thenReturn(0);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        InvalidCardOperationException thrown = assertThrows(InvalidCardOperationException.class,
+                () -> jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null));
+
+        assertEquals("Insufficient balance on source card.", thrown.getMessage());
+        verify(cardRepository, never()).creditIfActive(any(), any(), any());
+        verifyNoInteractions(transferRepository);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_atomicModeRejectedButValidOnReread_shouldReportConcurrentUpdate() {
+        when(transferTransactionRunner.mode()).thenReturn(TransferTransactionRunner.Mode.ATOMIC);
+        when(cardRepository.debitIfActiveAndCovered(fromCardId, userId, BigDecimal.valueOf(100.00))).thenReturn(1);
+        when(cardRepository.creditIfActive(toCardId, userId, BigDecimal.valueOf(100.00))).thenReturn(0);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        assertThrows(ConcurrentCardUpdateException.class,
+                () -> jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, null));
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_completedIdempotencyKey_shouldNotTransferAgain() {
+        String requestHash = TransferIdempotencyStore.requestHash(transferRequest);
+        when(transferIdempotencyStore.isCompleted(userId, "retry-1", requestHash)).thenReturn(true);
+
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, "retry-1");
+
+        verifyNoInteractions(transferTransactionRunner, cardRepository, transferRepository);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_newIdempotencyKey_shouldClaimBeforeTransferring() {
+        String requestHash = TransferIdempotencyStore.requestHash(transferRequest);
+        when(transferTransactionRunner.mode()).thenReturn(TransferTransactionRunner.Mode.ATOMIC);
+        when(cardRepository.debitIfActiveAndCovered(fromCardId, userId, BigDecimal.valueOf(100.00))).thenReturn(1);
+        when(cardRepository.creditIfActive(toCardId, userId, BigDecimal.valueOf(100.00))).thenReturn(1);
+
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, "retry-1");
+
+        InOrder transferOrder = inOrder(transferIdempotencyStore, cardRepository);
+        transferOrder.verify(transferIdempotencyStore).claim(userId, "retry-1", requestHash);
+        transferOrder.verify(cardRepository).debitIfActiveAndCovered(fromCardId, userId, BigDecimal.valueOf(100.00));
+        transferOrder.verify(transferIdempotencyStore).remember(userId, "retry-1", requestHash);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_idempotencyKeyClaimedConcurrently_shouldReplay() {
+        String requestHash = TransferIdempotencyStore.requestHash(transferRequest);
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(transferIdempotencyStore).claim(userId, "retry-1", requestHash);
+        when(transferIdempotencyStore.isCompletedInStore(userId, "retry-1", requestHash)).thenReturn(true);
+
+        jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, "retry-1");
+
+        verifyNoInteractions(cardRepository, transferRepository);
+    }
+
+    @Test
+    void transferBetweenUserOwnedCards_integrityViolationWithoutStoredKey_shouldRethrow() {
+        String requestHash = TransferIdempotencyStore.requestHash(transferRequest);
+        doThrow(new DataIntegrityViolationException("constraint"))
+                .when(transferIdempotencyStore).claim(userId, "retry-1", requestHash);
+        when(transferIdempotencyStore.isCompletedInStore(userId, "retry-1", requestHash)).thenReturn(false);
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jpaTransferService.transferBetweenUserOwnedCards(userId, transferRequest, "retry-1"));
+        verify(transferIdempotencyStore, never()).remember(any(), any(), any());
+    }
+
+    @Test
+    void cardLockOrder_shouldCompareUnsignedLikeTheDatabase() {
+        // UUID.compareTo is signed and would put this id first
+        UUID highBitSet = new UUID(Long.MIN_VALUE, 0L);
+
+        assertTrue(JpaTransferService.CARD_LOCK_ORDER.compare(fromCardId, highBitSet) < 0);
+        assertTrue(JpaTransferService.CARD_LOCK_ORDER.compare(fromCardId, toCardId) < 0);
+    }
+
+    @Test
+    void transferBatch_cardPaysOutMoreThanItHeld_shouldOnlyNeedNetChangeCovered() {
+        List<TransferRequest> transfers = List.of(
+                new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(250.00)),
+                new TransferRequest(toCardId, fromCardId, BigDecimal.valueOf(100.00)));
+        when(userRepository.existsById(userId)).thenReturn(true);
+        // requested in lock order
+        when(cardRepository.findAllByIdForUpdate(argThat(ids -> List.copyOf(ids).equals(List.of(fromCardId, toCardId)))))
+                .thenReturn(List.of(fromCard, toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        jpaTransferService.transferBatch(userId, transfers);
+
+        verify(transferBatchWriter).write(
+                Map.of(fromCardId, BigDecimal.valueOf(50.00), toCardId, BigDecimal.valueOf(200.00)),
+                List.of(new TransferBatchWriter.Entry(userId, transfers.get(0)),
+                        new TransferBatchWriter.Entry(userId, transfers.get(1))));
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBatch_netChangeNotCovered_shouldThrowInvalidCardOperationException() {
+        List<TransferRequest> transfers = List.of(
+                new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(300.00)),
+                new TransferRequest(toCardId, fromCardId, BigDecimal.valueOf(50.00)));
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        InvalidCardOperationException thrown = assertThrows(InvalidCardOperationException.class,
+                () -> jpaTransferService.transferBatch(userId, transfers));
+
+        assertEquals("Insufficient balance on card " + fromCardId + ".", thrown.getMessage());
+        verifyNoInteractions(transferBatchWriter);
+    }
+
+    @Test
+    void transferBatch_cardMissing_shouldThrowCardNotOwnedByUserException() {
+        UUID missingCardId = new UUID(0L, 3L);
+        List<TransferRequest> transfers = List.of(
+                new TransferRequest(fromCardId, toCardId, BigDecimal.TEN),
+                new TransferRequest(toCardId, missingCardId, BigDecimal.ONE));
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        CardNotOwnedByUserException thrown = assertThrows(CardNotOwnedByUserException.class,
+                () -> jpaTransferService.transferBatch(userId, transfers));
+
+        assertTrue(thrown.getMessage().contains(missingCardId.toString()));
+        verifyNoInteractions(transferBatchWriter);
+    }
+
+    @Test
+    void transferGroup_transferOverdrawingLaterInGroup_shouldFailOnlyThatTransfer() {
+        TransferRequest first = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(150.00));
+        TransferRequest overdraft = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100.00));
+        TransferRequest back = new TransferRequest(toCardId, fromCardId, BigDecimal.valueOf(20.00));
+        when(userRepository.findExistingIds(Set.of(userId))).thenReturn(Set.of(userId));
+        when(cardRepository.findAllByIdForUpdate(argThat(ids -> List.copyOf(ids).equals(List.of(fromCardId, toCardId)))))
+                .thenReturn(List.of(fromCard, toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        List<RuntimeException> failures = jpaTransferService.transferGroup(List.of(
+                new JpaTransferService.GroupedTransfer(userId, first, null),
+                new JpaTransferService.GroupedTransfer(userId, overdraft, null),
+                new JpaTransferService.GroupedTransfer(userId, back, null)));
+
+        assertNull(failures.get(0));
+        // only 50 left after the first transfer
+        assertEquals("Insufficient balance on source card.", failures.get(1).getMessage());
+        assertNull(failures.get(2));
+        verify(transferBatchWriter).write(
+                Map.of(fromCardId, BigDecimal.valueOf(70.00), toCardId, BigDecimal.valueOf(180.00)),
+                List.of(new TransferBatchWriter.Entry(userId, first), new TransferBatchWriter.Entry(userId, back)));
+        verifyNoInteractions(transferIdempotencyStore);
+    }
+
+    @Test
+    void transferGroup_idempotencyKeyCompleted_shouldReplayWithoutWriting() {
+        String requestHash = TransferIdempotencyStore.requestHash(transferRequest);
+        when(userRepository.findExistingIds(Set.of(userId))).thenReturn(Set.of(userId));
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+        when(transferIdempotencyStore.findCompleted(Set.of(userId), Set.of("retry-1")))
+                .thenReturn(new HashMap<>(Map.of(TransferIdempotencyStore.cacheKey(userId, "retry-1"), requestHash)));
+
+        List<RuntimeException> failures = jpaTransferService.transferGroup(List.of(
+                new JpaTransferService.GroupedTransfer(userId, transferRequest, "retry-1")));
+
+        assertNull(failures.get(0));
+        verifyNoInteractions(transferBatchWriter);
+    }
+
+    @Test
+    void transferGroup_idempotencyKeyUsedTwiceInGroup_shouldMakeFirstAndReplaySecond() {
+        TransferRequest other = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(1.00));
+        when(userRepository.findExistingIds(Set.of(userId))).thenReturn(Set.of(userId));
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+        when(transferIdempotencyStore.findCompleted(Set.of(userId), Set.of("retry-1"))).thenReturn(new HashMap<>());
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        List<RuntimeException> failures = jpaTransferService.transferGroup(List.of(
+                new JpaTransferService.GroupedTransfer(userId, transferRequest, "retry-1"),
+                new JpaTransferService.GroupedTransfer(userId, transferRequest, "retry-1"),
+                new JpaTransferService.GroupedTransfer(userId, other, "retry-1")));
+
+        assertNull(failures.get(0));
+        assertNull(failures.get(1));
+        assertTrue(failures.get(2) instanceof IdempotencyKeyReusedException);
+        verify(transferBatchWriter).write(
+                Map.of(fromCardId, BigDecimal.valueOf(100.00), toCardId, BigDecimal.valueOf(150.00)),
+                List.of(new TransferBatchWriter.Entry(userId, transferRequest, "retry-1",
+                        TransferIdempotencyStore.requestHash(transferRequest))));
+    }
+
+    @Test
+    void transferGroup_unknownUserAndMissingCard_shouldFailThoseTransfersOnly() {
+        UUID strangerId = UUID.randomUUID();
+        UUID missingCardId = new UUID(0L, 3L);
+        TransferRequest toMissingCard = new TransferRequest(fromCardId, missingCardId, BigDecimal.TEN);
+        when(userRepository.findExistingIds(Set.of(userId, strangerId))).thenReturn(Set.of(userId));
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+        when(userRepository.getReferenceById(userId)).thenReturn(user);
+
+        List<RuntimeException> failures = jpaTransferService.transferGroup(List.of(
+                new JpaTransferService.GroupedTransfer(strangerId, transferRequest, null),
+                new JpaTransferService.GroupedTransfer(userId, toMissingCard, null),
+                new JpaTransferService.GroupedTransfer(userId, transferRequest, null)));
+
+        assertTrue(failures.get(0) instanceof UserNotFoundException);
+        assertTrue(failures.get(1) instanceof CardNotOwnedByUserException);
+        assertNull(failures.get(2));
+        verify(transferBatchWriter).write(
+                Map.of(fromCardId, BigDecimal.valueOf(100.00), toCardId, BigDecimal.valueOf(150.00)),
+                List.of(new TransferBatchWriter.Entry(userId, transferRequest)));
+    }
+
+    @Test
+    void getTransferHistory_moreThanOnePage_shouldReturnCursorOfLastTransfer() {
+        Transfer newer = mock(Transfer.class);
+        Transfer older = mock(Transfer.class);
+        Transfer oldest = mock(Transfer.class);
+        LocalDateTime olderCreatedAt = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+        TransferDto olderDto = new TransferDto(UUID.randomUUID(), fromCardId, toCardId, BigDecimal.ONE, olderCreatedAt);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(transferRepository.findLatestByUser(userId, PageRequest.of(0, 3))).thenReturn(List.of(newer, older, oldest));
+        when(transferMapper.toDto(newer)).thenReturn(mock(TransferDto.class));
+        when(transferMapper.toDto(older)).thenReturn(olderDto);
+
+        TransferHistoryDto firstPage = jpaTransferService.getTransferHistory(userId, null, 2, null);
+
+        assertEquals(2, firstPage.getTransfers().size());
+        verify(transferMapper, never()).toDto(oldest);
+
+        when(transferRepository.findByUserBefore(userId, olderCreatedAt, olderDto.getId(), PageRequest.of(0, 3)))
+                .thenReturn(List.of(oldest));
+        when(transferMapper.toDto(oldest)).thenReturn(mock(TransferDto.class));
+
+        TransferHistoryDto lastPage = jpaTransferService.getTransferHistory(userId, null, 2, firstPage.getNextCursor());
+
+        assertEquals(1, lastPage.getTransfers().size());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void getTransferHistory_cardGiven_shouldFilterByCard() {
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(transferRepository.findLatestByUserAndCard(userId, fromCardId, PageRequest.of(0, 11))).thenReturn(List.of());
+
+        TransferHistoryDto history = jpaTransferService.getTransferHistory(userId, fromCardId, null, null);
+
+        assertEquals(List.of(), history.getTransfers());
+        assertNull(history.getNextCursor());
+        verify(transferRepository, never()).findLatestByUser(any(), any());
+    }
+
+    @Test
+    void getTransferHistory_invalidCursor_shouldThrowIllegalArgumentException() {
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> jpaTransferService.getTransferHistory(userId, null, null, "not-a-cursor"));
+
+        assertEquals("Invalid transfer history cursor.", thrown.getMessage());
+        verifyNoInteractions(transferRepository);
+    }
+
+    @Test
+    void getTransferHistory_userNotFound_shouldThrowUserNotFoundException() {
+        when(userRepository.existsById(userId)).thenReturn(false);
+
+        assertThrows(UserNotFoundException.class, () -> jpaTransferService.getTransferHistory(userId, null, null, null));
+        verifyNoInteractions(transferRepository);
+    }
+}
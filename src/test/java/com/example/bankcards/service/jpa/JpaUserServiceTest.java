@@ -11,6 +11,9 @@ import com.example.bankcards.exception.user.UserNotFoundException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RefreshTokenStore;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UserPrincipalCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -45,6 +48,12 @@ class JpaUserServiceTest {
     @Mock
     private CardRepository cardRepository;
     @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+    @Mock
     private SecurityContext securityContext;
     @Mock
     private Authentication authentication;
@@ -152,6 +161,9 @@ class JpaUserServiceTest {
 
         verify(userRepository).existsById(userId);
         verify(userRepository).deleteById(userId);
+        verify(tokenRevocationRegistry).revokeAllForUser(userId);
+        verify(userPrincipalCache).evictAfterCommit(userId);
+        verify(refreshTokenStore).revokeAllForUser(userId);
     }
 
     @Test
@@ -167,6 +179,26 @@ class JpaUserServiceTest {
         verifyNoMoreInteractions(userRepository);
     }
 
+    @Test
+    void revokeTokens_existingUser_shouldRevokeAccessAndRefreshTokens() {
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        jpaUserService.revokeTokens(userId);
+
+        verify(tokenRevocationRegistry).revokeAllForUser(userId);
+        verify(refreshTokenStore).revokeAllForUser(userId);
+        verify(userRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void revokeTokens_nonExistingUser_shouldThrowUserNotFoundException() {
+        when(userRepository.existsById(userId)).thenReturn(false);
+
+        assertThrows(UserNotFoundException.class, () -> jpaUserService.revokeTokens(userId));
+
+        verifyNoInteractions(tokenRevocationRegistry, refreshTokenStore);
+    }
+
     @Test
     void updateUser_existingUserAndNewUsername_shouldUpdateUsername() {
         String newUsername = "newtestuser";
@@ -179,6 +211,8 @@ class JpaUserServiceTest {
         assertEquals(newUsername, user.getUsername());
         verify(userRepository).findById(userId);
         verify(userRepository).existsByUsername(newUsername);
+        verify(tokenRevocationRegistry).revokeAllForUser(userId);
+        verify(userPrincipalCache).evictAfterCommit(userId);
     }
 
     @Test
@@ -191,6 +225,7 @@ class JpaUserServiceTest {
         assertEquals(username, user.getUsername());
         verify(userRepository).findById(userId);
         verify(userRepository, never()).existsByUsername(anyString());
+        verifyNoInteractions(tokenRevocationRegistry);
     }
 
     @Test
@@ -203,6 +238,7 @@ class JpaUserServiceTest {
         assertEquals(username, user.getUsername());
         verify(userRepository).findById(userId);
         verify(userRepository, never()).existsByUsername(anyString());
+        verifyNoInteractions(tokenRevocationRegistry);
     }
 
     @Test
@@ -0,0 +1,76 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.dto.card.TransferRequest;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.exception.card.IdempotencyKeyReusedException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class TransferIdempotencyStoreTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final TransferRequest request = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("10.00"));
+
+    private TransferIdempotencyKeyRepository repository;
+    private TransferIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TransferIdempotencyKeyRepository.class);
+        store = new TransferIdempotencyStore(repository, Duration.ofHours(1), 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void requestHash_sameAmountAtAnotherScale_shouldBeEqual() {
+        TransferRequest sameAmount = new TransferRequest(request.getFromCardId(), request.getToCardId(), BigDecimal.TEN);
+
+        assertThat(TransferIdempotencyStore.requestHash(sameAmount)).isEqualTo(TransferIdempotencyStore.requestHash(request));
+    }
+
+    @Test
+    void isCompleted_rememberedKey_shouldNotQueryRepository() {
+        String requestHash = TransferIdempotencyStore.requestHash(request);
+        store.remember(userId, "retry-1", requestHash);
+
+        assertThat(store.isCompleted(userId, "retry-1", requestHash)).isTrue();
+        assertThat(store.isCompleted(UUID.randomUUID(), "retry-1", requestHash)).isFalse();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void isCompleted_keyRememberedForAnotherRequest_shouldThrow() {
+        store.remember(userId, "retry-1", "otherHash");
+
+        assertThatThrownBy(() -> store.isCompleted(userId, "retry-1", TransferIdempotencyStore.requestHash(request)))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    @Test
+    void isCompletedInStore_storedKey_shouldCacheIt() {
+        String requestHash = TransferIdempotencyStore.requestHash(request);
+        when(repository.findByUserIdAndIdempotencyKey(userId, "retry-1"))
+                .thenReturn(Optional.of(new TransferIdempotencyKey(userId, "retry-1", requestHash)));
+
+        assertThat(store.isCompletedInStore(userId, "retry-1", requestHash)).isTrue();
+        assertThat(store.isCompleted(userId, "retry-1", requestHash)).isTrue();
+        verify(repository, times(1)).findByUserIdAndIdempotencyKey(userId, "retry-1");
+    }
+
+    @Test
+    void isCompletedInStore_unknownKey_shouldReturnFalse() {
+        when(repository.findByUserIdAndIdempotencyKey(userId, "retry-1")).thenReturn(Optional.empty());
+
+        assertThat(store.isCompletedInStore(userId, "retry-1", TransferIdempotencyStore.requestHash(request))).isFalse();
+    }
+}
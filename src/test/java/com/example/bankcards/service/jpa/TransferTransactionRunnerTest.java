@@ -0,0 +1,70 @@
+package com.example.bankcards.service.jpa;
+
+import com.example.bankcards.exception.card.ConcurrentCardUpdateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class TransferTransactionRunnerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionTemplate transactionTemplate;
+    private AtomicInteger attempts;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        attempts = new AtomicInteger();
+    }
+
+    private TransferTransactionRunner runner(TransferTransactionRunner.Mode mode) {
+        return new TransferTransactionRunner(transactionTemplate, mode, 3, 1, 2, meterRegistry);
+    }
+
+    private Runnable conflictingTimes(int conflicts) {
+        return () -> {
+            if (attempts.incrementAndGet() <= conflicts) {
+                throw new ObjectOptimisticLockingFailureException("Card", "id");
+            }
+        };
+    }
+
+    @Test
+    void run_optimisticConflict_shouldRetryAndCount() {
+        runner(TransferTransactionRunner.Mode.OPTIMISTIC).run(conflictingTimes(2));
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("transfers.optimistic.retries").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("transfers.optimistic.exhausted").count()).isZero();
+    }
+
+    @Test
+    void run_optimisticConflictOnEveryAttempt_shouldGiveUp() {
+        TransferTransactionRunner runner = runner(TransferTransactionRunner.Mode.OPTIMISTIC);
+
+        assertThrows(ConcurrentCardUpdateException.class, () -> runner.run(conflictingTimes(Integer.MAX_VALUE)));
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("transfers.optimistic.exhausted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void run_pessimisticConflict_shouldNotRetry() {
+        TransferTransactionRunner runner = runner(TransferTransactionRunner.Mode.PESSIMISTIC);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> runner.run(conflictingTimes(1)));
+
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("transfers.optimistic.retries").count()).isZero();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.bankcards.service.lane;
+
+import com.example.bankcards.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardLanesTest {
+
+    private final UUID hot = UUID.randomUUID();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private CardLanes lanes = new CardLanes(100, Duration.ofSeconds(10), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        lanes.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void run_workSharingACard_shouldRunOneAtATime() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            // each transfer pairs the hot card with a card of its own
+            List<UUID> cards = List.of(hot, UUID.randomUUID());
+            results.add(callers.submit(() -> lanes.run(cards, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(1);
+                running.decrementAndGet();
+                return null;
+            })));
+        }
+        for (Future<?> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxRunning.get()).isEqualTo(1);
+    }
+
+    @Test
+    void run_workOnDisjointCards_shouldRunInParallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        Callable<Boolean> meet = () -> lanes.run(Set.of(UUID.randomUUID()), () -> {
+            bothRunning.countDown();
+            try {
+                return bothRunning.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Future<Boolean> first = callers.submit(meet);
+        Future<Boolean> second = callers.submit(meet);
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void run_tooManyPending_shouldRejectWithoutRunning() throws Exception {
+        lanes = new CardLanes(1, Duration.ofSeconds(10), new SimpleMeterRegistry());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocking = callers.submit(() -> lanes.run(Set.of(hot), () -> {
+            started.countDown();
+            return await(release);
+        }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertThatThrownBy(() -> lanes.run(Set.of(UUID.randomUUID()), () -> ran.getAndSet(true)))
+                .isInstanceOf(ServiceOverloadedException.class);
+        release.countDown();
+        blocking.get(10, TimeUnit.SECONDS);
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    void run_notStartedInTime_shouldGiveUpAndNeverRun() throws Exception {
+        lanes = new CardLanes(100, Duration.ofMillis(50), new SimpleMeterRegistry());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocking = callers.submit(() -> lanes.run(Set.of(hot), () -> {
+            started.countDown();
+            return await(release);
+        }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertThatThrownBy(() -> lanes.run(Set.of(hot), () -> ran.getAndSet(true)))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessage("The card is busy with other transfers, try again later.");
+        release.countDown();
+        blocking.get(10, TimeUnit.SECONDS);
+        // the abandoned work's turn has come and gone once the lane runs empty
+        assertThat(lanes.run(Set.of(hot), () -> true)).isTrue();
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    void run_failingWork_shouldRethrowAndKeepTheLaneGoing() {
+        assertThatThrownBy(() -> lanes.run(Set.of(hot), () -> {
+            throw new IllegalStateException("rejected");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("rejected");
+
+        assertThat(lanes.run(Set.of(hot), () -> "next")).isEqualTo("next");
+    }
+
+    @Test
+    void run_shouldRunWithCallersSecurityContext() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password"));
+
+        String name = lanes.run(Set.of(hot), () -> SecurityContextHolder.getContext().getAuthentication().getName());
+
+        assertThat(name).isEqualTo("user");
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
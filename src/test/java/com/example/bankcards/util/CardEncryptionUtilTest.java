@@ -0,0 +1,182 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.DataKey;
+import com.example.bankcards.repository.DataKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CardEncryptionUtilTest {
+
+    private static final String SECRET = "test-secret";
+    private static final String SALT = "ABCDEF0123456789ABCDEF0123456789";
+    private static final String CARD_NUMBER = "1234567890123456";
+    private static final String BLIND_INDEX_KEY = "test-blind-index-key";
+
+    private final Map<UUID, DataKey> storedKeys = new LinkedHashMap<>();
+    private DataKeyRepository dataKeyRepository;
+
+    @BeforeEach
+    void setUp() {
+        dataKeyRepository = mock(DataKeyRepository.class);
+        when(dataKeyRepository.save(any(DataKey.class))).thenAnswer(invocation -> {
+            DataKey dataKey = invocation.getArgument(0);
+            storedKeys.put(dataKey.getId(), dataKey);
+            return dataKey;
+        });
+        when(dataKeyRepository.findById(any(UUID.class)))
+                .thenAnswer(invocation -> Optional.ofNullable(storedKeys.get(invocation.<UUID>getArgument(0))));
+        when(dataKeyRepository.findFirstByOrderByCreatedAtDesc())
+                .thenAnswer(invocation -> storedKeys.values().stream().reduce((first, second) -> second));
+    }
+
+    private CardEncryptionUtil util(String masterSecret, String blindIndexKey) {
+        return util(masterSecret, blindIndexKey, Duration.ofSeconds(10));
+    }
+
+    private CardEncryptionUtil util(String masterSecret, String blindIndexKey, Duration activeKeyRefreshInterval) {
+        DataKeyManager dataKeyManager = new DataKeyManager(dataKeyRepository,
+                new FileMasterKeyProvider("", masterSecret, "", ""), 100, Duration.ofMinutes(1), activeKeyRefreshInterval);
+        CardEncryptionUtil util = new CardEncryptionUtil(dataKeyManager);
+        ReflectionTestUtils.setField(util, "secretKey", SECRET);
+        ReflectionTestUtils.setField(util, "salt", SALT);
+        ReflectionTestUtils.setField(util, "blindIndexKey", blindIndexKey);
+        util.init();
+        return util;
+    }
+
+    @Test
+    void encrypt_shouldRoundTripUnderActiveDataKey() {
+        CardEncryptionUtil util = util(SECRET, BLIND_INDEX_KEY);
+
+        EncryptedCardNumber first = util.encrypt(CARD_NUMBER);
+        EncryptedCardNumber second = util.encrypt(CARD_NUMBER);
+
+        assertThat(first.getKeyId()).isEqualTo(second.getKeyId()).isIn(storedKeys.keySet());
+        assertThat(first.getCiphertext()).hasSize(12 + CARD_NUMBER.length() + 16).isNotEqualTo(second.getCiphertext());
+        assertThat(util.decrypt(first.getKeyId(), first.getCiphertext())).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    void decrypt_afterRotationAndRestart_shouldReadEveryKey() {
+        CardEncryptionUtil util = util(SECRET, BLIND_INDEX_KEY);
+        EncryptedCardNumber beforeRotation = util.encrypt(CARD_NUMBER);
+        ((DataKeyManager) ReflectionTestUtils.getField(util, "dataKeyManager")).rotate();
+        EncryptedCardNumber afterRotation = util.encrypt(CARD_NUMBER);
+
+        CardEncryptionUtil restarted = util(SECRET, BLIND_INDEX_KEY);
+
+        assertThat(afterRotation.getKeyId()).isNotEqualTo(beforeRotation.getKeyId());
+        assertThat(restarted.decrypt(beforeRotation.getKeyId(), beforeRotation.getCiphertext())).isEqualTo(CARD_NUMBER);
+        assertThat(restarted.decrypt(afterRotation.getKeyId(), afterRotation.getCiphertext())).isEqualTo(CARD_NUMBER);
+        assertThat(restarted.encrypt(CARD_NUMBER).getKeyId()).isEqualTo(afterRotation.getKeyId());
+    }
+
+    @Test
+    void encrypt_afterRotationOnAnotherInstance_shouldSwitchOnceRefreshIntervalHasPassed() {
+        CardEncryptionUtil refreshing = util(SECRET, BLIND_INDEX_KEY, Duration.ZERO);
+        CardEncryptionUtil notYetRefreshed = util(SECRET, BLIND_INDEX_KEY, Duration.ofHours(1));
+        UUID initialKeyId = refreshing.encrypt(CARD_NUMBER).getKeyId();
+        assertThat(notYetRefreshed.encrypt(CARD_NUMBER).getKeyId()).isEqualTo(initialKeyId);
+
+        CardEncryptionUtil otherInstance = util(SECRET, BLIND_INDEX_KEY);
+        UUID rotatedKeyId = ((DataKeyManager) ReflectionTestUtils.getField(otherInstance, "dataKeyManager")).rotate().getId();
+
+        assertThat(refreshing.encrypt(CARD_NUMBER).getKeyId()).isEqualTo(rotatedKeyId);
+        assertThat(notYetRefreshed.encrypt(CARD_NUMBER).getKeyId()).isEqualTo(initialKeyId);
+    }
+
+    @Test
+    void decrypt_otherMasterKey_shouldFail() {
+        EncryptedCardNumber encrypted = util(SECRET, BLIND_INDEX_KEY).encrypt(CARD_NUMBER);
+
+        CardEncryptionUtil otherMaster = util("another-secret", BLIND_INDEX_KEY);
+
+        assertThrows(IllegalStateException.class,
+                () -> otherMaster.decrypt(encrypted.getKeyId(), encrypted.getCiphertext()));
+    }
+
+    @Test
+    void decrypt_legacyCiphertextWithoutKeyId_shouldUseSecretAndSalt() {
+        byte[] legacy = Encryptors.stronger(SECRET, SALT).encrypt(CARD_NUMBER.getBytes(StandardCharsets.UTF_8));
+
+        String decrypted = util(SECRET, BLIND_INDEX_KEY).decryptText(null, Base64.getEncoder().encodeToString(legacy));
+
+        assertThat(decrypted).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    void decrypt_legacyCiphertextDuringSaltRotation_shouldFallBackToPreviousSalt() {
+        String previousSalt = "0123456789ABCDEF0123456789ABCDEF";
+        byte[] legacy = Encryptors.stronger(SECRET, previousSalt).encrypt(CARD_NUMBER.getBytes(StandardCharsets.UTF_8));
+        CardEncryptionUtil util = util(SECRET, BLIND_INDEX_KEY);
+        ReflectionTestUtils.setField(util, "previousSalt", previousSalt);
+        util.init();
+
+        String decrypted = util.decryptText(null, Base64.getEncoder().encodeToString(legacy));
+
+        assertThat(decrypted).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    void decrypt_textRowUnderDataKey_shouldMatchBinaryRow() {
+        CardEncryptionUtil util = util(SECRET, BLIND_INDEX_KEY);
+        EncryptedCardNumber encrypted = util.encrypt(CARD_NUMBER);
+        Card textRow = new Card();
+        textRow.setCardNumberKeyId(encrypted.getKeyId());
+        textRow.setEncryptedCardNumber(Base64.getEncoder().encodeToString(encrypted.getCiphertext()));
+        Card binaryRow = new Card();
+        binaryRow.setCardNumberKeyId(encrypted.getKeyId());
+        binaryRow.setCardNumberCiphertext(encrypted.getCiphertext());
+
+        assertThat(util.decrypt(textRow)).isEqualTo(CARD_NUMBER);
+        assertThat(util.decrypt(binaryRow)).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    void encrypt_nonAsciiText_shouldRoundTripAsUtf8() {
+        CardEncryptionUtil util = util(SECRET, BLIND_INDEX_KEY);
+
+        EncryptedCardNumber encrypted = util.encrypt("номер-№1");
+
+        assertThat(util.decrypt(encrypted.getKeyId(), encrypted.getCiphertext())).isEqualTo("номер-№1");
+    }
+
+    @Test
+    void blindIndex_sameNumber_shouldBeDeterministicAndIgnoreSeparators() {
+        CardEncryptionUtil util = util(SECRET, BLIND_INDEX_KEY);
+
+        String blindIndex = util.blindIndex(CARD_NUMBER);
+
+        assertThat(blindIndex).hasSize(43).isEqualTo(util.blindIndex("1234 5678-9012 3456"));
+        assertThat(blindIndex).isNotEqualTo(util.blindIndex("1234567890123457"));
+    }
+
+    @Test
+    void blindIndex_differentKey_shouldDiffer() {
+        assertThat(util(SECRET, BLIND_INDEX_KEY).blindIndex(CARD_NUMBER))
+                .isNotEqualTo(util(SECRET, "another-blind-index-key").blindIndex(CARD_NUMBER));
+    }
+
+    @Test
+    void blindIndex_otherEncryptionSecret_shouldStayTheSame() {
+        assertThat(util(SECRET, BLIND_INDEX_KEY).blindIndex(CARD_NUMBER))
+                .isEqualTo(util("another-secret", BLIND_INDEX_KEY).blindIndex(CARD_NUMBER));
+    }
+
+    @Test
+    void init_withoutBlindIndexKey_shouldFail() {
+        assertThrows(IllegalStateException.class, () -> util(SECRET, " "));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CardTokenizerTest {
+
+    private static final String CARD_NUMBER = "4539578763621486";
+
+    private CardRepository cardRepository;
+    private CardTokenizer cardTokenizer;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        cardTokenizer = new CardTokenizer(cardRepository, new SimpleMeterRegistry(), 100);
+    }
+
+    @Test
+    void tokenize_shouldPreserveFormatAndFailLuhn() {
+        assertThat(CardTokenizer.passesLuhn(CARD_NUMBER.toCharArray())).isTrue();
+
+        for (int i = 0; i < 1000; i++) {
+            String token = cardTokenizer.tokenize(CARD_NUMBER);
+
+            assertThat(token).hasSize(16).containsOnlyDigits().endsWith("1486").isNotEqualTo(CARD_NUMBER);
+            assertThat(CardTokenizer.passesLuhn(token.toCharArray())).isFalse();
+        }
+    }
+
+    @Test
+    void tokenize_shouldNotBeDerivedFromTheNumber() {
+        assertThat(cardTokenizer.tokenize(CARD_NUMBER)).isNotEqualTo(cardTokenizer.tokenize(CARD_NUMBER));
+    }
+
+    @Test
+    void issueToken_takenToken_shouldRetry() {
+        when(cardRepository.existsByCardToken(anyString())).thenReturn(true, false);
+
+        cardTokenizer.issueToken(CARD_NUMBER);
+
+        verify(cardRepository, times(2)).existsByCardToken(anyString());
+    }
+
+    @Test
+    void issueToken_everyTokenTaken_shouldThrow() {
+        when(cardRepository.existsByCardToken(anyString())).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> cardTokenizer.issueToken(CARD_NUMBER));
+    }
+
+    @Test
+    void findCardId_repeatedLookups_shouldQueryOnce() {
+        UUID cardId = UUID.randomUUID();
+        when(cardRepository.findIdByCardToken("9876543210981486")).thenReturn(Optional.of(cardId));
+
+        cardTokenizer.findCardId("9876543210981486");
+
+        assertThat(cardTokenizer.findCardId("9876543210981486")).contains(cardId);
+        verify(cardRepository, times(1)).findIdByCardToken("9876543210981486");
+    }
+
+    @Test
+    void findCardId_unknownToken_shouldNotCacheMiss() {
+        when(cardRepository.findIdByCardToken("9876543210981486")).thenReturn(Optional.empty());
+
+        assertThat(cardTokenizer.findCardId("9876543210981486")).isEmpty();
+        assertThat(cardTokenizer.findCardId("9876543210981486")).isEmpty();
+
+        verify(cardRepository, times(2)).findIdByCardToken("9876543210981486");
+    }
+}